@@ -1,15 +1,19 @@
 package net.brentwalther.jcf;
 
-import com.google.common.collect.Maps;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Optional;
 import net.brentwalther.jcf.environment.JcfEnvironment;
 import net.brentwalther.jcf.export.LedgerExporter;
+import net.brentwalther.jcf.matcher.BatchMatcher;
+import net.brentwalther.jcf.matcher.BatchMatcher.BatchResult;
+import net.brentwalther.jcf.matcher.MatcherSnapshot;
 import net.brentwalther.jcf.matcher.SplitMatcher;
 import net.brentwalther.jcf.model.IndexedModel;
-import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.importer.ConcurrentCsvImporter;
 import net.brentwalther.jcf.model.importer.CsvTransactionListingImporter;
 import net.brentwalther.jcf.prompt.impl.TerminalPromptEvaluator;
 import net.brentwalther.jcf.screen.SplitMatcherScreen;
@@ -50,15 +54,39 @@ public class CsvMatcher {
     }
     File outputFile = maybeOutputFile.get();
 
-    SplitMatcher matcher = SplitMatcher.create(jcfEnvironment.getInitialModel());
-    Model importedModelFromCsv = CsvTransactionListingImporter.create(jcfEnvironment).get();
-    Model modelToExport =
-        SplitMatcherScreen.start(
-            jcfEnvironment.getPromptEvaluator(),
-            matcher,
-            /* modelToMatch= */ IndexedModel.create(importedModelFromCsv),
-            /* allInitiallyKnownAccountsById= */ Maps.uniqueIndex(
-                jcfEnvironment.getInitialModel().getAccountList(), Account::getId));
+    SplitMatcher matcher = loadOrCreateSplitMatcher();
+    if (jcfEnvironment.isFuzzyTokenMatchingEnabled()) {
+      matcher.enableFuzzyTokenMatching();
+    }
+    Model importedModelFromCsv =
+        jcfEnvironment.getInputCsvProfiles().isEmpty()
+            ? CsvTransactionListingImporter.create(jcfEnvironment).get()
+            : ConcurrentCsvImporter.create(jcfEnvironment).get();
+    Optional<File> reviewLedgerFile = jcfEnvironment.getBatchReviewLedgerFile();
+    Model modelToExport;
+    if (reviewLedgerFile.isPresent()) {
+      BatchResult batchResult =
+          BatchMatcher.match(
+              matcher,
+              IndexedModel.create(importedModelFromCsv),
+              jcfEnvironment.getAutoMatchThreshold());
+      modelToExport = batchResult.autoMatched();
+      if (batchResult.needsReview().getTransactionCount() > 0) {
+        boolean success =
+            LedgerExporter.exportToFile(
+                IndexedModel.create(batchResult.needsReview()), reviewLedgerFile.get());
+        LOGGER.atInfo().log(
+            "Wrote review file: %s - %s",
+            success ? "yes" : "no", reviewLedgerFile.get().getAbsolutePath());
+      }
+    } else {
+      modelToExport =
+          SplitMatcherScreen.start(
+              jcfEnvironment.getPromptEvaluator(),
+              matcher,
+              /* modelToMatch= */ IndexedModel.create(importedModelFromCsv),
+              /* allInitiallyKnownAccountsById= */ matcher.knownAccountsById());
+    }
 
     String outputFilePath = outputFile.getAbsolutePath();
     int lastDotIndex = outputFilePath.lastIndexOf('.');
@@ -78,4 +106,31 @@ public class CsvMatcher {
     LOGGER.atInfo().log(
         "Wrote file: %s - %s", success ? "yes" : "no", outputFile.getAbsolutePath());
   }
+
+  /**
+   * Returns the split matcher for the initial model, loading it from the snapshot file if there's
+   * an up to date one. Otherwise the matcher is built and saved to the snapshot file, if any.
+   */
+  private SplitMatcher loadOrCreateSplitMatcher() {
+    Optional<File> snapshotFile = jcfEnvironment.getMatcherSnapshotFile();
+    if (!snapshotFile.isPresent()) {
+      return SplitMatcher.create(
+          jcfEnvironment.getInitialIndexedModel(), jcfEnvironment.getMatchScorer());
+    }
+    Path snapshotPath = snapshotFile.get().toPath();
+    HashCode inputHash = jcfEnvironment.getInitialModelInputHash();
+    Optional<SplitMatcher> snapshot =
+        MatcherSnapshot.read(snapshotPath, inputHash, jcfEnvironment.getMatchScorer());
+    if (snapshot.isPresent()) {
+      LOGGER.atInfo().log("Loaded the split matcher from snapshot: %s", snapshotPath);
+      return snapshot.get();
+    }
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            jcfEnvironment.getInitialIndexedModel(), jcfEnvironment.getMatchScorer());
+    if (MatcherSnapshot.write(matcher, inputHash, snapshotPath)) {
+      LOGGER.atInfo().log("Saved the split matcher to snapshot: %s", snapshotPath);
+    }
+    return matcher;
+  }
 }
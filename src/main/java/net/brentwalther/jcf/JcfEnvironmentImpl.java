@@ -17,31 +17,52 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.protobuf.TextFormat;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions.FieldPosition;
 import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
 import net.brentwalther.jcf.SettingsProto.SettingsProfiles;
 import net.brentwalther.jcf.environment.JcfEnvironment;
 import net.brentwalther.jcf.flag.CsvSetFlag;
 import net.brentwalther.jcf.flag.DataFieldExtractor;
 import net.brentwalther.jcf.flag.JcfEnvironmentFlagFactory;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.flag.MatchScorerFlag;
 import net.brentwalther.jcf.flag.NonExistentFile;
-import net.brentwalther.jcf.flag.TextFileToLinesConverter.EagerlyLoadedTextFile;
+import net.brentwalther.jcf.flag.PositiveIntegerValidator;
+import net.brentwalther.jcf.matcher.MatchScorer;
+import net.brentwalther.jcf.matcher.MatchScorers;
 import net.brentwalther.jcf.model.FileType;
+import net.brentwalther.jcf.model.IndexedModel;
+import net.brentwalther.jcf.model.InitialModelCache;
 import net.brentwalther.jcf.model.JcfModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
 import net.brentwalther.jcf.model.ModelGenerators;
+import net.brentwalther.jcf.model.ModelMerger;
+import net.brentwalther.jcf.model.importer.CsvSchemaInference;
 import net.brentwalther.jcf.model.importer.CsvTransactionListingImporter;
+import net.brentwalther.jcf.model.importer.IncrementalLedgerImporter;
 import net.brentwalther.jcf.model.importer.LedgerFileImporter;
 import net.brentwalther.jcf.model.importer.SQLiteConnector;
 import net.brentwalther.jcf.model.importer.TsvTransactionDescAccountMappingImporter;
@@ -61,11 +82,13 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
               ImmutableMap.of(
                   Command.CSV_MATCHER,
                   (env) ->
-                      CsvTransactionListingImporter.isAcceptableFieldMappingSet(
-                              env.getCsvFieldMappings().keySet())
-                          && env.getCsvDateFormat().isPresent()
-                          && env.getDeclaredOutputFile().isPresent()
-                          && !env.getInputCsvLines().isEmpty(),
+                      (!env.getInputCsvProfiles().isEmpty()
+                              && env.getDeclaredOutputFile().isPresent())
+                          || (CsvTransactionListingImporter.isAcceptableFieldMappingSet(
+                                  env.getCsvFieldMappings().keySet())
+                              && env.getCsvDateFormat().isPresent()
+                              && env.getDeclaredOutputFile().isPresent()
+                              && !env.getInputCsv().isEmpty()),
                   Command.GENERATE_REPORT,
                   (env) -> !env.getReportType().isEmpty()));
   private final PromptEvaluator promptEvaluator;
@@ -85,18 +108,41 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
       description =
           "Optional. The file path to a ledger CLI format account listing file. A ledger CLI account "
               + "listing file is a file with lines of the format: account Account:Name")
-  private EagerlyLoadedTextFile ledgerAccountListing = EagerlyLoadedTextFile.EMPTY;
+  private LazyTextFile ledgerAccountListing = LazyTextFile.EMPTY;
 
   @Parameter(
       names = {"--master_ledger"},
       description = "Optional. The file path to a ledger CLI format master ledger file.")
-  private EagerlyLoadedTextFile masterLedger = EagerlyLoadedTextFile.EMPTY;
+  private LazyTextFile masterLedger = LazyTextFile.EMPTY;
+
+  @Parameter(
+      names = {"--master_ledger_sidecar"},
+      description =
+          "Optional. A file to save the parsed master ledger to. If the master ledger has only "
+              + "been appended to since it was saved, only the appended transactions are parsed.")
+  private String masterLedgerSidecarFilePath = UNSET_FLAG;
 
   @Parameter(
       names = {"--transaction_csv"},
       description =
           "Required. The file path to a CSV format file which is a list of transactions from a single account, column names included.")
-  private EagerlyLoadedTextFile inputCsv = EagerlyLoadedTextFile.EMPTY;
+  private LazyTextFile inputCsv = LazyTextFile.EMPTY;
+
+  @Parameter(
+      names = {"--transaction_csvs"},
+      description =
+          "Optional. A directory of CSV files, or a glob of CSV file names in a directory like "
+              + "statements/*.csv, to import at once instead of --transaction_csv. Each file uses "
+              + "the first settings profile whose csv_file_glob matches its name, if any.")
+  private String inputCsvsPattern = UNSET_FLAG;
+
+  @Parameter(
+      names = {"--csv_import_threads"},
+      description =
+          "Optional. The most CSV files (--transaction_csvs) to import at once. Defaults to the "
+              + "number of processors.",
+      validateWith = PositiveIntegerValidator.class)
+  private int csvImportThreadCount = Runtime.getRuntime().availableProcessors();
 
   @Parameter(
       names = {"--gnucash-sqlite-db"},
@@ -124,7 +170,7 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
       names = {"--tsv_desc_account_mapping"},
       description =
           "Optional. A file path to a TSV file containing two columns: (1) transaction description (2) account name")
-  private EagerlyLoadedTextFile descToAccountTsv = EagerlyLoadedTextFile.EMPTY;
+  private LazyTextFile descToAccountTsv = LazyTextFile.EMPTY;
 
   @Parameter(
       names = {"--output"},
@@ -172,46 +218,74 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
           "Required when command is 'generate_report'. The report type to generate and output.")
   private String reportType = UNSET_FLAG;
 
+  @Parameter(
+      names = {"--match_scorer"},
+      description =
+          "Optional. How to rank the accounts suggested for an imported transaction. One of "
+              + "'token_count' (the default) or 'bm25', which weights rare description tokens "
+              + "more heavily than common ones.",
+      converter = MatchScorerFlag.class)
+  private MatchScorer matchScorer = MatchScorers.tokenCount();
+
+  @Parameter(
+      names = {"--matcher_snapshot"},
+      description =
+          "Optional. A file to save the split matcher's index to. If it holds an index of the "
+              + "same inputs, the index is loaded from it instead of being rebuilt from the master "
+              + "ledger.")
+  private String matcherSnapshotFilePath = UNSET_FLAG;
+
+  @Parameter(
+      names = {"--fuzzy_token_matching"},
+      description =
+          "Optional. If set, description tokens that have never been seen before are matched to "
+              + "the most similar known token, e.g. 'Mktp' to 'MKTPLACE'.")
+  private boolean fuzzyTokenMatching = false;
+
+  @Parameter(
+      names = {"--batch_review_ledger"},
+      description =
+          "Optional. If set, transactions are matched without prompting. Those whose top account "
+              + "is confident enough (--auto_match_threshold) are written to the output file and "
+              + "the rest are written to this ledger file for review.")
+  private String batchReviewLedgerFilePath = UNSET_FLAG;
+
+  @Parameter(
+      names = {"--auto_match_threshold"},
+      description =
+          "Optional. When matching without prompting (--batch_review_ledger), the minimum share "
+              + "of the total score of all matching accounts that the top account needs to be "
+              + "matched automatically. Between 0 and 1. Defaults to 0.9.")
+  private double autoMatchThreshold = 0.9;
+
+  @Parameter(
+      names = {"--initial_model_cache_dir"},
+      description =
+          "Optional. A directory to cache the initial model in. If it holds the model of the same "
+              + "inputs, the model is loaded from it instead of being imported and merged again.")
+  private String initialModelCacheDirPath = UNSET_FLAG;
+
+  @Parameter(
+      names = {"--rebuild_initial_model_cache"},
+      description =
+          "Optional. If set, the initial model is imported again and replaces the cached one in "
+              + "--initial_model_cache_dir.")
+  private boolean rebuildInitialModelCache = false;
+
+  /** The enabled settings profiles that only apply to the --transaction_csvs files they match. */
+  private final List<SettingsProfile> csvFileProfiles = new ArrayList<>();
+
+  private final Supplier<ImmutableMap<File, SettingsProfile>> inputCsvProfilesSupplier =
+      Suppliers.memoize(this::resolveInputCsvProfiles);
+
+  private final Supplier<HashCode> initialModelInputHashSupplier =
+      Suppliers.memoize(this::hashInitialModelInputs);
+
+  private final Supplier<IndexedModel> initialIndexedModelSupplier =
+      Suppliers.memoize(this::loadOrBuildInitialModel);
+
   private final Supplier<Model> initialModelSupplier =
-      Suppliers.memoize(
-          () -> {
-            Model model = ModelGenerators.empty();
-            if (!gnuCashSqliteDbFilePath.isEmpty()) {
-              File file = new File(gnuCashSqliteDbFilePath);
-              if (file.exists() && file.isFile()) {
-                model = SQLiteConnector.create(file).get();
-              } else {
-                LOGGER.atWarning().log(
-                    "GNU Cash SQLite DB path did not refer to a file that exists. Path was: %s",
-                    gnuCashSqliteDbFilePath);
-              }
-            }
-            // This is a custom format that I added early on instead of just writing a ledger CLI
-            // format importer. It's probably just useless cruft now but may as well keep it since
-            // it's not broken as far as I am aware.
-            if (!descToAccountTsv.lines().isEmpty()) {
-              model =
-                  ModelGenerators.merge(
-                          extractModelFrom(
-                              FileType.TSV_TRANSACTION_DESCRIPTION_TO_ACCOUNT_NAME_MAPPING,
-                              descToAccountTsv.lines()))
-                      .into(model);
-            }
-            if (!ledgerAccountListing.lines().isEmpty()) {
-              JcfModel.Model allAccounts =
-                  extractModelFrom(FileType.LEDGER_ACCOUNT_LISTING, ledgerAccountListing.lines());
-              model = ModelGenerators.merge(allAccounts).into(model);
-            }
-            if (!masterLedger.lines().isEmpty()) {
-              model =
-                  ModelGenerators.merge(extractModelFrom(FileType.LEDGER_CLI, masterLedger.lines()))
-                      .into(model);
-            }
-            LOGGER.atInfo().log(
-                "Generated the initial model containing %s accounts and %s transactions.",
-                model.getAccountCount(), model.getTransactionCount());
-            return model;
-          });
+      Suppliers.memoize(() -> initialIndexedModelSupplier.get().toProto());
 
   private JcfEnvironmentImpl(PromptEvaluator promptEvaluator) {
     this.promptEvaluator = promptEvaluator;
@@ -223,10 +297,68 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     // Will initialize local @Parameter flags.
     context.lazyCommandLineParser.get().parse(args);
     context.applySettingsProfiles();
+    context.inferMissingCsvSettings();
     return context;
   }
 
-  private static JcfModel.Model extractModelFrom(FileType fileType, List<String> lines) {
+  /**
+   * Returns the initial model, loading it from the cache directory if it holds the model of the
+   * current inputs. Otherwise the model is built and saved to the cache directory, if any.
+   */
+  private IndexedModel loadOrBuildInitialModel() {
+    if (initialModelCacheDirPath.isEmpty()) {
+      return buildInitialModel();
+    }
+    InitialModelCache cache =
+        InitialModelCache.create(
+            Paths.get(initialModelCacheDirPath),
+            getInitialModelInputHash(),
+            this::buildInitialModel);
+    return rebuildInitialModelCache ? cache.rebuild() : cache.get();
+  }
+
+  private IndexedModel buildInitialModel() {
+    // Each input is added to the merger as soon as it's extracted so that only the merged records,
+    // and not every input model, have to be held at once.
+    ModelMerger merger = ModelMerger.create();
+    if (!gnuCashSqliteDbFilePath.isEmpty()) {
+      File file = new File(gnuCashSqliteDbFilePath);
+      if (file.exists() && file.isFile()) {
+        merger.add(SQLiteConnector.create(file).get());
+      } else {
+        LOGGER.atWarning().log(
+            "GNU Cash SQLite DB path did not refer to a file that exists. Path was: %s",
+            gnuCashSqliteDbFilePath);
+      }
+    }
+    // This is a custom format that I added early on instead of just writing a ledger CLI format
+    // importer. It's probably just useless cruft now but may as well keep it since it's not broken
+    // as far as I am aware.
+    if (!descToAccountTsv.isEmpty()) {
+      merger.add(
+          extractModelFrom(
+              FileType.TSV_TRANSACTION_DESCRIPTION_TO_ACCOUNT_NAME_MAPPING,
+              descToAccountTsv.lines()));
+    }
+    if (!ledgerAccountListing.isEmpty()) {
+      merger.add(extractModelFrom(FileType.LEDGER_ACCOUNT_LISTING, ledgerAccountListing.lines()));
+    }
+    if (!masterLedger.isEmpty()) {
+      merger.add(
+          masterLedgerSidecarFilePath.isEmpty()
+              ? extractModelFrom(FileType.LEDGER_CLI, masterLedger.lines())
+              : IncrementalLedgerImporter.create(
+                      masterLedger, Paths.get(masterLedgerSidecarFilePath))
+                  .get());
+    }
+    IndexedModel model = merger.merge();
+    LOGGER.atInfo().log(
+        "Generated the initial model containing %s accounts and %s transactions.",
+        model.getAllAccounts().size(), model.getTransactionCount());
+    return model;
+  }
+
+  private static JcfModel.Model extractModelFrom(FileType fileType, Iterable<String> lines) {
     switch (fileType) {
       case TSV_TRANSACTION_DESCRIPTION_TO_ACCOUNT_NAME_MAPPING:
         return TsvTransactionDescAccountMappingImporter.create(lines).get();
@@ -272,6 +404,10 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
           ignoredProfiles.add(profile.getName());
           continue;
         }
+        if (!profile.getCsvFileGlob().isEmpty()) {
+          csvFileProfiles.add(profile);
+          continue;
+        }
         applyProfile(profile);
       }
     }
@@ -283,10 +419,7 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
   private void applyProfile(SettingsProfile profile) {
     String profileName = profile.getName().isEmpty() ? "global" : profile.getName();
     if (!profile.getCsvFieldPositions().getPositionList().isEmpty()) {
-      csvFieldMapping =
-          ImmutableMap.copyOf(
-              FluentIterable.from(profile.getCsvFieldPositions().getPositionList())
-                  .transform((fp) -> Maps.immutableEntry(fp.getField(), fp.getColumnIndex())));
+      csvFieldMapping = fieldPositionsOf(profile);
       LOGGER.atInfo().log(
           "From profile '%s', using CSV field positions [%s]",
           profileName, Joiner.on(", ").withKeyValueSeparator(" -> ").join(csvFieldMapping));
@@ -308,6 +441,147 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     }
   }
 
+  /**
+   * Infers the CSV field positions and date format if neither the flags nor the settings profiles
+   * declared them, so that an import doesn't have to prompt for them.
+   */
+  private void inferMissingCsvSettings() {
+    if (inputCsv.isEmpty()) {
+      return;
+    }
+    SettingsProfile globalProfile = globalCsvProfile();
+    SettingsProfile profile = withInferredCsvSettings(inputCsv, globalProfile);
+    if (!profile.equals(globalProfile)) {
+      applyProfile(profile);
+    }
+  }
+
+  /** Lists the --transaction_csvs files and resolves the settings profile of each. */
+  private ImmutableMap<File, SettingsProfile> resolveInputCsvProfiles() {
+    if (inputCsvsPattern.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    ImmutableList<Path> files;
+    try {
+      files = listInputCsvFiles();
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not list the CSV files %s", inputCsvsPattern);
+      return ImmutableMap.of();
+    }
+    if (files.isEmpty()) {
+      LOGGER.atWarning().log("No CSV files matched %s", inputCsvsPattern);
+    }
+    SettingsProfile globalProfile = globalCsvProfile();
+    ImmutableMap.Builder<File, SettingsProfile> profilesByFile = ImmutableMap.builder();
+    for (Path file : files) {
+      SettingsProfile profile = globalProfile;
+      for (SettingsProfile fileProfile : csvFileProfiles) {
+        if (FileSystems.getDefault()
+            .getPathMatcher("glob:" + fileProfile.getCsvFileGlob())
+            .matches(file.getFileName())) {
+          profile = overlayProfile(globalProfile, fileProfile);
+          break;
+        }
+      }
+      profilesByFile.put(
+          file.toFile(), withInferredCsvSettings(LazyTextFile.of(file.toFile()), profile));
+    }
+    return profilesByFile.build();
+  }
+
+  /** Returns the CSV files in the --transaction_csvs directory, or that match its glob, sorted. */
+  private ImmutableList<Path> listInputCsvFiles() throws IOException {
+    Path path = Paths.get(inputCsvsPattern);
+    Path directory;
+    String glob;
+    if (Files.isDirectory(path)) {
+      directory = path;
+      glob = "*.{csv,CSV}";
+    } else {
+      directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+      glob = path.getFileName().toString();
+    }
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> matchingFiles = Files.newDirectoryStream(directory, glob)) {
+      for (Path file : matchingFiles) {
+        if (Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    }
+    Collections.sort(files);
+    return ImmutableList.copyOf(files);
+  }
+
+  /** Returns the CSV settings of the flags and the global settings profiles as a profile. */
+  private SettingsProfile globalCsvProfile() {
+    CsvFieldPositions.Builder positions = CsvFieldPositions.newBuilder();
+    csvFieldMapping.forEach(
+        (field, column) ->
+            positions.addPosition(
+                FieldPosition.newBuilder().setField(field).setColumnIndex(column)));
+    return SettingsProfile.newBuilder()
+        .setCsvFieldPositions(positions)
+        .setCsvDateFormatJava(dateFormat)
+        .setCsvAccountName(csvAccountName)
+        .setImportAccountNamePrefix(importAccountPrefix)
+        .build();
+  }
+
+  /** Returns the base profile with the settings that the other profile has replacing its own. */
+  private static SettingsProfile overlayProfile(SettingsProfile base, SettingsProfile profile) {
+    SettingsProfile.Builder overlaid = base.toBuilder().setName(profile.getName());
+    if (!profile.getCsvFieldPositions().getPositionList().isEmpty()) {
+      overlaid.setCsvFieldPositions(profile.getCsvFieldPositions());
+    }
+    if (!profile.getCsvDateFormatJava().isEmpty()) {
+      overlaid.setCsvDateFormatJava(profile.getCsvDateFormatJava());
+    }
+    if (!profile.getCsvAccountName().isEmpty() || !profile.getImportAccountNamePrefix().isEmpty()) {
+      overlaid
+          .setCsvAccountName(profile.getCsvAccountName())
+          .setImportAccountNamePrefix(profile.getImportAccountNamePrefix());
+    }
+    return overlaid.build();
+  }
+
+  /**
+   * Returns the profile with the CSV field positions and date format that it's missing inferred
+   * from the CSV, if they can be.
+   */
+  private static SettingsProfile withInferredCsvSettings(
+      LazyTextFile csv, SettingsProfile profile) {
+    ImmutableMap<DataField, Integer> positions = fieldPositionsOf(profile);
+    if (CsvTransactionListingImporter.isAcceptableFieldMappingSet(positions.keySet())
+        && !profile.getCsvDateFormatJava().isEmpty()) {
+      return profile;
+    }
+    Optional<SettingsProfile> inferredProfile;
+    try {
+      inferredProfile = CsvSchemaInference.create(csv.asCharSource()).infer(positions);
+    } catch (UncheckedIOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not infer the CSV settings of %s", csv);
+      return profile;
+    }
+    if (!inferredProfile.isPresent()) {
+      return profile;
+    }
+    SettingsProfile.Builder inferred = inferredProfile.get().toBuilder();
+    if (!profile.getCsvDateFormatJava().isEmpty()) {
+      inferred.setCsvDateFormatJava(profile.getCsvDateFormatJava());
+    }
+    LOGGER.atInfo().log(
+        "Inferred the settings of %s, which can be saved to a settings profile file:\n%s",
+        csv, TextFormat.printer().printToString(inferred));
+    return profile.toBuilder().clearCsvFieldPositions().mergeFrom(inferred.build()).build();
+  }
+
+  private static ImmutableMap<DataField, Integer> fieldPositionsOf(SettingsProfile profile) {
+    return ImmutableMap.copyOf(
+        FluentIterable.from(profile.getCsvFieldPositions().getPositionList())
+            .transform((fp) -> Maps.immutableEntry(fp.getField(), fp.getColumnIndex())));
+  }
+
   @Override
   public String getReportType() {
     return reportType;
@@ -318,6 +592,11 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     return initialModelSupplier.get();
   }
 
+  @Override
+  public IndexedModel getInitialIndexedModel() {
+    return initialIndexedModelSupplier.get();
+  }
+
   @Override
   public Optional<File> getDeclaredOutputFile() {
     return outputFile;
@@ -325,18 +604,13 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
 
   @Override
   public Function<String, Account> getImportAccountGenerator() {
-    if (!csvAccountName.equals(UNSET_FLAG)) {
-      return (unused) -> ModelGenerators.simpleAccount(csvAccountName);
-    }
-    if (!importAccountPrefix.equals(UNSET_FLAG)) {
-      return (identifier) -> ModelGenerators.simpleAccount(importAccountPrefix.concat(identifier));
-    }
-    return (unused) -> ModelGenerators.simpleAccount("Imbalance (Account not set)");
+    return CsvTransactionListingImporter.importAccountGenerator(
+        csvAccountName, importAccountPrefix);
   }
 
   @Override
   public Optional<DateTimeFormatter> getCsvDateFormat() {
-    if (getInputCsvLines().isEmpty()) {
+    if (inputCsv.isEmpty()) {
       return Optional.empty();
     }
     if (!dateFormat.isEmpty()) {
@@ -345,7 +619,7 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     return Optional.ofNullable(
             promptEvaluator.blockingGetResult(
                 DateTimeFormatPrompt.usingExamples(
-                    FluentIterable.from(getInputCsvLines())
+                    FluentIterable.from(inputCsv.lines())
                         .skip(1)
                         .limit(10)
                         .filter(Predicates.notNull())
@@ -369,8 +643,8 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
   }
 
   @Override
-  public ImmutableList<String> getInputCsvLines() {
-    return inputCsv.lines();
+  public LazyTextFile getInputCsv() {
+    return inputCsv;
   }
 
   @Override
@@ -378,6 +652,16 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     return csvFieldMapping;
   }
 
+  @Override
+  public ImmutableMap<File, SettingsProfile> getInputCsvProfiles() {
+    return inputCsvProfilesSupplier.get();
+  }
+
+  @Override
+  public int getCsvImportThreadCount() {
+    return csvImportThreadCount;
+  }
+
   @Override
   public boolean needsHelp() {
     return userWantsHelp
@@ -395,6 +679,68 @@ public class JcfEnvironmentImpl implements JcfEnvironment {
     lazyCommandLineParser.get().getUsageFormatter().usage(usageStringBuilder);
   }
 
+  @Override
+  public MatchScorer getMatchScorer() {
+    return matchScorer;
+  }
+
+  @Override
+  public boolean isFuzzyTokenMatchingEnabled() {
+    return fuzzyTokenMatching;
+  }
+
+  @Override
+  public Optional<File> getBatchReviewLedgerFile() {
+    return batchReviewLedgerFilePath.isEmpty()
+        ? Optional.empty()
+        : Optional.of(new File(batchReviewLedgerFilePath));
+  }
+
+  @Override
+  public double getAutoMatchThreshold() {
+    return autoMatchThreshold;
+  }
+
+  @Override
+  public Optional<File> getMatcherSnapshotFile() {
+    return matcherSnapshotFilePath.isEmpty()
+        ? Optional.empty()
+        : Optional.of(new File(matcherSnapshotFilePath));
+  }
+
+  @Override
+  public HashCode getInitialModelInputHash() {
+    return initialModelInputHashSupplier.get();
+  }
+
+  private HashCode hashInitialModelInputs() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    if (!gnuCashSqliteDbFilePath.isEmpty() && new File(gnuCashSqliteDbFilePath).isFile()) {
+      try {
+        hasher.putBytes(
+            com.google.common.io.Files.asByteSource(new File(gnuCashSqliteDbFilePath))
+                .hash(Hashing.sha256())
+                .asBytes());
+      } catch (IOException e) {
+        LOGGER.atWarning().withCause(e).log(
+            "Could not hash GNU Cash SQLite DB: %s", gnuCashSqliteDbFilePath);
+        // A random hash never matches a saved one, so nothing derived from the inputs is reused.
+        hasher.putLong(System.nanoTime());
+      }
+    }
+    for (LazyTextFile file :
+        ImmutableList.of(descToAccountTsv, ledgerAccountListing, masterLedger)) {
+      // Hash each file separately so that moving a line between them changes the hash.
+      try {
+        hasher.putBytes(file.asByteSource().hash(Hashing.sha256()).asBytes());
+      } catch (IOException e) {
+        LOGGER.atWarning().withCause(e).log("Could not hash file: %s", file);
+        hasher.putLong(System.nanoTime());
+      }
+    }
+    return hasher.hash();
+  }
+
   @Override
   public PromptEvaluator getPromptEvaluator() {
     return promptEvaluator;
@@ -1,12 +1,16 @@
 package net.brentwalther.jcf.environment;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
 import java.io.File;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 import java.util.function.Function;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
 import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.matcher.MatchScorer;
+import net.brentwalther.jcf.model.IndexedModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
 import net.brentwalther.jcf.prompt.PromptEvaluator;
@@ -16,6 +20,9 @@ public interface JcfEnvironment {
   /** Returns the initial imported model - a merge of all parse-able inputs. */
   Model getInitialModel();
 
+  /** Returns the initial imported model, indexed. Prefer this to indexing the initial model. */
+  IndexedModel getInitialIndexedModel();
+
   /** Returns the output file that the user declared, if any. The file might be created already. */
   Optional<File> getDeclaredOutputFile();
 
@@ -28,8 +35,8 @@ public interface JcfEnvironment {
   /** Returns the date format for the transactions in the input CSV file. */
   Optional<DateTimeFormatter> getCsvDateFormat();
 
-  /** Returns the declared CSV file as a list of it's lines, if any. */
-  ImmutableList<String> getInputCsvLines();
+  /** Returns the declared CSV file, which is empty if none was declared. */
+  LazyTextFile getInputCsv();
 
   /**
    * Returns the mapping from DataField type to column number (in the CSV input). It is up to the
@@ -37,6 +44,15 @@ public interface JcfEnvironment {
    */
   ImmutableMap<DataField, Integer> getCsvFieldMappings();
 
+  /**
+   * Returns the settings profile of each of the declared CSV files that are imported together, in
+   * file name order. It's empty if no directory or glob of CSV files was declared.
+   */
+  ImmutableMap<File, SettingsProfile> getInputCsvProfiles();
+
+  /** Returns the maximum number of CSV files that should be imported at once. */
+  int getCsvImportThreadCount();
+
   /**
    * Returns true if the environment is in a bad state and wants to print help text via {@link
    * #printHelpTextTo(StringBuilder)}.
@@ -57,4 +73,31 @@ public interface JcfEnvironment {
    * empty string is returned.
    */
   String getReportType();
+
+  /** Returns the scorer that should rank the matches for imported transactions. */
+  MatchScorer getMatchScorer();
+
+  /** Returns whether unknown description tokens should be matched to similar known tokens. */
+  boolean isFuzzyTokenMatchingEnabled();
+
+  /**
+   * Returns the file that transactions which couldn't be matched automatically should be written
+   * to, if any. If present, transactions are matched without prompting.
+   */
+  Optional<File> getBatchReviewLedgerFile();
+
+  /**
+   * Returns the minimum share of the total account score that a transaction's top account needs to
+   * be matched without prompting.
+   */
+  double getAutoMatchThreshold();
+
+  /** Returns the file that the split matcher's index should be saved to, if any. */
+  Optional<File> getMatcherSnapshotFile();
+
+  /**
+   * Returns a hash of the contents of every input that the initial model is generated from. It can
+   * be computed without generating the initial model.
+   */
+  HashCode getInitialModelInputHash();
 }
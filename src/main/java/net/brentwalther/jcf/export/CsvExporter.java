@@ -9,8 +9,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import net.brentwalther.jcf.model.IndexedModel;
@@ -27,36 +25,31 @@ public class CsvExporter {
   public static void start(
       IndexedModel indexedModel, File csvFile, Iterable<ExportFilter> filters) {
     try {
+      // Visiting the transactions in post date order keeps the export items sorted by date.
       List<ExportItem> exportItems = new ArrayList<>();
-      for (Split split : indexedModel.getAllSplits()) {
-        Optional<Account> matchingAccount = indexedModel.getAccountById(split.getAccountId());
-        if (!matchingAccount.isPresent()) {
-          LOGGER.atWarning().log(
-              "Skipping split that referred to a non existing account with ID: %s",
-              split.getAccountId());
-          continue;
+      int visitedSplitCount = 0;
+      for (Transaction transaction : indexedModel.getTransactionsInPostDateOrder()) {
+        for (Split split : indexedModel.splitsForTransaction(transaction)) {
+          visitedSplitCount++;
+          Optional<Account> matchingAccount = indexedModel.getAccountById(split.getAccountId());
+          if (!matchingAccount.isPresent()) {
+            LOGGER.atWarning().log(
+                "Skipping split that referred to a non existing account with ID: %s",
+                split.getAccountId());
+            continue;
+          }
+          ExportItem exportItem = ExportItem.create(matchingAccount.get(), transaction, split);
+          if (Iterables.any(filters, (filter) -> filter.shouldExclude(exportItem))) {
+            continue;
+          }
+          exportItems.add(exportItem);
         }
-        Optional<Transaction> matchingTransaction =
-            indexedModel.getTransactionById(split.getTransactionId());
-        if (!matchingTransaction.isPresent()) {
-          LOGGER.atWarning().log(
-              "Skipping split that referred to a non existing transaction with ID: %s",
-              split.getTransactionId());
-          continue;
-        }
-        ExportItem exportItem =
-            ExportItem.create(matchingAccount.get(), matchingTransaction.get(), split);
-        if (Iterables.any(filters, (filter) -> filter.shouldExclude(exportItem))) {
-          continue;
-        }
-        exportItems.add(exportItem);
       }
-
-      // Sort them by their post date.
-      Collections.sort(
-          exportItems,
-          Comparator.comparingLong(
-              (exportItem) -> exportItem.transaction().getPostDateEpochSecond()));
+      int orphanedSplitCount = indexedModel.getAllSplits().size() - visitedSplitCount;
+      if (orphanedSplitCount > 0) {
+        LOGGER.atWarning().log(
+            "Skipping %s splits that referred to non existing transactions.", orphanedSplitCount);
+      }
 
       PrintWriter printWriter = new PrintWriter(csvFile);
       Joiner joiner = Joiner.on(",");
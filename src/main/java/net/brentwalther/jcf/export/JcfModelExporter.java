@@ -1,22 +1,21 @@
 package net.brentwalther.jcf.export;
 
 import com.google.common.flogger.FluentLogger;
-import com.google.protobuf.CodedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.BlockModelFile;
+import net.brentwalther.jcf.model.IndexedModel;
 
-/** A screen to export a model to the JCF proto format. */
+/** A screen to export a model to the JCF {@link BlockModelFile} format. */
 public class JcfModelExporter {
   private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
 
-  public static void start(Model model, File file) {
+  public static void start(IndexedModel model, File file) {
     try {
-      model.writeTo(CodedOutputStream.newInstance(new FileOutputStream(file)));
+      BlockModelFile.write(model, file.toPath());
     } catch (IOException e) {
       LOGGER.atSevere().withCause(e).log(
-          "Failed to export JCF model proto to file %s", file.getAbsolutePath());
+          "Failed to export JCF model to file %s", file.getAbsolutePath());
     }
   }
 }
@@ -14,7 +14,6 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -83,9 +82,7 @@ public class LedgerExporter {
               IMBALANCE_ACCOUNT_NAME.length());
 
       try (PrintWriter writer = new PrintWriter(outputStream)) {
-        for (Transaction transaction :
-            Ordering.from(Comparator.comparingLong(Transaction::getPostDateEpochSecond))
-                .immutableSortedCopy(indexedModel.getAllTransactions())) {
+        for (Transaction transaction : indexedModel.getTransactionsInPostDateOrder()) {
           // TODO: We assume here that all transactions are in a 'cleared' state and denote that
           //   with an asterisk. If we add transaction clear status, this could also be an
           //   exclamation point. See:
@@ -97,10 +94,7 @@ public class LedgerExporter {
 
           for (Split split :
               FluentIterable.from(indexedModel.splitsForTransaction(transaction))
-                  .toSortedList(
-                      Ordering.natural()
-                          .reverse()
-                          .onResultOf(ModelTransforms::bigDecimalAmountForSplit))) {
+                  .toSortedList(Ordering.from(ModelTransforms::compareAmounts).reverse())) {
             writer.println(
                 "  "
                     + padString(
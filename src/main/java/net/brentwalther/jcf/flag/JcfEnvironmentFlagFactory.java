@@ -8,7 +8,10 @@ public class JcfEnvironmentFlagFactory implements IStringConverterFactory {
   public static final IStringConverterFactory INSTANCE = new JcfEnvironmentFlagFactory();
   private static final ImmutableMap<Class, Class<? extends IStringConverter<?>>> CONVERTERS =
       ImmutableMap.of(
-          TextFileToLinesConverter.EagerlyLoadedTextFile.class, TextFileToLinesConverter.class);
+          TextFileToLinesConverter.EagerlyLoadedTextFile.class,
+          TextFileToLinesConverter.class,
+          LazyTextFile.class,
+          LazyTextFileConverter.class);
 
   /** Do not instantiate. Use {@link instance}. */
   private JcfEnvironmentFlagFactory() {}
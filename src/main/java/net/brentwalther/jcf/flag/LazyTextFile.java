@@ -0,0 +1,208 @@
+package net.brentwalther.jcf.flag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteSource;
+import com.google.common.io.CharSource;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A UTF-8 text file that is read a line at a time each time its lines are iterated, unlike an
+ * {@link TextFileToLinesConverter.EagerlyLoadedTextFile}. The file is memory-mapped a region at a
+ * time, so only the current line is ever decoded onto the heap and peak memory doesn't depend on
+ * the size of the file.
+ *
+ * <p>Lines end at a line feed, a carriage return or both, as with {@link
+ * java.nio.file.Files#readAllLines}. The file should not change while it's being read.
+ */
+public final class LazyTextFile {
+
+  /** The most bytes mapped at once. Mappings are released when they're garbage collected. */
+  private static final int DEFAULT_REGION_SIZE = 64 << 20;
+
+  public static final LazyTextFile EMPTY = new LazyTextFile(null, 0, DEFAULT_REGION_SIZE);
+
+  private final File file;
+  private final long size;
+  private final int regionSize;
+
+  private LazyTextFile(File file, long size, int regionSize) {
+    this.file = file;
+    this.size = size;
+    this.regionSize = regionSize;
+  }
+
+  public static LazyTextFile of(File file) {
+    return of(file, DEFAULT_REGION_SIZE);
+  }
+
+  static LazyTextFile of(File file, int regionSize) {
+    checkArgument(regionSize > 0, "The region size must be positive.");
+    return new LazyTextFile(file, file.length(), regionSize);
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the size of the file in bytes when it was opened. */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the lines of the file. Every iteration reads the file again.
+   *
+   * @throws UncheckedIOException from the iterator if the file can't be read
+   */
+  public Iterable<String> lines() {
+    return lines(0, size);
+  }
+
+  /**
+   * Returns the lines from the start byte offset, inclusive, to the end, exclusive. The start
+   * should be the start of a line, such as an offset returned by {@link #endOfLastBlankLine}.
+   */
+  public Iterable<String> lines(long start, long end) {
+    checkArgument(
+        0 <= start && start <= end && end <= size, "[%s, %s) is out of bounds", start, end);
+    return start == end ? Arrays.asList() : () -> new LineIterator(new ByteCursor(start, end));
+  }
+
+  /**
+   * Returns the byte offset just after the last blank line that starts at or after the offset, or
+   * the offset itself if there's no blank line after it. A blank line is one that has only
+   * whitespace and ends with a line terminator.
+   */
+  public long endOfLastBlankLine(long start) {
+    checkArgument(0 <= start && start <= size, "%s is out of bounds", start);
+    ByteCursor cursor = new ByteCursor(start, size);
+    long end = start;
+    boolean isBlank = true;
+    while (cursor.hasNext()) {
+      byte b = cursor.next();
+      if (b == '\n' || b == '\r') {
+        if (b == '\r' && cursor.hasNext() && cursor.peek() == '\n') {
+          cursor.next();
+        }
+        if (isBlank) {
+          end = cursor.position();
+        }
+        isBlank = true;
+      } else if (b < 0 || b > ' ') {
+        // Like String#trim, everything up to and including a space is whitespace. Bytes of
+        // multi-byte characters are negative.
+        isBlank = false;
+      }
+    }
+    return end;
+  }
+
+  /** Returns the raw bytes of the file, such as for hashing without decoding it. */
+  public ByteSource asByteSource() {
+    return isEmpty() ? ByteSource.empty() : Files.asByteSource(file).slice(0, size);
+  }
+
+  /** Returns the text of the file, such as for parsing formats whose records span lines. */
+  public CharSource asCharSource() {
+    return asByteSource().asCharSource(UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return isEmpty() ? "Empty file." : file.toString();
+  }
+
+  /** Reads the bytes of a range of the file, mapping a region of it at a time. */
+  private class ByteCursor {
+    private final long end;
+    private MappedByteBuffer region = null;
+    private long regionEnd;
+
+    private ByteCursor(long start, long end) {
+      this.regionEnd = start;
+      this.end = end;
+    }
+
+    private boolean hasNext() {
+      return (region != null && region.hasRemaining()) || regionEnd < end;
+    }
+
+    private byte next() {
+      ensureRegion();
+      return region.get();
+    }
+
+    private byte peek() {
+      ensureRegion();
+      return region.get(region.position());
+    }
+
+    /** Returns the offset of the next byte in the file. */
+    private long position() {
+      return region == null ? regionEnd : regionEnd - region.remaining();
+    }
+
+    private void ensureRegion() {
+      if (region == null || !region.hasRemaining()) {
+        region = map(regionEnd, (int) Math.min(regionSize, end - regionEnd));
+        regionEnd += region.capacity();
+      }
+    }
+
+    private MappedByteBuffer map(long position, int length) {
+      // The mapping stays valid after the channel is closed.
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        return channel.map(MapMode.READ_ONLY, position, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not map " + file, e);
+      }
+    }
+  }
+
+  private static class LineIterator extends AbstractIterator<String> {
+    private final ByteCursor cursor;
+    private byte[] line = new byte[256];
+    private int lineLength = 0;
+
+    private LineIterator(ByteCursor cursor) {
+      this.cursor = cursor;
+    }
+
+    @Override
+    protected String computeNext() {
+      while (cursor.hasNext()) {
+        byte b = cursor.next();
+        if (b == '\n' || b == '\r') {
+          if (b == '\r' && cursor.hasNext() && cursor.peek() == '\n') {
+            cursor.next();
+          }
+          return takeLine();
+        }
+        if (lineLength == line.length) {
+          line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+      }
+      // Like Files#readAllLines, the last line doesn't need a line terminator but there's no empty
+      // line after one.
+      return lineLength > 0 ? takeLine() : endOfData();
+    }
+
+    private String takeLine() {
+      String decoded = new String(line, 0, lineLength, UTF_8);
+      lineLength = 0;
+      return decoded;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package net.brentwalther.jcf.flag;
+
+import com.beust.jcommander.IStringConverter;
+import java.io.File;
+
+public class LazyTextFileConverter implements IStringConverter<LazyTextFile> {
+
+  @Override
+  public LazyTextFile convert(String fileName) {
+    File file = new File(fileName);
+    return file.isFile() ? LazyTextFile.of(file) : LazyTextFile.EMPTY;
+  }
+}
@@ -0,0 +1,20 @@
+package net.brentwalther.jcf.flag;
+
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Joiner;
+import net.brentwalther.jcf.matcher.MatchScorer;
+import net.brentwalther.jcf.matcher.MatchScorers;
+
+public class MatchScorerFlag implements IStringConverter<MatchScorer> {
+  @Override
+  public MatchScorer convert(String name) {
+    return MatchScorers.forName(name)
+        .orElseThrow(
+            () ->
+                new ParameterException(
+                    String.format(
+                        "Unknown match scorer '%s'. Must be one of: %s",
+                        name, Joiner.on(", ").join(MatchScorers.names()))));
+  }
+}
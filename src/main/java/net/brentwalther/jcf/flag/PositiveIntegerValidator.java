@@ -0,0 +1,22 @@
+package net.brentwalther.jcf.flag;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.ParameterException;
+
+/** Rejects flag values that aren't positive integers, such as a count of threads. */
+public class PositiveIntegerValidator implements IParameterValidator {
+  @Override
+  public void validate(String name, String value) {
+    int parsedValue;
+    try {
+      parsedValue = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ParameterException(
+          String.format("%s must be a positive integer but was '%s'.", name, value));
+    }
+    if (parsedValue <= 0) {
+      throw new ParameterException(
+          String.format("%s must be a positive integer but was %s.", name, parsedValue));
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.brentwalther.jcf.matcher.SplitMatcher.AccountScore;
+import net.brentwalther.jcf.matcher.SplitMatcher.Match;
+import net.brentwalther.jcf.matcher.SplitMatcher.MatchData;
+import net.brentwalther.jcf.matcher.SplitMatcher.ShouldExcludePredicate;
+import net.brentwalther.jcf.model.AmountSum;
+import net.brentwalther.jcf.model.IndexedModel;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import net.brentwalther.jcf.model.ModelGenerators;
+import net.brentwalther.jcf.string.Formatter;
+
+/**
+ * Matches imported transactions to accounts without prompting so that imports can run unattended.
+ *
+ * <p>Every transaction is scored in parallel against the splits the matcher has already linked. A
+ * transaction is split with its top account if that account's share of the total score of all the
+ * matching accounts is at least the threshold and one of its splits matched at least {@link
+ * #MINIMUM_MATCHED_WEIGHT_SHARE} of the description's token weight, so that a lone common token
+ * isn't enough. Everything else is set aside for review, including probable duplicates of linked
+ * transactions, whose descriptions note when the transactions they duplicate were posted. Unlike
+ * interactive matching, the new splits are not linked to the matcher, so the result doesn't depend
+ * on the order of the transactions.
+ */
+public final class BatchMatcher {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+
+  /**
+   * The minimum share of a transaction's token weight that one of the top account's splits must
+   * match for the transaction to be matched automatically, whatever the threshold.
+   */
+  static final double MINIMUM_MATCHED_WEIGHT_SHARE = 0.5;
+
+  /** The most dates of duplicated transactions noted in the description of a probable duplicate. */
+  private static final int MAX_DUPLICATE_DATES_NOTED = 5;
+
+  /**
+   * Matches the transactions of the model. The threshold is the minimum share of the total account
+   * score that the top account needs to be matched automatically, between 0 and 1.
+   */
+  public static BatchResult match(
+      SplitMatcher splitMatcher, IndexedModel modelToMatch, double autoMatchThreshold) {
+    checkArgument(
+        autoMatchThreshold > 0 && autoMatchThreshold <= 1,
+        "The auto match threshold must be in (0, 1] but was %s",
+        autoMatchThreshold);
+    Map<String, Account> allAccountsById = new HashMap<>(splitMatcher.knownAccountsById());
+    allAccountsById.putAll(modelToMatch.immutableAccountsByIdMap());
+    ImmutableMap<String, Account> accountsById = ImmutableMap.copyOf(allAccountsById);
+
+    List<Decision> decisions =
+        modelToMatch.getAllTransactions().asList().parallelStream()
+            .map(
+                transaction ->
+                    decide(
+                        splitMatcher,
+                        accountsById,
+                        transaction,
+                        modelToMatch.splitsForTransaction(transaction),
+                        autoMatchThreshold))
+            .collect(toList());
+
+    List<Transaction> autoMatchedTransactions = new ArrayList<>();
+    List<Split> autoMatchedSplits = new ArrayList<>();
+    List<Transaction> transactionsToReview = new ArrayList<>();
+    List<Split> splitsToReview = new ArrayList<>();
+    int probableDuplicateCount = 0;
+    for (Decision decision : decisions) {
+      switch (decision.outcome()) {
+        case AUTO_MATCHED:
+          autoMatchedTransactions.add(decision.transaction());
+          autoMatchedSplits.addAll(decision.splits());
+          break;
+        case PROBABLE_DUPLICATE:
+          probableDuplicateCount++;
+          transactionsToReview.add(decision.transaction());
+          splitsToReview.addAll(decision.splits());
+          break;
+        case NEEDS_REVIEW:
+          transactionsToReview.add(decision.transaction());
+          splitsToReview.addAll(decision.splits());
+          break;
+      }
+    }
+    LOGGER.atInfo().log(
+        "Matched %s transactions automatically and %s need review, %s of them probable duplicates.",
+        autoMatchedTransactions.size(), transactionsToReview.size(), probableDuplicateCount);
+    return BatchResult.create(
+        ModelGenerators.create(accountsById.values(), autoMatchedTransactions, autoMatchedSplits),
+        ModelGenerators.create(accountsById.values(), transactionsToReview, splitsToReview),
+        probableDuplicateCount);
+  }
+
+  private static Decision decide(
+      SplitMatcher splitMatcher,
+      ImmutableMap<String, Account> accountsById,
+      Transaction transaction,
+      ImmutableList<Split> splitsForTransaction,
+      double autoMatchThreshold) {
+    Optional<Match> probableDuplicate =
+        splitMatcher.getProbableDuplicate(transaction, splitsForTransaction);
+    if (probableDuplicate.isPresent()) {
+      return Decision.create(
+          Outcome.PROBABLE_DUPLICATE,
+          withDuplicateDatesNoted(transaction, probableDuplicate.get()),
+          splitsForTransaction);
+    }
+    ImmutableList<Account> accountsOfExistingSplits =
+        FluentIterable.from(splitsForTransaction)
+            .transform(split -> accountsById.get(split.getAccountId()))
+            .filter(account -> account != null)
+            .toList();
+    ImmutableList<AccountScore> accountScores =
+        splitMatcher.getTopAccounts(
+            transaction,
+            splitMatcher.knownAccountsById().size(),
+            ShouldExcludePredicate.excludingRelativesOf(accountsOfExistingSplits));
+    double totalScore = accountScores.stream().mapToDouble(AccountScore::score).sum();
+    if (accountScores.isEmpty()
+        || totalScore <= 0
+        || accountScores.get(0).score() / totalScore < autoMatchThreshold
+        || accountScores.get(0).bestMatchedWeightShare() < MINIMUM_MATCHED_WEIGHT_SHARE) {
+      return Decision.create(Outcome.NEEDS_REVIEW, transaction, splitsForTransaction);
+    }
+    Split newSplit =
+        ModelGenerators.splitBuilderWithAmount(offsettingAmountOf(splitsForTransaction))
+            .setAccountId(accountScores.get(0).account().getId())
+            .setTransactionId(transaction.getId())
+            .build();
+    return Decision.create(
+        Outcome.AUTO_MATCHED,
+        transaction,
+        ImmutableList.<Split>builder().addAll(splitsForTransaction).add(newSplit).build());
+  }
+
+  /** Returns the transaction with the dates of the transactions it probably duplicates noted. */
+  private static Transaction withDuplicateDatesNoted(
+      Transaction transaction, Match probableDuplicate) {
+    String dates =
+        Joiner.on(", ")
+            .join(
+                FluentIterable.from(probableDuplicate.matches())
+                    .transform(MatchData::transaction)
+                    .transform(t -> Instant.ofEpochSecond(t.getPostDateEpochSecond()))
+                    .transform(Formatter::ledgerDate)
+                    .limit(MAX_DUPLICATE_DATES_NOTED));
+    return transaction.toBuilder()
+        .setDescription(
+            transaction.getDescription() + " (probable duplicate of transactions on " + dates + ")")
+        .build();
+  }
+
+  /** Returns the negation of the sum of the split amounts. */
+  private static BigDecimal offsettingAmountOf(List<Split> splits) {
+    return AmountSum.of(splits).value().negate();
+  }
+
+  private BatchMatcher() {
+    /* do not instantiate. */
+  }
+
+  enum Outcome {
+    AUTO_MATCHED,
+    NEEDS_REVIEW,
+    PROBABLE_DUPLICATE,
+  }
+
+  @AutoValue
+  abstract static class Decision {
+    static Decision create(Outcome outcome, Transaction transaction, ImmutableList<Split> splits) {
+      return new AutoValue_BatchMatcher_Decision(outcome, transaction, splits);
+    }
+
+    abstract Outcome outcome();
+
+    abstract Transaction transaction();
+
+    abstract ImmutableList<Split> splits();
+  }
+
+  @AutoValue
+  public abstract static class BatchResult {
+    static BatchResult create(Model autoMatched, Model needsReview, int probableDuplicateCount) {
+      return new AutoValue_BatchMatcher_BatchResult(
+          autoMatched, needsReview, probableDuplicateCount);
+    }
+
+    /** The transactions that were split with their top account. */
+    public abstract Model autoMatched();
+
+    /**
+     * The transactions whose top account wasn't confident enough or that are probable duplicates of
+     * linked ones, with their original splits.
+     */
+    public abstract Model needsReview();
+
+    /** The number of transactions in review that are probable duplicates of linked ones. */
+    public abstract int probableDuplicateCount();
+  }
+}
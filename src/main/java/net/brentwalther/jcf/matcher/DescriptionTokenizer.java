@@ -0,0 +1,150 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+
+/**
+ * Splits transaction descriptions into tokens in a single pass over their characters. The tokens
+ * are the same as those produced by removing every ".com" (case insensitive), replacing every
+ * character that isn't an ASCII letter or digit with a space, replacing every run of 4 to 25
+ * digits with a space and then splitting on spaces.
+ *
+ * <p>Rather than creating a string per token, the tokenizer copies the description into a reusable
+ * buffer and records the span of each token within it. Instances are not thread-safe and the spans
+ * are only valid until the next call to {@link #tokenize(CharSequence)}.
+ */
+final class DescriptionTokenizer {
+
+  /** The shortest run of digits that is removed, e.g. a card or reference number. */
+  private static final int MIN_REMOVED_DIGIT_RUN = 4;
+  /** The longest run of digits that is removed at once. Longer runs are removed in chunks. */
+  private static final int MAX_REMOVED_DIGIT_RUN = 25;
+
+  private char[] buffer = new char[64];
+  private int[] tokenStarts = new int[8];
+  private int[] tokenEnds = new int[8];
+  private int tokenCount = 0;
+
+  /** Returns the tokens of the description as strings. */
+  static ImmutableList<String> tokensOf(CharSequence description) {
+    DescriptionTokenizer tokenizer = new DescriptionTokenizer();
+    tokenizer.tokenize(description);
+    ImmutableList.Builder<String> tokens =
+        ImmutableList.builderWithExpectedSize(tokenizer.tokenCount());
+    for (int i = 0; i < tokenizer.tokenCount(); i++) {
+      tokens.add(
+          new String(
+              tokenizer.buffer(),
+              tokenizer.tokenStart(i),
+              tokenizer.tokenEnd(i) - tokenizer.tokenStart(i)));
+    }
+    return tokens.build();
+  }
+
+  /** Tokenizes the description, replacing the tokens from any previous call. */
+  void tokenize(CharSequence description) {
+    tokenCount = 0;
+    int length = description.length();
+    if (buffer.length < length) {
+      buffer = new char[Math.max(length, buffer.length * 2)];
+    }
+    // Letters and digits are copied to the buffer as a word until any other character is found.
+    // Since ".com" is skipped over, the characters on either side of it can join into one word.
+    int size = 0;
+    int wordStart = 0;
+    int i = 0;
+    while (i < length) {
+      char c = description.charAt(i);
+      if (c == '.' && isDotCom(description, i)) {
+        i += 4;
+        continue;
+      }
+      i++;
+      if (isAsciiLetterOrDigit(c)) {
+        buffer[size++] = c;
+      } else {
+        addTokensOfWord(wordStart, size);
+        wordStart = size;
+      }
+    }
+    addTokensOfWord(wordStart, size);
+  }
+
+  /** Returns the buffer that holds the characters of the tokens. */
+  char[] buffer() {
+    return buffer;
+  }
+
+  /** Returns the number of tokens found by the last call to {@link #tokenize(CharSequence)}. */
+  int tokenCount() {
+    return tokenCount;
+  }
+
+  /** Returns the index in the buffer of the first character of the token. */
+  int tokenStart(int token) {
+    return tokenStarts[token];
+  }
+
+  /** Returns the index in the buffer after the last character of the token. */
+  int tokenEnd(int token) {
+    return tokenEnds[token];
+  }
+
+  /**
+   * Adds the tokens of the word in [start, end) of the buffer. Runs of digits in the word are
+   * removed in chunks of up to 25 for as long as at least 4 digits remain, splitting the word. The
+   * short tail of a long run is kept and joins the characters after it.
+   */
+  private void addTokensOfWord(int start, int end) {
+    int tokenStart = start;
+    int i = start;
+    while (i < end) {
+      if (!isAsciiDigit(buffer[i])) {
+        i++;
+        continue;
+      }
+      int runEnd = i + 1;
+      while (runEnd < end && isAsciiDigit(buffer[runEnd])) {
+        runEnd++;
+      }
+      int remaining = runEnd - i;
+      if (remaining >= MIN_REMOVED_DIGIT_RUN) {
+        while (remaining >= MIN_REMOVED_DIGIT_RUN) {
+          remaining -= Math.min(remaining, MAX_REMOVED_DIGIT_RUN);
+        }
+        addToken(tokenStart, i);
+        tokenStart = runEnd - remaining;
+      }
+      i = runEnd;
+    }
+    addToken(tokenStart, end);
+  }
+
+  private void addToken(int start, int end) {
+    if (end <= start) {
+      return;
+    }
+    if (tokenCount == tokenStarts.length) {
+      tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+      tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+    }
+    tokenStarts[tokenCount] = start;
+    tokenEnds[tokenCount] = end;
+    tokenCount++;
+  }
+
+  private static boolean isDotCom(CharSequence s, int index) {
+    return index + 3 < s.length()
+        && (s.charAt(index + 1) | 0x20) == 'c'
+        && (s.charAt(index + 2) | 0x20) == 'o'
+        && (s.charAt(index + 3) | 0x20) == 'm';
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return isAsciiDigit(c) || ((c | 0x20) >= 'a' && (c | 0x20) <= 'z');
+  }
+
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
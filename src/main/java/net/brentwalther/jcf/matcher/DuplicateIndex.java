@@ -0,0 +1,114 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.ModelTransforms;
+
+/**
+ * An index of splits keyed by their account and amount (in cents). The splits under each key are
+ * kept sorted by the post date of their transaction so that finding the probable duplicates of a
+ * split is a hash lookup followed by a range query over the post dates.
+ */
+final class DuplicateIndex {
+
+  private final Map<Key, DatedSplits> splitsByAccountAndAmount = new HashMap<>();
+
+  /** Adds the split, which belongs to a transaction posted at the specified time. */
+  void add(Split split, long postDateEpochSecond) {
+    if (split.getValueDenominator() == 0) {
+      // There's no amount to key this split on.
+      return;
+    }
+    splitsByAccountAndAmount
+        .computeIfAbsent(Key.of(split), (unused) -> new DatedSplits())
+        .insert(postDateEpochSecond, split);
+  }
+
+  /**
+   * Returns the indexed splits with the same account and amount as the specified split whose post
+   * date is strictly less than {@code windowSeconds} away from the specified post date. The splits
+   * are ordered by their post date.
+   */
+  ImmutableList<Split> find(Split split, long postDateEpochSecond, long windowSeconds) {
+    if (split.getValueDenominator() == 0) {
+      return ImmutableList.of();
+    }
+    DatedSplits candidates = splitsByAccountAndAmount.get(Key.of(split));
+    if (candidates == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Split> duplicates = ImmutableList.builder();
+    int end = candidates.firstIndexAtOrAfter(postDateEpochSecond + windowSeconds);
+    for (int i = candidates.firstIndexAtOrAfter(postDateEpochSecond - windowSeconds + 1);
+        i < end;
+        i++) {
+      // Keys are bucketed by whole cents, so confirm that the amounts are exactly equal.
+      if (ModelTransforms.compareAmounts(split, candidates.splits[i]) == 0) {
+        duplicates.add(candidates.splits[i]);
+      }
+    }
+    return duplicates.build();
+  }
+
+  /** Returns the amount of the split in cents, rounded toward negative infinity. */
+  private static long floorCents(Split split) {
+    long numerator = split.getValueNumerator();
+    long denominator = split.getValueDenominator();
+    if (denominator < 0) {
+      numerator = -numerator;
+      denominator = -denominator;
+    }
+    return Math.floorDiv(numerator * 100, denominator);
+  }
+
+  @AutoValue
+  abstract static class Key {
+    static Key of(Split split) {
+      return new AutoValue_DuplicateIndex_Key(split.getAccountId(), floorCents(split));
+    }
+
+    abstract String accountId();
+
+    abstract long amountInCents();
+  }
+
+  /** A list of splits sorted by their post date, backed by parallel arrays. */
+  private static class DatedSplits {
+    private long[] postDates = new long[2];
+    private Split[] splits = new Split[2];
+    private int size = 0;
+
+    void insert(long postDateEpochSecond, Split split) {
+      if (size == postDates.length) {
+        postDates = Arrays.copyOf(postDates, size * 2);
+        splits = Arrays.copyOf(splits, size * 2);
+      }
+      // Splits are usually linked in chronological order so this is almost always an append.
+      int index = firstIndexAtOrAfter(postDateEpochSecond + 1);
+      System.arraycopy(postDates, index, postDates, index + 1, size - index);
+      System.arraycopy(splits, index, splits, index + 1, size - index);
+      postDates[index] = postDateEpochSecond;
+      splits[index] = split;
+      size++;
+    }
+
+    /** Returns the index of the first split posted at or after the specified time. */
+    int firstIndexAtOrAfter(long epochSecond) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (postDates[mid] < epochSecond) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
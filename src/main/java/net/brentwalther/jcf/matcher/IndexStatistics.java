@@ -0,0 +1,22 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.auto.value.AutoValue;
+
+/** Corpus-wide statistics about the splits linked into a {@link SplitMatcher}. */
+@AutoValue
+public abstract class IndexStatistics {
+
+  public static IndexStatistics create(int splitCount, long totalDocumentLength) {
+    return new AutoValue_IndexStatistics(splitCount, totalDocumentLength);
+  }
+
+  /** The number of linked splits. Each split's transaction description is one document. */
+  public abstract int splitCount();
+
+  /** The sum of the number of distinct tokens in each linked split's description. */
+  public abstract long totalDocumentLength();
+
+  public double averageDocumentLength() {
+    return splitCount() == 0 ? 0 : 1.0 * totalDocumentLength() / splitCount();
+  }
+}
@@ -0,0 +1,27 @@
+package net.brentwalther.jcf.matcher;
+
+/**
+ * Computes the confidence that a linked split matches a transaction being matched, based on the
+ * description tokens they have in common. Scorers only get to see statistics that the {@link
+ * SplitMatcher} maintains as splits are linked, so scoring never needs to rescan the index.
+ *
+ * <p>See {@link MatchScorers} for the available implementations.
+ */
+public interface MatchScorer {
+
+  /**
+   * Returns the weight of a query token that occurs in the descriptions of {@code
+   * documentFrequency} linked splits.
+   */
+  double tokenWeight(int documentFrequency, IndexStatistics statistics);
+
+  /**
+   * Returns the confidence that a linked split is a match.
+   *
+   * @param matchedWeight the summed weights of the query tokens found in the split's description
+   * @param queryWeight the summed weights of all of the query tokens
+   * @param documentLength the number of distinct tokens in the split's description
+   */
+  double confidence(
+      double matchedWeight, double queryWeight, int documentLength, IndexStatistics statistics);
+}
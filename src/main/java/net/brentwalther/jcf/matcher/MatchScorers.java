@@ -0,0 +1,108 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Optional;
+
+/** The {@link MatchScorer} implementations. */
+public final class MatchScorers {
+
+  /** The term frequency saturation parameter recommended by the BM25 literature. */
+  private static final double DEFAULT_BM25_K1 = 1.2;
+  /** The document length normalization parameter recommended by the BM25 literature. */
+  private static final double DEFAULT_BM25_B = 0.75;
+
+  private static final MatchScorer TOKEN_COUNT =
+      new MatchScorer() {
+        @Override
+        public double tokenWeight(int documentFrequency, IndexStatistics statistics) {
+          return 1;
+        }
+
+        @Override
+        public double confidence(
+            double matchedWeight,
+            double queryWeight,
+            int documentLength,
+            IndexStatistics statistics) {
+          return matchedWeight / statistics.splitCount();
+        }
+
+        @Override
+        public String toString() {
+          return "token_count";
+        }
+      };
+
+  private static final ImmutableMap<String, MatchScorer> SCORERS_BY_NAME =
+      ImmutableMap.of(TOKEN_COUNT.toString(), TOKEN_COUNT, "bm25", bm25());
+
+  /**
+   * Returns the original scorer, which counts the query tokens in a split's description and divides
+   * by the number of linked splits. Common tokens count as much as rare ones.
+   */
+  public static MatchScorer tokenCount() {
+    return TOKEN_COUNT;
+  }
+
+  /** Returns an Okapi BM25 scorer using the conventional parameters k1=1.2 and b=0.75. */
+  public static MatchScorer bm25() {
+    return bm25(DEFAULT_BM25_K1, DEFAULT_BM25_B);
+  }
+
+  /**
+   * Returns an Okapi BM25 scorer. Rare tokens are weighted by their inverse document frequency so
+   * that tokens like "PAYMENT" or "POS" which appear in many descriptions contribute little.
+   * Descriptions are treated as sets of tokens, so the term frequency of a matched token is always
+   * one and only the length normalization varies between splits. The score is divided by the best
+   * score the query could achieve so that the confidence falls between zero and one.
+   */
+  public static MatchScorer bm25(double k1, double b) {
+    checkArgument(k1 >= 0, "k1 must be non-negative but was %s", k1);
+    checkArgument(b >= 0 && b <= 1, "b must be between 0 and 1 but was %s", b);
+    return new MatchScorer() {
+      @Override
+      public double tokenWeight(int documentFrequency, IndexStatistics statistics) {
+        return Math.log(
+            1 + (statistics.splitCount() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+      }
+
+      @Override
+      public double confidence(
+          double matchedWeight,
+          double queryWeight,
+          int documentLength,
+          IndexStatistics statistics) {
+        if (queryWeight <= 0) {
+          return 0;
+        }
+        double averageDocumentLength = Math.max(statistics.averageDocumentLength(), 1);
+        double lengthNormalization =
+            (k1 + 1) / (1 + k1 * (1 - b + b * documentLength / averageDocumentLength));
+        // The normalization is largest for an empty document.
+        double bestLengthNormalization = (k1 + 1) / (1 + k1 * (1 - b));
+        return matchedWeight * lengthNormalization / (queryWeight * bestLengthNormalization);
+      }
+
+      @Override
+      public String toString() {
+        return "bm25";
+      }
+    };
+  }
+
+  /** Returns the scorer with the specified name, if there is one. */
+  public static Optional<MatchScorer> forName(String name) {
+    return Optional.ofNullable(SCORERS_BY_NAME.get(name));
+  }
+
+  /** Returns the names accepted by {@link #forName(String)}. */
+  public static Iterable<String> names() {
+    return SCORERS_BY_NAME.keySet();
+  }
+
+  private MatchScorers() {
+    /* do not instantiate. */
+  }
+}
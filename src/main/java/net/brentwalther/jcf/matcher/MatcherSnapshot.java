@@ -0,0 +1,188 @@
+package net.brentwalther.jcf.matcher;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+
+/**
+ * Saves the index of a {@link SplitMatcher} to a file so that it can be loaded instead of rebuilt.
+ *
+ * <p>A snapshot is keyed by a hash of the inputs the matcher was built from. It's only loaded if
+ * the hash matches the current inputs, so a snapshot of an older master ledger is never used. The
+ * file is memory-mapped when loaded and holds, in order:
+ *
+ * <ol>
+ *   <li>The magic number, the format version and the input hash.
+ *   <li>The accounts, transactions and splits as length-prefixed protos. The splits are in split
+ *       id order.
+ *   <li>The tokens in token id order, each followed by its posting list.
+ *   <li>The document length of each split.
+ * </ol>
+ */
+public final class MatcherSnapshot {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+  /** "JCFM" in ASCII. */
+  private static final int MAGIC = 0x4a43464d;
+  /** Incremented whenever the format or the tokenization changes to invalidate old snapshots. */
+  private static final int VERSION = 1;
+
+  /**
+   * Writes a snapshot of the matcher's index to the file, replacing any existing snapshot. Returns
+   * true if the snapshot was written.
+   */
+  public static boolean write(SplitMatcher matcher, HashCode inputHash, Path file) {
+    Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      writeBytes(output, inputHash.asBytes());
+      writeMessages(output, matcher.knownAccountsById().values().asList());
+      writeMessages(output, ImmutableList.copyOf(matcher.knownTransactions()));
+      writeMessages(output, matcher.splitTable());
+      TokenDictionary tokenDictionary = matcher.tokenDictionary();
+      output.writeInt(tokenDictionary.size());
+      for (int tokenId = 0; tokenId < tokenDictionary.size(); tokenId++) {
+        writeBytes(output, tokenDictionary.token(tokenId).getBytes(US_ASCII));
+        PostingList postings = matcher.postings(tokenId);
+        output.writeInt(postings.size());
+        for (int i = 0; i < postings.size(); i++) {
+          output.writeInt(postings.get(i));
+        }
+      }
+      for (int splitId = 0; splitId < matcher.splitTable().size(); splitId++) {
+        output.writeInt(matcher.documentLength(splitId));
+      }
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not write matcher snapshot to: %s", file);
+      return false;
+    }
+    try {
+      // Readers never see a partially written snapshot.
+      Files.move(
+          temporaryFile,
+          file,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not write matcher snapshot to: %s", file);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the matcher saved in the file if the file holds a snapshot of the same version that was
+   * built from inputs with the same hash. Otherwise returns empty.
+   */
+  public static Optional<SplitMatcher> read(Path file, HashCode inputHash, MatchScorer scorer) {
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        LOGGER.atInfo().log("Ignoring matcher snapshot with an unknown format: %s", file);
+        return Optional.empty();
+      }
+      if (!HashCode.fromBytes(readBytes(buffer)).equals(inputHash)) {
+        LOGGER.atInfo().log("Ignoring matcher snapshot of different inputs: %s", file);
+        return Optional.empty();
+      }
+      ImmutableMap<String, Account> accountsById =
+          Maps.uniqueIndex(readMessages(buffer, Account.parser()), Account::getId);
+      ImmutableMap<String, Transaction> transactionsById =
+          Maps.uniqueIndex(readMessages(buffer, Transaction.parser()), Transaction::getId);
+      List<Split> splits = readMessages(buffer, Split.parser());
+      int tokenCount = buffer.getInt();
+      List<String> tokens = new ArrayList<>(tokenCount);
+      List<PostingList> postingsByTokenId = new ArrayList<>(tokenCount);
+      for (int tokenId = 0; tokenId < tokenCount; tokenId++) {
+        tokens.add(new String(readBytes(buffer), US_ASCII));
+        postingsByTokenId.add(PostingList.of(readInts(buffer, buffer.getInt())));
+      }
+      int[] documentLengths = readInts(buffer, splits.size());
+      return Optional.of(
+          SplitMatcher.restore(
+              accountsById,
+              transactionsById,
+              scorer,
+              splits,
+              tokens,
+              postingsByTokenId,
+              documentLengths));
+    } catch (IOException | RuntimeException e) {
+      // A truncated or corrupt snapshot fails with one of many runtime exceptions. Whatever the
+      // cause, the index can simply be rebuilt.
+      LOGGER.atWarning().withCause(e).log("Could not read matcher snapshot: %s", file);
+      return Optional.empty();
+    }
+  }
+
+  private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static void writeMessages(
+      DataOutputStream output, List<? extends MessageLite> messages) throws IOException {
+    output.writeInt(messages.size());
+    for (MessageLite message : messages) {
+      writeBytes(output, message.toByteArray());
+    }
+  }
+
+  private static byte[] readBytes(MappedByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static int[] readInts(MappedByteBuffer buffer, int count) {
+    int[] ints = new int[count];
+    buffer.asIntBuffer().get(ints);
+    buffer.position(buffer.position() + count * Integer.BYTES);
+    return ints;
+  }
+
+  private static <T extends MessageLite> List<T> readMessages(
+      MappedByteBuffer buffer, Parser<T> parser) throws InvalidProtocolBufferException {
+    int count = buffer.getInt();
+    List<T> messages = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int length = buffer.getInt();
+      int end = buffer.position() + length;
+      messages.add(parser.parseFrom((ByteBuffer) buffer.slice().limit(length)));
+      buffer.position(end);
+    }
+    return messages;
+  }
+
+  private MatcherSnapshot() {
+    /* do not instantiate. */
+  }
+}
@@ -0,0 +1,41 @@
+package net.brentwalther.jcf.matcher;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of split ids backed by a primitive array. Split ids are assigned in increasing
+ * order as splits are linked, so a posting list that is only ever appended to stays sorted.
+ */
+final class PostingList {
+
+  private int[] ids;
+  private int size;
+
+  PostingList() {
+    this.ids = new int[4];
+    this.size = 0;
+  }
+
+  /** Returns a posting list of the ids, which must be sorted. The array is not copied. */
+  static PostingList of(int[] ids) {
+    PostingList postings = new PostingList();
+    postings.ids = ids;
+    postings.size = ids.length;
+    return postings;
+  }
+
+  void add(int id) {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+    }
+    ids[size++] = id;
+  }
+
+  int get(int index) {
+    return ids[index];
+  }
+
+  int size() {
+    return size;
+  }
+}
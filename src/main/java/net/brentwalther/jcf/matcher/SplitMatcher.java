@@ -1,28 +1,29 @@
 package net.brentwalther.jcf.matcher;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.base.Predicates.not;
-import static net.brentwalther.jcf.model.ModelTransforms.bigDecimalAmountForSplit;
+import static java.util.stream.Collectors.toList;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Predicate;
-import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.SetMultimap;
-import com.google.common.collect.Sets;
-import java.math.BigDecimal;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.PriorityQueue;
+import net.brentwalther.jcf.matcher.TrigramIndex.SimilarToken;
 import net.brentwalther.jcf.model.IndexedModel;
 import net.brentwalther.jcf.model.JcfModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
@@ -31,32 +32,75 @@ import net.brentwalther.jcf.model.JcfModel.Transaction;
 
 public class SplitMatcher {
 
-  private static final Splitter SPACE_SPLITTER = Splitter.on(' ').trimResults().omitEmptyStrings();
-  private static final Pattern DOT_COM_PATTERN = Pattern.compile("[.][Cc][Oo][Mm]");
-  private static final Pattern NON_ALPHANUM_CHAR_PATTERN = Pattern.compile("[^0-9A-Za-z]");
-  private static final Pattern REPEATED_DIGITS_PATTERN = Pattern.compile("[0-9]{4,25}");
-  private static final ImmutableList<Function<String, String>> SANITIZERS =
-      ImmutableList.of(
-          s -> DOT_COM_PATTERN.matcher(s).replaceAll(""),
-          s -> NON_ALPHANUM_CHAR_PATTERN.matcher(s).replaceAll(" "),
-          s -> REPEATED_DIGITS_PATTERN.matcher(s).replaceAll(" "));
   /**
    * The maximum expected amount of days two 'probable duplicate' transactions can be separated by.
    */
   private static final long MAXIMUM_EXPECTED_DAYS_FOR_TRANSACTIONS_TO_CLEAR = 7;
 
+  private static final long PROBABLE_DUPLICATE_WINDOW_SECONDS =
+      Duration.ofDays(MAXIMUM_EXPECTED_DAYS_FOR_TRANSACTIONS_TO_CLEAR).getSeconds();
+  private static final PostingList EMPTY_POSTINGS = new PostingList();
+  /** The minimum trigram similarity of a fuzzy token match unless otherwise specified. */
+  public static final double DEFAULT_MINIMUM_TOKEN_SIMILARITY = 0.5;
+  /** The number of transactions each task tokenizes when bulk building a matcher. */
+  private static final int BULK_CHUNK_SIZE = 4096;
+
   private final ImmutableMap<String, Account> initiallyKnownAccountsById;
+  /** Every account a split can be linked to. An account's index is its position in this list. */
+  private final ImmutableList<Account> accountTable;
+  private final ImmutableMap<String, Integer> accountIndicesById;
   private final ImmutableMap<String, Transaction> initiallyKnownTransactionsById;
-  private final SetMultimap<String, Split> transactionDescriptionTokenIndex;
+  /** Every linked split. A split's id is its index in this table. */
+  private final List<Split> splitTable;
+  /** Splits the descriptions of linked transactions into tokens. Reused to avoid allocating. */
+  private final DescriptionTokenizer tokenizer;
+  /** Interns the tokens found in the descriptions of linked transactions. */
+  private final TokenDictionary tokenDictionary;
+  /** The ids of the splits whose transaction description contains a token, indexed by token id. */
+  private final List<PostingList> postingsByTokenId;
+  /** The number of distinct tokens in each linked split's description, indexed by split id. */
+  private int[] documentLengthsBySplitId;
+  /** The index of each linked split's account in the account table, indexed by split id. */
+  private int[] accountIndicesBySplitId;
+  /** The split count and total document length, updated as each split is linked. */
+  private IndexStatistics statistics;
+  /**
+   * Scratch space for queries. Each thread gets its own so that queries can run concurrently with
+   * each other, though not with {@link #link}.
+   */
+  private final ThreadLocal<QueryScratch> queryScratch;
   private final Map<String, Transaction> newlyDiscoveredTransactionsById;
+  private final DuplicateIndex duplicateIndex;
+  private final MatchScorer scorer;
+  /** Finds the tokens similar to those in a query that aren't in the index. Null until enabled. */
+  private TrigramIndex fuzzyTokenIndex;
+  private double minimumTokenSimilarity;
 
   private SplitMatcher(
       ImmutableMap<String, Account> initiallyKnownAccountsById,
-      Iterable<Transaction> allTransactions) {
+      Iterable<Transaction> allTransactions,
+      MatchScorer scorer) {
     this.initiallyKnownAccountsById = initiallyKnownAccountsById;
+    this.accountTable = initiallyKnownAccountsById.values().asList();
+    ImmutableMap.Builder<String, Integer> accountIndicesById =
+        ImmutableMap.builderWithExpectedSize(accountTable.size());
+    for (int i = 0; i < accountTable.size(); i++) {
+      accountIndicesById.put(accountTable.get(i).getId(), i);
+    }
+    this.accountIndicesById = accountIndicesById.build();
     this.initiallyKnownTransactionsById = Maps.uniqueIndex(allTransactions, Transaction::getId);
     this.newlyDiscoveredTransactionsById = Maps.newHashMap();
-    this.transactionDescriptionTokenIndex = MultimapBuilder.hashKeys().hashSetValues().build();
+    this.splitTable = new ArrayList<>();
+    this.tokenizer = new DescriptionTokenizer();
+    this.tokenDictionary = new TokenDictionary();
+    this.postingsByTokenId = new ArrayList<>();
+    this.documentLengthsBySplitId = new int[16];
+    this.accountIndicesBySplitId = new int[16];
+    this.statistics = IndexStatistics.create(0, 0);
+    int accountCount = accountTable.size();
+    this.queryScratch = ThreadLocal.withInitial(() -> new QueryScratch(accountCount));
+    this.duplicateIndex = new DuplicateIndex();
+    this.scorer = scorer;
   }
 
   public static SplitMatcher create(JcfModel.Model proto) {
@@ -64,27 +108,118 @@ public class SplitMatcher {
   }
 
   public static SplitMatcher create(IndexedModel model) {
+    return create(model, MatchScorers.tokenCount());
+  }
+
+  public static SplitMatcher create(JcfModel.Model proto, MatchScorer scorer) {
+    return create(IndexedModel.create(proto), scorer);
+  }
+
+  public static SplitMatcher create(IndexedModel model, MatchScorer scorer) {
     SplitMatcher matcher =
-        new SplitMatcher(model.immutableAccountsByIdMap(), model.getAllTransactions());
-    for (Transaction transaction : model.getAllTransactions()) {
-      for (Split split : model.splitsForTransaction(transaction)) {
-        matcher.link(transaction, split);
+        new SplitMatcher(model.immutableAccountsByIdMap(), model.getAllTransactions(), scorer);
+    ImmutableList<Transaction> transactions =
+        FluentIterable.from(model.getAllTransactions())
+            .filter(transaction -> !model.splitsForTransaction(transaction).isEmpty())
+            .toList();
+    // Tokenize the descriptions in parallel, each chunk of transactions into its own dictionary.
+    // Merging the chunks in order assigns every token the same id that linking the splits one at a
+    // time would have.
+    List<TokenizedChunk> chunks =
+        Lists.partition(transactions, BULK_CHUNK_SIZE).parallelStream()
+            .map(TokenizedChunk::tokenize)
+            .collect(toList());
+    int transactionIndex = 0;
+    for (TokenizedChunk chunk : chunks) {
+      int[] globalTokenIds = new int[chunk.dictionary.size()];
+      for (int localTokenId = 0; localTokenId < globalTokenIds.length; localTokenId++) {
+        String token = chunk.dictionary.token(localTokenId);
+        globalTokenIds[localTokenId] = matcher.intern(token.toCharArray(), 0, token.length());
+      }
+      for (int[] localTokenIds : chunk.distinctTokenIdsByTransaction) {
+        Transaction transaction = transactions.get(transactionIndex++);
+        int[] tokenIds = new int[localTokenIds.length];
+        for (int i = 0; i < tokenIds.length; i++) {
+          tokenIds[i] = globalTokenIds[localTokenIds[i]];
+        }
+        for (Split split : model.splitsForTransaction(transaction)) {
+          matcher.addSplit(transaction, split, tokenIds);
+        }
       }
     }
     return matcher;
   }
 
-  /** Returns the string with junk removed. */
-  private static String sanitize(String s) {
-    for (Function<String, String> sanitizer : SANITIZERS) {
-      s = sanitizer.apply(s);
+  /**
+   * Returns a matcher with an index restored from a snapshot. The token ids are the positions of
+   * the tokens in the list and the split ids are the positions of the splits.
+   */
+  static SplitMatcher restore(
+      ImmutableMap<String, Account> accountsById,
+      ImmutableMap<String, Transaction> transactionsById,
+      MatchScorer scorer,
+      List<Split> splits,
+      List<String> tokens,
+      List<PostingList> postingsByTokenId,
+      int[] documentLengthsBySplitId) {
+    checkArgument(tokens.size() == postingsByTokenId.size(), "Every token needs a posting list.");
+    checkArgument(
+        splits.size() == documentLengthsBySplitId.length, "Every split needs a document length.");
+    SplitMatcher matcher = new SplitMatcher(accountsById, transactionsById.values(), scorer);
+    long totalDocumentLength = 0;
+    for (String token : tokens) {
+      matcher.intern(token.toCharArray(), 0, token.length());
+    }
+    matcher.postingsByTokenId.clear();
+    matcher.postingsByTokenId.addAll(postingsByTokenId);
+    matcher.documentLengthsBySplitId = documentLengthsBySplitId.clone();
+    matcher.accountIndicesBySplitId = new int[Math.max(16, splits.size())];
+    for (int splitId = 0; splitId < splits.size(); splitId++) {
+      Split split = splits.get(splitId);
+      Integer accountIndex = matcher.accountIndicesById.get(split.getAccountId());
+      checkState(accountIndex != null, "Split refers to an account that doesn't exist: %s", split);
+      matcher.splitTable.add(split);
+      matcher.accountIndicesBySplitId[splitId] = accountIndex;
+      totalDocumentLength += documentLengthsBySplitId[splitId];
+      matcher.duplicateIndex.add(
+          split, matcher.transactionForSplit(split).getPostDateEpochSecond());
     }
-    return s;
+    matcher.statistics = IndexStatistics.create(splits.size(), totalDocumentLength);
+    if (matcher.documentLengthsBySplitId.length < matcher.accountIndicesBySplitId.length) {
+      matcher.documentLengthsBySplitId =
+          Arrays.copyOf(matcher.documentLengthsBySplitId, matcher.accountIndicesBySplitId.length);
+    }
+    return matcher;
   }
 
-  private static Iterable<String> tokenize(String s) {
-    // Return the split tokens. The splitter throws out empty strings.
-    return SPACE_SPLITTER.split(s);
+  /**
+   * Enables fuzzy token matching with the default minimum similarity. See {@link
+   * #enableFuzzyTokenMatching(double)}.
+   */
+  public void enableFuzzyTokenMatching() {
+    enableFuzzyTokenMatching(DEFAULT_MINIMUM_TOKEN_SIMILARITY);
+  }
+
+  /**
+   * Enables fuzzy token matching. A query token that isn't in the index is replaced by the most
+   * similar indexed token, compared by character trigrams, if the similarity is at least the
+   * minimum. For example, "Mktp" can match "MKTPLACE". The replacement's weight is scaled by its
+   * similarity so a fuzzy match is never worth more than an exact one.
+   */
+  public void enableFuzzyTokenMatching(double minimumTokenSimilarity) {
+    checkArgument(
+        minimumTokenSimilarity > 0 && minimumTokenSimilarity <= 1,
+        "The minimum token similarity must be in (0, 1] but was %s",
+        minimumTokenSimilarity);
+    this.minimumTokenSimilarity = minimumTokenSimilarity;
+    if (fuzzyTokenIndex != null) {
+      return;
+    }
+    fuzzyTokenIndex = new TrigramIndex();
+    for (int tokenId = 0; tokenId < tokenDictionary.size(); tokenId++) {
+      char[] token = tokenDictionary.token(tokenId).toCharArray();
+      fuzzyTokenIndex.add(tokenId, token, 0, token.length);
+    }
   }
 
   /** Link the account to the associated transactions description string. */
@@ -92,76 +227,274 @@ public class SplitMatcher {
     if (!initiallyKnownTransactionsById.containsKey(transaction.getId())) {
       newlyDiscoveredTransactionsById.put(transaction.getId(), transaction);
     }
-    String sanitizedDescription = sanitize(transaction.getDescription());
-    checkState(
-        initiallyKnownAccountsById.containsKey(split.getAccountId()),
-        "Split refers to an account that doesn't exist: %s",
-        split);
-    linkInternal(split, sanitizedDescription);
-    for (String token : tokenize(sanitizedDescription)) {
-      linkInternal(split, token);
+    tokenizer.tokenize(transaction.getDescription());
+    int[] tokenIds = new int[tokenizer.tokenCount()];
+    for (int i = 0; i < tokenIds.length; i++) {
+      tokenIds[i] = intern(tokenizer.buffer(), tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
     }
+    addSplit(transaction, split, distinct(tokenIds));
   }
 
-  private void linkInternal(Split split, String match) {
-    transactionDescriptionTokenIndex.put(match, split);
+  /** Adds the split to the index. The token ids must be distinct. */
+  private void addSplit(Transaction transaction, Split split, int[] tokenIds) {
+    Integer accountIndex = accountIndicesById.get(split.getAccountId());
+    checkState(accountIndex != null, "Split refers to an account that doesn't exist: %s", split);
+    duplicateIndex.add(split, transaction.getPostDateEpochSecond());
+    int splitId = splitTable.size();
+    splitTable.add(split);
+    for (int tokenId : tokenIds) {
+      postingsByTokenId.get(tokenId).add(splitId);
+    }
+    if (splitId == documentLengthsBySplitId.length) {
+      documentLengthsBySplitId = Arrays.copyOf(documentLengthsBySplitId, splitId * 2);
+      accountIndicesBySplitId = Arrays.copyOf(accountIndicesBySplitId, splitId * 2);
+    }
+    documentLengthsBySplitId[splitId] = tokenIds.length;
+    accountIndicesBySplitId[splitId] = accountIndex;
+    statistics =
+        IndexStatistics.create(
+            statistics.splitCount() + 1, statistics.totalDocumentLength() + tokenIds.length);
+  }
+
+  /** Returns the id of the token, adding an empty posting list for it if it's new. */
+  private int intern(char[] chars, int start, int end) {
+    int tokenId = tokenDictionary.intern(chars, start, end);
+    if (tokenId == postingsByTokenId.size()) {
+      postingsByTokenId.add(new PostingList());
+      if (fuzzyTokenIndex != null) {
+        fuzzyTokenIndex.add(tokenId, chars, start, end);
+      }
+    }
+    return tokenId;
+  }
+
+  /** Returns the sorted distinct ids in the array, which is reordered. */
+  private static int[] distinct(int[] tokenIds) {
+    // A token repeated within a description only gets a single posting.
+    Arrays.sort(tokenIds);
+    int distinctCount = 0;
+    for (int i = 0; i < tokenIds.length; i++) {
+      if (distinctCount == 0 || tokenIds[distinctCount - 1] != tokenIds[i]) {
+        tokenIds[distinctCount++] = tokenIds[i];
+      }
+    }
+    return Arrays.copyOf(tokenIds, distinctCount);
   }
 
   /**
-   * Returns the top matches for a transaction with the specified description. The list is ordered
-   * from most to least confident.
+   * Returns a match for each linked split whose description shares a token with the transaction,
+   * preceded by a {@link MatchResult#PROBABLE_DUPLICATE} match if the transaction has probable
+   * duplicates. Prefer {@link #getTopAccounts} when only the best accounts are needed since a
+   * common token can match thousands of splits.
    */
   public ImmutableList<Match> getTopMatches(
       Transaction transaction,
       List<Split> splitsForTransaction,
       ShouldExcludePredicate shouldExcludePredicate) {
     ImmutableList.Builder<Match> matchesBuilder = ImmutableList.builder();
+    getProbableDuplicate(transaction, splitsForTransaction).ifPresent(matchesBuilder::add);
+    scoreMatchingSplits(
+        transaction,
+        (splitId, confidence, matchedWeightShare) -> {
+          Split split = splitTable.get(splitId);
+          Account account = accountForSplit(split);
+          if (shouldExcludePredicate.apply(account)) {
+            return;
+          }
+          matchesBuilder.add(
+              Match.withProbability(
+                  MatchData.create(account, transactionForSplit(split), split), confidence));
+        });
+    return matchesBuilder.build();
+  }
 
-    ImmutableSet.Builder<Split> probableDuplicates = ImmutableSet.builder();
-    for (Split existingSplit : transactionDescriptionTokenIndex.values()) {
-      // NOTE: This can quickly become slow if splitsForTransaction is very
-      // large. In practice it should only contain one split, but maybe a
-      // few.
-      BigDecimal splitAmount = bigDecimalAmountForSplit(existingSplit);
-      for (Split split : splitsForTransaction) {
-        boolean hasSameAmount = splitAmount.compareTo(bigDecimalAmountForSplit(split)) == 0;
-        boolean hasSameAccount = split.getAccountId().equals(existingSplit.getAccountId());
-        boolean postDateIsSimilar =
-            Duration.ofSeconds(
-                        Math.abs(
-                            transactionForSplit(split).getPostDateEpochSecond()
-                                - transactionForSplit(existingSplit).getPostDateEpochSecond()))
-                    .toDays()
-                < MAXIMUM_EXPECTED_DAYS_FOR_TRANSACTIONS_TO_CLEAR;
-        if (hasSameAmount && hasSameAccount && postDateIsSimilar) {
-          probableDuplicates.add(existingSplit);
+  /**
+   * Returns at most {@code limit} accounts ordered from highest to lowest score. An account's score
+   * is the sum of the confidences of its splits that match the transaction. The exclusion predicate
+   * is evaluated at most once per account.
+   */
+  public ImmutableList<AccountScore> getTopAccounts(
+      Transaction transaction, int limit, ShouldExcludePredicate shouldExcludePredicate) {
+    checkArgument(limit >= 0, "limit must be non-negative but was %s", limit);
+    QueryScratch scratch = queryScratch.get();
+    double[] scoresByAccountIndex = scratch.scoresByAccountIndex;
+    double[] bestMatchedWeightSharesByAccountIndex = scratch.bestMatchedWeightSharesByAccountIndex;
+    boolean[] isMatchedByAccountIndex = scratch.isMatchedByAccountIndex;
+    int[] matchedAccountIndices = scratch.matchedAccountIndices;
+    int[] matchedAccountCount = {0};
+    scoreMatchingSplits(
+        transaction,
+        (splitId, confidence, matchedWeightShare) -> {
+          int accountIndex = accountIndicesBySplitId[splitId];
+          if (!isMatchedByAccountIndex[accountIndex]) {
+            isMatchedByAccountIndex[accountIndex] = true;
+            matchedAccountIndices[matchedAccountCount[0]++] = accountIndex;
+          }
+          scoresByAccountIndex[accountIndex] += confidence;
+          bestMatchedWeightSharesByAccountIndex[accountIndex] =
+              Math.max(bestMatchedWeightSharesByAccountIndex[accountIndex], matchedWeightShare);
+        });
+
+    // A min-heap of the best accounts seen so far, whose root is the first to be evicted.
+    PriorityQueue<AccountScore> topAccounts =
+        new PriorityQueue<>(Math.max(1, limit), AccountScore.WORST_FIRST);
+    for (int i = 0; i < matchedAccountCount[0] && limit > 0; i++) {
+      int accountIndex = matchedAccountIndices[i];
+      AccountScore candidate =
+          AccountScore.create(
+              accountTable.get(accountIndex),
+              scoresByAccountIndex[accountIndex],
+              bestMatchedWeightSharesByAccountIndex[accountIndex]);
+      if (topAccounts.size() == limit
+          && AccountScore.WORST_FIRST.compare(candidate, topAccounts.peek()) <= 0) {
+        continue;
+      }
+      if (shouldExcludePredicate.apply(candidate.account())) {
+        continue;
+      }
+      topAccounts.add(candidate);
+      if (topAccounts.size() > limit) {
+        topAccounts.poll();
+      }
+    }
+    for (int i = 0; i < matchedAccountCount[0]; i++) {
+      scoresByAccountIndex[matchedAccountIndices[i]] = 0;
+      bestMatchedWeightSharesByAccountIndex[matchedAccountIndices[i]] = 0;
+      isMatchedByAccountIndex[matchedAccountIndices[i]] = false;
+    }
+    AccountScore[] bestFirst = topAccounts.toArray(new AccountScore[0]);
+    Arrays.sort(bestFirst, AccountScore.WORST_FIRST.reversed());
+    return ImmutableList.copyOf(bestFirst);
+  }
+
+  /**
+   * Returns a {@link MatchResult#PROBABLE_DUPLICATE} match of the linked splits that are probable
+   * duplicates of the specified splits, if there are any.
+   */
+  public Optional<Match> getProbableDuplicate(
+      Transaction transaction, List<Split> splitsForTransaction) {
+    ImmutableList<Split> probableDuplicates =
+        probableDuplicatesOf(transaction, splitsForTransaction);
+    return probableDuplicates.isEmpty()
+        ? Optional.empty()
+        : Optional.of(probableDuplicateMatch(probableDuplicates));
+  }
+
+  /**
+   * Scores every linked split whose description shares a token with the transaction's, visiting
+   * them in split id order.
+   */
+  private void scoreMatchingSplits(Transaction transaction, SplitScoreConsumer consumer) {
+    List<PostingList> queryPostings = new ArrayList<>();
+    List<Double> queryTokenWeights = new ArrayList<>();
+    double queryWeight = 0;
+    DescriptionTokenizer tokenizer = queryScratch.get().tokenizer;
+    tokenizer.tokenize(transaction.getDescription());
+    for (int i = 0; i < tokenizer.tokenCount(); i++) {
+      int tokenId =
+          tokenDictionary.idOf(tokenizer.buffer(), tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
+      PostingList postings =
+          tokenId == TokenDictionary.NOT_FOUND ? EMPTY_POSTINGS : postingsByTokenId.get(tokenId);
+      double weight = scorer.tokenWeight(postings.size(), statistics);
+      queryWeight += weight;
+      if (tokenId == TokenDictionary.NOT_FOUND && fuzzyTokenIndex != null) {
+        Optional<SimilarToken> similarToken =
+            fuzzyTokenIndex.mostSimilar(
+                tokenizer.buffer(),
+                tokenizer.tokenStart(i),
+                tokenizer.tokenEnd(i),
+                minimumTokenSimilarity);
+        if (similarToken.isPresent()) {
+          postings = postingsByTokenId.get(similarToken.get().tokenId());
+          weight =
+              similarToken.get().similarity() * scorer.tokenWeight(postings.size(), statistics);
         }
       }
+      if (postings.size() > 0) {
+        queryPostings.add(postings);
+        queryTokenWeights.add(weight);
+      }
     }
-    if (!probableDuplicates.build().isEmpty()) {
-      matchesBuilder.add(probableDuplicateMatch(probableDuplicates.build().asList()));
-    }
-
-    ImmutableMultiset<Split> matches =
-        FluentIterable.from(tokenize(sanitize(transaction.getDescription())))
-            .transformAndConcat(transactionDescriptionTokenIndex::get)
-            .toMultiset();
-    int maxCount = Sets.newHashSet(transactionDescriptionTokenIndex.values()).size();
-    matchesBuilder.addAll(
-        FluentIterable.from(matches.entrySet())
-            .filter(
-                entry ->
-                    entry != null
-                        && not(shouldExcludePredicate).apply(accountForSplit(entry.getElement())))
-            .transform(
-                (entry) ->
-                    Match.withProbability(
-                        MatchData.create(
-                            accountForSplit(entry.getElement()),
-                            transactionForSplit(entry.getElement()),
-                            entry.getElement()),
-                        1.0 * entry.getCount() / maxCount)));
-    return matchesBuilder.build();
+    // Each posting list is sorted by split id so merge them to find the weight of the query's
+    // tokens each split matched.
+    int[] cursors = new int[queryPostings.size()];
+    while (true) {
+      int splitId = Integer.MAX_VALUE;
+      for (int i = 0; i < cursors.length; i++) {
+        PostingList postings = queryPostings.get(i);
+        if (cursors[i] < postings.size() && postings.get(cursors[i]) < splitId) {
+          splitId = postings.get(cursors[i]);
+        }
+      }
+      if (splitId == Integer.MAX_VALUE) {
+        break;
+      }
+      double matchedWeight = 0;
+      for (int i = 0; i < cursors.length; i++) {
+        PostingList postings = queryPostings.get(i);
+        if (cursors[i] < postings.size() && postings.get(cursors[i]) == splitId) {
+          cursors[i]++;
+          matchedWeight += queryTokenWeights.get(i);
+        }
+      }
+      consumer.accept(
+          splitId,
+          scorer.confidence(
+              matchedWeight, queryWeight, documentLengthsBySplitId[splitId], statistics),
+          queryWeight > 0 ? Math.min(1, matchedWeight / queryWeight) : 0);
+    }
+  }
+
+  /** Returns the accounts that splits can be linked to, keyed by their id. */
+  public ImmutableMap<String, Account> knownAccountsById() {
+    return initiallyKnownAccountsById;
+  }
+
+  /** Returns every transaction that a linked split belongs to. */
+  Iterable<Transaction> knownTransactions() {
+    return Iterables.concat(
+        initiallyKnownTransactionsById.values(), newlyDiscoveredTransactionsById.values());
+  }
+
+  /** Returns the linked splits, indexed by split id. */
+  List<Split> splitTable() {
+    return Collections.unmodifiableList(splitTable);
+  }
+
+  /** Returns the tokens in the index, indexed by token id. */
+  TokenDictionary tokenDictionary() {
+    return tokenDictionary;
+  }
+
+  /** Returns the ids of the splits whose description contains the token. */
+  PostingList postings(int tokenId) {
+    return postingsByTokenId.get(tokenId);
+  }
+
+  /** Returns the number of distinct tokens in the split's description. */
+  int documentLength(int splitId) {
+    return documentLengthsBySplitId[splitId];
+  }
+
+  /** Returns the statistics of the splits linked so far. */
+  public IndexStatistics statistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the linked splits that have the same account and amount as one of the specified splits
+   * and were posted within {@link #MAXIMUM_EXPECTED_DAYS_FOR_TRANSACTIONS_TO_CLEAR} days of the
+   * transaction.
+   */
+  ImmutableList<Split> probableDuplicatesOf(
+      Transaction transaction, List<Split> splitsForTransaction) {
+    ImmutableSet.Builder<Split> probableDuplicates = ImmutableSet.builder();
+    for (Split split : splitsForTransaction) {
+      probableDuplicates.addAll(
+          duplicateIndex.find(
+              split, transaction.getPostDateEpochSecond(), PROBABLE_DUPLICATE_WINDOW_SECONDS));
+    }
+    return probableDuplicates.build().asList();
   }
 
   private Transaction transactionForSplit(Split split) {
@@ -191,7 +524,107 @@ public class SplitMatcher {
     PROBABLE_DUPLICATE,
   }
 
-  public interface ShouldExcludePredicate extends Predicate<Account> {}
+  public interface ShouldExcludePredicate extends Predicate<Account> {
+
+    /**
+     * Returns a predicate that excludes the accounts a transaction is already split with and any
+     * account that shares a parent account with one of them. This only works for account
+     * hierarchies that use a colon separator.
+     */
+    static ShouldExcludePredicate excludingRelativesOf(List<Account> accountsOfExistingSplits) {
+      return account ->
+          FluentIterable.from(accountsOfExistingSplits)
+              .transform(Account::getName)
+              .anyMatch(
+                  existingSplitAccountName -> {
+                    if (account.getName().equals(existingSplitAccountName)) {
+                      // Don't suggest to split the transaction with an account it's already been
+                      // split with.
+                      return true;
+                    }
+                    String commonPrefix =
+                        Strings.commonPrefix(existingSplitAccountName, account.getName());
+                    // Exclude the account if it shares at least one 'parent' account in common.
+                    return commonPrefix.chars().filter(i -> i == ':').count() > 1;
+                  });
+    }
+  }
+
+  /** The reusable state of the queries made by one thread. */
+  private static class QueryScratch {
+    private final DescriptionTokenizer tokenizer = new DescriptionTokenizer();
+    /**
+     * Indexed by account index. Cleared after each query so that a query only touches the accounts
+     * it matches.
+     */
+    private final double[] scoresByAccountIndex;
+    private final double[] bestMatchedWeightSharesByAccountIndex;
+    private final boolean[] isMatchedByAccountIndex;
+    private final int[] matchedAccountIndices;
+
+    private QueryScratch(int accountCount) {
+      this.scoresByAccountIndex = new double[accountCount];
+      this.bestMatchedWeightSharesByAccountIndex = new double[accountCount];
+      this.isMatchedByAccountIndex = new boolean[accountCount];
+      this.matchedAccountIndices = new int[accountCount];
+    }
+  }
+
+  /** The distinct token ids of a chunk of transactions, relative to the chunk's own dictionary. */
+  private static class TokenizedChunk {
+    private final TokenDictionary dictionary = new TokenDictionary();
+    private final List<int[]> distinctTokenIdsByTransaction = new ArrayList<>();
+
+    static TokenizedChunk tokenize(List<Transaction> transactions) {
+      TokenizedChunk chunk = new TokenizedChunk();
+      DescriptionTokenizer tokenizer = new DescriptionTokenizer();
+      for (Transaction transaction : transactions) {
+        tokenizer.tokenize(transaction.getDescription());
+        int[] tokenIds = new int[tokenizer.tokenCount()];
+        for (int i = 0; i < tokenIds.length; i++) {
+          tokenIds[i] =
+              chunk.dictionary.intern(
+                  tokenizer.buffer(), tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
+        }
+        chunk.distinctTokenIdsByTransaction.add(distinct(tokenIds));
+      }
+      return chunk;
+    }
+  }
+
+  private interface SplitScoreConsumer {
+    /**
+     * Accepts a matching split's confidence and the share of the query's token weight that it
+     * matched.
+     */
+    void accept(int splitId, double confidence, double matchedWeightShare);
+  }
+
+  @AutoValue
+  public abstract static class AccountScore {
+
+    /** Orders by ascending score, breaking ties by descending account name. */
+    private static final Comparator<AccountScore> WORST_FIRST =
+        Comparator.comparingDouble(AccountScore::score)
+            .thenComparing(
+                accountScore -> accountScore.account().getName(), Comparator.reverseOrder());
+
+    public static AccountScore create(
+        Account account, double score, double bestMatchedWeightShare) {
+      return new AutoValue_SplitMatcher_AccountScore(account, score, bestMatchedWeightShare);
+    }
+
+    public abstract Account account();
+
+    /** The sum of the confidences of the account's matching splits. */
+    public abstract double score();
+
+    /**
+     * The largest share of the query's token weight matched by one of the account's splits, between
+     * 0 and 1. A match on a single common token has a small share even if it's the only match.
+     */
+    public abstract double bestMatchedWeightShare();
+  }
 
   @AutoValue
   public abstract static class MatchData {
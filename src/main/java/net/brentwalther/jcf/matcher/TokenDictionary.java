@@ -0,0 +1,112 @@
+package net.brentwalther.jcf.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interns description tokens, assigning each distinct token a dense integer id in the order it was
+ * first seen. Ids can be used to index into arrays and lists that are parallel to the dictionary.
+ *
+ * <p>Tokens are looked up by a span of characters so that a query doesn't have to create a string
+ * per token. The lookup is an open addressing hash table of token ids.
+ */
+final class TokenDictionary {
+
+  /** The id returned for tokens which are not in the dictionary. */
+  static final int NOT_FOUND = -1;
+
+  private final List<String> tokensById = new ArrayList<>();
+  private int[] hashesById = new int[16];
+  /** The ids of the tokens, placed by their hash with linear probing. Empty slots are NOT_FOUND. */
+  private int[] idsBySlot = emptyTable(16);
+
+  /** Returns the id of the token, adding it to the dictionary if it's not already present. */
+  int intern(char[] chars, int start, int end) {
+    int hash = hash(chars, start, end);
+    int slot = findSlot(chars, start, end, hash);
+    if (idsBySlot[slot] != NOT_FOUND) {
+      return idsBySlot[slot];
+    }
+    int newId = tokensById.size();
+    tokensById.add(new String(chars, start, end - start));
+    if (newId == hashesById.length) {
+      hashesById = Arrays.copyOf(hashesById, newId * 2);
+    }
+    hashesById[newId] = hash;
+    idsBySlot[slot] = newId;
+    // Keep the table at most half full so that probe sequences stay short.
+    if (tokensById.size() * 2 > idsBySlot.length) {
+      resize();
+    }
+    return newId;
+  }
+
+  /** Returns the id of the token or {@link #NOT_FOUND} if it's not in the dictionary. */
+  int idOf(char[] chars, int start, int end) {
+    return idsBySlot[findSlot(chars, start, end, hash(chars, start, end))];
+  }
+
+  /** Returns the token with the specified id. */
+  String token(int id) {
+    return tokensById.get(id);
+  }
+
+  /** Returns the number of distinct tokens in the dictionary. */
+  int size() {
+    return tokensById.size();
+  }
+
+  /** Returns the slot holding the token, or the empty slot where it would be placed. */
+  private int findSlot(char[] chars, int start, int end, int hash) {
+    int mask = idsBySlot.length - 1;
+    int slot = hash & mask;
+    while (true) {
+      int id = idsBySlot[slot];
+      if (id == NOT_FOUND
+          || (hashesById[id] == hash && equals(tokensById.get(id), chars, start, end))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void resize() {
+    idsBySlot = emptyTable(idsBySlot.length * 2);
+    int mask = idsBySlot.length - 1;
+    for (int id = 0; id < tokensById.size(); id++) {
+      int slot = hashesById[id] & mask;
+      while (idsBySlot[slot] != NOT_FOUND) {
+        slot = (slot + 1) & mask;
+      }
+      idsBySlot[slot] = id;
+    }
+  }
+
+  private static int[] emptyTable(int size) {
+    int[] table = new int[size];
+    Arrays.fill(table, NOT_FOUND);
+    return table;
+  }
+
+  private static int hash(char[] chars, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    // Spread the high bits into the low bits that select the slot.
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equals(String token, char[] chars, int start, int end) {
+    if (token.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < token.length(); i++) {
+      if (token.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,135 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An index of tokens by their character trigrams for finding the tokens most similar to one that
+ * isn't in the vocabulary, e.g. "MKTPLACE" for "Mktp". Tokens are compared case insensitively and
+ * padded at both ends so that their first and last characters carry extra weight. Similarity is
+ * the Dice coefficient of the two tokens' trigram sets.
+ *
+ * <p>A lookup only visits the tokens that share a trigram with the query. Lookups can run
+ * concurrently with each other but not with {@link #add}.
+ */
+final class TrigramIndex {
+
+  private static final char PADDING = '$';
+
+  /** The ids of the tokens containing each trigram. */
+  private final Map<Integer, PostingList> tokenIdsByTrigram = new HashMap<>();
+  /** The number of distinct trigrams in each token, indexed by token id. */
+  private int[] trigramCountsByTokenId = new int[16];
+  private int tokenCount = 0;
+  private final ThreadLocal<LookupScratch> lookupScratch =
+      ThreadLocal.withInitial(LookupScratch::new);
+
+  /** Adds the token. Tokens must be added in order of their id, starting from zero. */
+  void add(int tokenId, char[] chars, int start, int end) {
+    checkArgument(
+        tokenId == tokenCount,
+        "Expected token id %s to be added next but got %s",
+        tokenCount,
+        tokenId);
+    int[] trigrams = distinctTrigrams(chars, start, end);
+    for (int trigram : trigrams) {
+      tokenIdsByTrigram.computeIfAbsent(trigram, (unused) -> new PostingList()).add(tokenId);
+    }
+    if (tokenId == trigramCountsByTokenId.length) {
+      trigramCountsByTokenId = Arrays.copyOf(trigramCountsByTokenId, tokenId * 2);
+    }
+    trigramCountsByTokenId[tokenId] = trigrams.length;
+    tokenCount++;
+  }
+
+  /**
+   * Returns the token most similar to the query if its similarity is at least the minimum. Ties are
+   * broken in favor of the lowest token id.
+   */
+  Optional<SimilarToken> mostSimilar(
+      char[] chars, int start, int end, double minimumSimilarity) {
+    int[] queryTrigrams = distinctTrigrams(chars, start, end);
+    LookupScratch scratch = lookupScratch.get();
+    if (scratch.sharedTrigramCounts.length < tokenCount) {
+      int capacity = Math.max(tokenCount, scratch.sharedTrigramCounts.length * 2);
+      scratch.sharedTrigramCounts = new int[capacity];
+      scratch.candidateTokenIds = new int[capacity];
+    }
+    int[] sharedTrigramCounts = scratch.sharedTrigramCounts;
+    int[] candidateTokenIds = scratch.candidateTokenIds;
+    int candidateCount = 0;
+    for (int trigram : queryTrigrams) {
+      PostingList tokenIds = tokenIdsByTrigram.get(trigram);
+      if (tokenIds == null) {
+        continue;
+      }
+      for (int i = 0; i < tokenIds.size(); i++) {
+        int tokenId = tokenIds.get(i);
+        if (sharedTrigramCounts[tokenId]++ == 0) {
+          candidateTokenIds[candidateCount++] = tokenId;
+        }
+      }
+    }
+    int bestTokenId = -1;
+    double bestSimilarity = minimumSimilarity;
+    for (int i = 0; i < candidateCount; i++) {
+      int tokenId = candidateTokenIds[i];
+      int combinedTrigramCount = queryTrigrams.length + trigramCountsByTokenId[tokenId];
+      double similarity = 2.0 * sharedTrigramCounts[tokenId] / combinedTrigramCount;
+      boolean isTie =
+          similarity == bestSimilarity && (bestTokenId == -1 || tokenId < bestTokenId);
+      if (similarity > bestSimilarity || isTie) {
+        bestTokenId = tokenId;
+        bestSimilarity = similarity;
+      }
+      sharedTrigramCounts[tokenId] = 0;
+    }
+    return bestTokenId == -1
+        ? Optional.empty()
+        : Optional.of(SimilarToken.create(bestTokenId, bestSimilarity));
+  }
+
+  /** Returns the sorted distinct trigrams of the padded, lower cased token packed into ints. */
+  private static int[] distinctTrigrams(char[] chars, int start, int end) {
+    int length = end - start;
+    int[] trigrams = new int[length];
+    for (int i = 0; i < length; i++) {
+      char first = i == 0 ? PADDING : Character.toLowerCase(chars[start + i - 1]);
+      char second = Character.toLowerCase(chars[start + i]);
+      char third = i == length - 1 ? PADDING : Character.toLowerCase(chars[start + i + 1]);
+      trigrams[i] = (first << 16) ^ (second << 8) ^ third;
+    }
+    Arrays.sort(trigrams);
+    int distinctCount = 0;
+    for (int i = 0; i < trigrams.length; i++) {
+      if (distinctCount == 0 || trigrams[distinctCount - 1] != trigrams[i]) {
+        trigrams[distinctCount++] = trigrams[i];
+      }
+    }
+    return Arrays.copyOf(trigrams, distinctCount);
+  }
+
+  /** Scratch space for the lookups made by one thread, indexed by token id. */
+  private static class LookupScratch {
+    /** Cleared after every lookup. */
+    private int[] sharedTrigramCounts = new int[0];
+    private int[] candidateTokenIds = new int[0];
+  }
+
+  @AutoValue
+  abstract static class SimilarToken {
+    static SimilarToken create(int tokenId, double similarity) {
+      return new AutoValue_TrigramIndex_SimilarToken(tokenId, similarity);
+    }
+
+    abstract int tokenId();
+
+    /** The Dice coefficient of the query's and the token's trigrams, between 0 and 1. */
+    abstract double similarity();
+  }
+}
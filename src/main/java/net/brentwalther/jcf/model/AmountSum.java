@@ -0,0 +1,70 @@
+package net.brentwalther.jcf.model;
+
+import java.math.BigDecimal;
+import net.brentwalther.jcf.model.JcfModel.Split;
+
+/**
+ * A running sum of split amounts. Amounts that are a whole number of cents are summed as a long
+ * without allocating. Amounts with exotic denominators, and any cents that would overflow the long,
+ * are carried separately as a {@link BigDecimal} so the sum is always exact.
+ *
+ * <p>Instances are mutable and not thread-safe.
+ */
+public final class AmountSum {
+
+  private long cents = 0;
+  /** The sum of the amounts that are not whole cents and of the cents that overflowed. */
+  private BigDecimal remainder = BigDecimal.ZERO;
+
+  private AmountSum() {}
+
+  public static AmountSum create() {
+    return new AmountSum();
+  }
+
+  /** Returns the sum of the amounts of the splits. */
+  public static AmountSum of(Iterable<Split> splits) {
+    AmountSum sum = new AmountSum();
+    for (Split split : splits) {
+      sum.add(split);
+    }
+    return sum;
+  }
+
+  public AmountSum add(Split split) {
+    if (ModelTransforms.hasWholeCentsAmount(split)) {
+      addCents(ModelTransforms.centsAmountForSplit(split));
+    } else {
+      remainder = remainder.add(ModelTransforms.bigDecimalAmountForSplit(split));
+    }
+    return this;
+  }
+
+  public AmountSum addCents(long amountInCents) {
+    try {
+      cents = Math.addExact(cents, amountInCents);
+    } catch (ArithmeticException e) {
+      remainder = remainder.add(BigDecimal.valueOf(amountInCents, 2));
+    }
+    return this;
+  }
+
+  /** Resets the sum to zero. */
+  public void clear() {
+    cents = 0;
+    remainder = BigDecimal.ZERO;
+  }
+
+  public boolean isZero() {
+    return remainder.signum() == 0 ? cents == 0 : value().signum() == 0;
+  }
+
+  /** Returns the sum in the same form as {@link ModelTransforms#bigDecimalAmountForSplit}. */
+  public BigDecimal value() {
+    BigDecimal value = BigDecimal.valueOf(cents, 2);
+    if (remainder.signum() != 0) {
+      value = value.add(remainder);
+    }
+    return value.stripTrailingZeros();
+  }
+}
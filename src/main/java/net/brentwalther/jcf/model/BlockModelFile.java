@@ -0,0 +1,443 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingOutputStream;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+
+/**
+ * A model saved to a file in blocks of transactions, so that it can be written as a stream and
+ * parts of it can be read without parsing the rest.
+ *
+ * <p>Each transaction is saved with its splits as a length-delimited {@link Model} record. Records
+ * are grouped into blocks, and a footer at the end of the file indexes the blocks by the post dates
+ * of their transactions and the accounts of their splits. Readers memory-map the footer and then
+ * only the blocks they need. The file holds, in order:
+ *
+ * <ol>
+ *   <li>The magic number and the format version.
+ *   <li>The blocks of records.
+ *   <li>The footer: the accounts as a length-prefixed proto, the IDs of the accounts that splits
+ *       refer to, and for each block its offset, length, transaction count, earliest and latest
+ *       post dates and the indexes of the account IDs of its splits.
+ *   <li>The offset of the footer and the magic number again.
+ * </ol>
+ */
+public final class BlockModelFile {
+
+  /** "JCFB" in ASCII. */
+  private static final int MAGIC = 0x4a434642;
+  /** Incremented whenever the format changes. */
+  private static final int VERSION = 1;
+  /** The footer offset and the magic number. */
+  private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private static final int DEFAULT_TRANSACTIONS_PER_BLOCK = 4096;
+
+  private final Path file;
+  private final ImmutableList<Account> accounts;
+  private final ImmutableList<Block> blocks;
+
+  private BlockModelFile(Path file, ImmutableList<Account> accounts, ImmutableList<Block> blocks) {
+    this.file = file;
+    this.accounts = accounts;
+    this.blocks = blocks;
+  }
+
+  /**
+   * Returns a writer of a new model file. The file is written in full, replacing any existing file,
+   * when the writer is committed. Closing the writer without committing it discards what it wrote.
+   */
+  public static Writer newWriter(Path file) throws IOException {
+    return newWriter(file, DEFAULT_TRANSACTIONS_PER_BLOCK);
+  }
+
+  static Writer newWriter(Path file, int transactionsPerBlock) throws IOException {
+    checkArgument(transactionsPerBlock > 0, "Blocks must hold at least one transaction.");
+    return new Writer(file, transactionsPerBlock);
+  }
+
+  /** Writes the model to the file with its transactions in post date order. */
+  public static void write(IndexedModel model, Path file) throws IOException {
+    try (Writer writer = newWriter(file)) {
+      writer.addAccounts(model.getAllAccounts());
+      for (Transaction transaction : model.getTransactionsInPostDateOrder()) {
+        writer.addTransaction(transaction, model.splitsForTransaction(transaction));
+      }
+      writer.commit();
+    }
+  }
+
+  /** Opens the model file, reading only its footer. */
+  public static BlockModelFile open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < 2 * Integer.BYTES + TRAILER_SIZE) {
+        throw new IOException("Too small to be a model file: " + file);
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 2 * Integer.BYTES);
+      ByteBuffer trailer =
+          channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE);
+      long footerOffset = trailer.getLong();
+      if (header.getInt() != MAGIC || trailer.getInt() != MAGIC) {
+        throw new IOException("Not a model file: " + file);
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unknown version " + version + " of model file: " + file);
+      }
+      MappedByteBuffer footer =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY, footerOffset, size - TRAILER_SIZE - footerOffset);
+      ImmutableList<Account> accounts =
+          ImmutableList.copyOf(Model.parseFrom(readBytes(footer)).getAccountList());
+      String[] splitAccountIds = new String[footer.getInt()];
+      for (int i = 0; i < splitAccountIds.length; i++) {
+        splitAccountIds[i] = new String(readBytes(footer), UTF_8);
+      }
+      ImmutableList.Builder<Block> blocks = ImmutableList.builder();
+      for (int blockCount = footer.getInt(); blockCount > 0; blockCount--) {
+        long offset = footer.getLong();
+        int length = footer.getInt();
+        int transactionCount = footer.getInt();
+        long earliestPostDate = footer.getLong();
+        long latestPostDate = footer.getLong();
+        ImmutableSet.Builder<String> accountIds = ImmutableSet.builder();
+        for (int accountCount = footer.getInt(); accountCount > 0; accountCount--) {
+          accountIds.add(splitAccountIds[footer.getInt()]);
+        }
+        blocks.add(
+            new Block(
+                offset,
+                length,
+                transactionCount,
+                earliestPostDate,
+                latestPostDate,
+                accountIds.build()));
+      }
+      return new BlockModelFile(file, accounts, blocks.build());
+    } catch (RuntimeException e) {
+      // A truncated or corrupt footer fails with one of many runtime exceptions.
+      throw new IOException("Corrupt model file: " + file, e);
+    }
+  }
+
+  public ImmutableList<Account> accounts() {
+    return accounts;
+  }
+
+  public int transactionCount() {
+    int transactionCount = 0;
+    for (Block block : blocks) {
+      transactionCount += block.transactionCount;
+    }
+    return transactionCount;
+  }
+
+  /** Reads the whole model. */
+  public IndexedModel load() throws IOException {
+    return load(block -> true, record -> true);
+  }
+
+  /**
+   * Reads the transactions posted from the start, inclusive, to the end, exclusive, and their
+   * splits. Only the blocks whose post dates overlap the range are read. All accounts are included.
+   */
+  public IndexedModel loadPostedBetween(Instant startInclusive, Instant endExclusive)
+      throws IOException {
+    long start = startInclusive.getEpochSecond();
+    long end = endExclusive.getEpochSecond();
+    return load(
+        block -> block.earliestPostDate < end && block.latestPostDate >= start,
+        record -> {
+          long postDate = record.getTransaction(0).getPostDateEpochSecond();
+          return start <= postDate && postDate < end;
+        });
+  }
+
+  /**
+   * Reads the transactions that have a split in the account, and all of their splits. Only the
+   * blocks that have such a split are read. All accounts are included.
+   */
+  public IndexedModel loadForAccount(String accountId) throws IOException {
+    return load(
+        block -> block.accountIds.contains(accountId),
+        record ->
+            record.getSplitList().stream()
+                .anyMatch(split -> split.getAccountId().equals(accountId)));
+  }
+
+  /** Reads the records that pass the filter from the blocks that pass the filter. */
+  private IndexedModel load(Predicate<Block> blockFilter, Predicate<Model> recordFilter)
+      throws IOException {
+    List<Block> blocksToRead = blocks.stream().filter(blockFilter).collect(toList());
+    List<List<Model>> recordsByBlock;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // Blocks are parsed in parallel, each from its own mapping.
+      recordsByBlock =
+          blocksToRead.parallelStream().map(block -> block.read(channel)).collect(toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt model file: " + file, e);
+    }
+    ModelMerger merger = ModelMerger.create().addAccounts(accounts);
+    for (List<Model> records : recordsByBlock) {
+      for (Model record : records) {
+        if (recordFilter.test(record)) {
+          merger.addTransactions(record.getTransactionList()).addSplits(record.getSplitList());
+        }
+      }
+    }
+    return merger.merge();
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Streams transactions to blocks of a temporary file that replaces the model file when the
+   * writer is committed. Instances are not thread-safe.
+   */
+  public static final class Writer implements Closeable {
+    private final Path file;
+    private final Path temporaryFile;
+    private final int transactionsPerBlock;
+    private final CountingOutputStream countingOutput;
+    private final DataOutputStream output;
+    private final Map<String, Account> accountsById = new LinkedHashMap<>();
+    /** The index of each account ID that a split refers to. */
+    private final Map<String, Integer> splitAccountIndexes = new LinkedHashMap<>();
+    private final List<BlockIndex> blockIndexes = new ArrayList<>();
+    private BlockIndex currentBlock = null;
+    private boolean closed = false;
+
+    private Writer(Path file, int transactionsPerBlock) throws IOException {
+      this.file = file;
+      this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+      this.transactionsPerBlock = transactionsPerBlock;
+      this.countingOutput =
+          new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)));
+      this.output = new DataOutputStream(countingOutput);
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+    }
+
+    /** Adds the accounts, which are kept in memory until the writer is committed. */
+    public Writer addAccounts(Iterable<Account> accounts) {
+      checkState(!closed, "The writer is closed.");
+      for (Account account : accounts) {
+        accountsById.put(account.getId(), account);
+      }
+      return this;
+    }
+
+    /** Writes the transaction and its splits to the current block. */
+    public Writer addTransaction(Transaction transaction, Iterable<Split> splits)
+        throws IOException {
+      checkState(!closed, "The writer is closed.");
+      if (currentBlock == null) {
+        currentBlock = new BlockIndex(countingOutput.getCount());
+      }
+      Model record = Model.newBuilder().addTransaction(transaction).addAllSplit(splits).build();
+      record.writeDelimitedTo(output);
+      currentBlock.add(transaction.getPostDateEpochSecond());
+      for (Split split : record.getSplitList()) {
+        Integer index = splitAccountIndexes.get(split.getAccountId());
+        if (index == null) {
+          index = splitAccountIndexes.size();
+          splitAccountIndexes.put(split.getAccountId(), index);
+        }
+        currentBlock.accountIndexes.set(index);
+      }
+      if (currentBlock.transactionCount == transactionsPerBlock) {
+        finishBlock();
+      }
+      return this;
+    }
+
+    /**
+     * Writes the footer and replaces the file with the written one. If this fails, the written one
+     * is deleted and the file is left as it was.
+     */
+    public void commit() throws IOException {
+      checkState(!closed, "The writer is closed.");
+      closed = true;
+      try {
+        finishBlock();
+        long footerOffset = countingOutput.getCount();
+        writeBytes(Model.newBuilder().addAllAccount(accountsById.values()).build().toByteArray());
+        output.writeInt(splitAccountIndexes.size());
+        for (String accountId : splitAccountIndexes.keySet()) {
+          writeBytes(accountId.getBytes(UTF_8));
+        }
+        output.writeInt(blockIndexes.size());
+        for (BlockIndex block : blockIndexes) {
+          output.writeLong(block.offset);
+          output.writeInt(block.length);
+          output.writeInt(block.transactionCount);
+          output.writeLong(block.earliestPostDate);
+          output.writeLong(block.latestPostDate);
+          output.writeInt(block.accountIndexes.cardinality());
+          for (int i = block.accountIndexes.nextSetBit(0);
+              i >= 0;
+              i = block.accountIndexes.nextSetBit(i + 1)) {
+            output.writeInt(i);
+          }
+        }
+        output.writeLong(footerOffset);
+        output.writeInt(MAGIC);
+        output.close();
+        // Readers never see a partially written file.
+        Files.move(
+            temporaryFile,
+            file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException | RuntimeException e) {
+        try {
+          discard();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+    }
+
+    /**
+     * Discards what was written unless the writer was committed, so that a failed write never
+     * replaces the file.
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      discard();
+    }
+
+    private void discard() throws IOException {
+      try {
+        output.close();
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+    }
+
+    private void finishBlock() throws IOException {
+      if (currentBlock == null) {
+        return;
+      }
+      output.flush();
+      long length = countingOutput.getCount() - currentBlock.offset;
+      checkState(length <= Integer.MAX_VALUE, "The block is too large. Use smaller blocks.");
+      currentBlock.length = (int) length;
+      blockIndexes.add(currentBlock);
+      currentBlock = null;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  /** The index entry of a block that is being written. */
+  private static class BlockIndex {
+    private final long offset;
+    private final BitSet accountIndexes = new BitSet();
+    private int length = 0;
+    private int transactionCount = 0;
+    private long earliestPostDate = Long.MAX_VALUE;
+    private long latestPostDate = Long.MIN_VALUE;
+
+    private BlockIndex(long offset) {
+      this.offset = offset;
+    }
+
+    private void add(long postDate) {
+      transactionCount++;
+      earliestPostDate = Math.min(earliestPostDate, postDate);
+      latestPostDate = Math.max(latestPostDate, postDate);
+    }
+  }
+
+  /** The index entry of a block that was read from the footer. */
+  private static class Block {
+    private final long offset;
+    private final int length;
+    private final int transactionCount;
+    private final long earliestPostDate;
+    private final long latestPostDate;
+    private final ImmutableSet<String> accountIds;
+
+    private Block(
+        long offset,
+        int length,
+        int transactionCount,
+        long earliestPostDate,
+        long latestPostDate,
+        ImmutableSet<String> accountIds) {
+      this.offset = offset;
+      this.length = length;
+      this.transactionCount = transactionCount;
+      this.earliestPostDate = earliestPostDate;
+      this.latestPostDate = latestPostDate;
+      this.accountIds = accountIds;
+    }
+
+    /** Maps the block and parses its records, each a transaction and its splits. */
+    private List<Model> read(FileChannel channel) {
+      try {
+        CodedInputStream input =
+            CodedInputStream.newInstance(
+                channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+        List<Model> records = new ArrayList<>(transactionCount);
+        while (!input.isAtEnd()) {
+          records.add(input.readMessage(Model.parser(), ExtensionRegistryLite.getEmptyRegistry()));
+        }
+        if (records.size() != transactionCount) {
+          throw new InvalidProtocolBufferException(
+              "Expected " + transactionCount + " records but found " + records.size());
+        }
+        return records;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,433 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static net.brentwalther.jcf.model.ModelTransforms.CENTS_PER_UNIT;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.math.LongMath;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+
+/**
+ * An immutable, column oriented view of a {@link JcfModel.Model} proto with the same queries as
+ * {@link IndexedModel}, for models too large to keep as millions of individual protos.
+ *
+ * <p>Transactions and splits are addressed by dense int handles. Ids and descriptions are stored
+ * as UTF-8 in shared byte arrays, post dates and amounts in primitive arrays and a split's account
+ * as an int handle. The splits are grouped by transaction so that a transaction's splits are the
+ * range of split handles between two offsets (compressed sparse row form). Amounts are stored in
+ * cents, which is exact for nearly every split. The few splits whose amount isn't a whole number of
+ * cents also keep their original fraction on the side so that their amount stays exact.
+ *
+ * <p>Transactions and splits are returned as flyweight views that only hold a handle. They're
+ * created on demand and can be converted back to protos. Like {@link IndexedModel}, the splits of
+ * transactions that aren't in the model are kept.
+ */
+public final class ColumnarModel {
+
+  /** Accounts are few so they're kept as protos. The handle of an account is its position. */
+  private final ImmutableList<Account> accounts;
+  private final ImmutableMap<String, Integer> accountHandlesById;
+  /**
+   * The ids of the accounts referenced by splits, indexed by account handle. The ids of the
+   * accounts in the model come first, followed by the ids of any accounts the model is missing.
+   */
+  private final ImmutableList<String> accountIds;
+  private final int transactionCount;
+  /**
+   * Indexed by transaction handle. The ids of the transactions in the model come first, followed by
+   * the ids of any transactions the model is missing that splits refer to.
+   */
+  private final StringColumn transactionIds;
+  private final StringColumn descriptions;
+  private final long[] postDateEpochSeconds;
+  /**
+   * The splits of the transaction with handle {@code t} have the handles from {@code
+   * splitOffsets[t]} up to but excluding {@code splitOffsets[t + 1]}.
+   */
+  private final int[] splitOffsets;
+  private final int[] splitTransactionHandles;
+  private final int[] splitAccountHandles;
+  /** Each split's amount in cents, rounded half up if it isn't a whole number of cents. */
+  private final long[] amountsInCents;
+  /**
+   * The exact amounts of the splits whose amount isn't a whole number of cents, keyed by split
+   * handle. Each fraction is packed into a long with {@link #packFraction}.
+   */
+  private final ImmutableMap<Integer, Long> fractionsOfInexactSplits;
+
+  private ColumnarModel(
+      ImmutableList<Account> accounts,
+      ImmutableMap<String, Integer> accountHandlesById,
+      ImmutableList<String> accountIds,
+      int transactionCount,
+      StringColumn transactionIds,
+      StringColumn descriptions,
+      long[] postDateEpochSeconds,
+      int[] splitOffsets,
+      int[] splitTransactionHandles,
+      int[] splitAccountHandles,
+      long[] amountsInCents,
+      ImmutableMap<Integer, Long> fractionsOfInexactSplits) {
+    this.accounts = accounts;
+    this.accountHandlesById = accountHandlesById;
+    this.accountIds = accountIds;
+    this.transactionCount = transactionCount;
+    this.transactionIds = transactionIds;
+    this.descriptions = descriptions;
+    this.postDateEpochSeconds = postDateEpochSeconds;
+    this.splitOffsets = splitOffsets;
+    this.splitTransactionHandles = splitTransactionHandles;
+    this.splitAccountHandles = splitAccountHandles;
+    this.amountsInCents = amountsInCents;
+    this.fractionsOfInexactSplits = fractionsOfInexactSplits;
+  }
+
+  /**
+   * Returns a columnar copy of the model. Account and transaction ids must be unique and every
+   * split must have a positive denominator.
+   */
+  public static ColumnarModel create(Model model) {
+    ImmutableList<Account> accounts = ImmutableList.copyOf(model.getAccountList());
+    Map<String, Integer> accountHandlesById = new HashMap<>();
+    List<String> accountIds = new ArrayList<>(accounts.size());
+    for (Account account : accounts) {
+      checkArgument(
+          accountHandlesById.put(account.getId(), accountIds.size()) == null,
+          "Duplicate account id: %s",
+          account.getId());
+      accountIds.add(account.getId());
+    }
+
+    int transactionCount = model.getTransactionCount();
+    StringColumn.Builder transactionIds = StringColumn.builder(transactionCount);
+    StringColumn.Builder descriptions = StringColumn.builder(transactionCount);
+    long[] postDateEpochSeconds = new long[transactionCount];
+    // Only needed while building, since the id column is indexed afterwards.
+    Map<String, Integer> transactionHandlesById = new HashMap<>(transactionCount * 2);
+    for (Transaction transaction : model.getTransactionList()) {
+      int handle = transactionIds.add(transaction.getId());
+      checkArgument(
+          transactionHandlesById.put(transaction.getId(), handle) == null,
+          "Duplicate transaction id: %s",
+          transaction.getId());
+      descriptions.add(transaction.getDescription());
+      postDateEpochSeconds[handle] = transaction.getPostDateEpochSecond();
+    }
+
+    int splitCount = model.getSplitCount();
+    int[] transactionHandlesInInputOrder = new int[splitCount];
+    for (int i = 0; i < splitCount; i++) {
+      Split split = model.getSplit(i);
+      checkArgument(
+          split.getValueDenominator() > 0,
+          "Split of transaction %s has a non-positive denominator: %s",
+          split.getTransactionId(),
+          split.getValueDenominator());
+      Integer transactionHandle = transactionHandlesById.get(split.getTransactionId());
+      if (transactionHandle == null) {
+        transactionHandle = transactionIds.add(split.getTransactionId());
+        transactionHandlesById.put(split.getTransactionId(), transactionHandle);
+      }
+      transactionHandlesInInputOrder[i] = transactionHandle;
+    }
+
+    // Group the splits by transaction with a counting sort, which keeps each transaction's splits
+    // in their input order.
+    int transactionHandleCount = transactionHandlesById.size();
+    int[] splitOffsets = new int[transactionHandleCount + 1];
+    for (int transactionHandle : transactionHandlesInInputOrder) {
+      splitOffsets[transactionHandle + 1]++;
+    }
+    for (int t = 0; t < transactionHandleCount; t++) {
+      splitOffsets[t + 1] += splitOffsets[t];
+    }
+    int[] nextSplitHandles = splitOffsets.clone();
+    int[] splitTransactionHandles = new int[splitCount];
+    int[] splitAccountHandles = new int[splitCount];
+    long[] amountsInCents = new long[splitCount];
+    ImmutableMap.Builder<Integer, Long> fractionsOfInexactSplits = ImmutableMap.builder();
+    for (int i = 0; i < splitCount; i++) {
+      Split split = model.getSplit(i);
+      int transactionHandle = transactionHandlesInInputOrder[i];
+      int splitHandle = nextSplitHandles[transactionHandle]++;
+      Integer accountHandle = accountHandlesById.get(split.getAccountId());
+      if (accountHandle == null) {
+        accountHandle = accountIds.size();
+        accountHandlesById.put(split.getAccountId(), accountHandle);
+        accountIds.add(split.getAccountId());
+      }
+      splitTransactionHandles[splitHandle] = transactionHandle;
+      splitAccountHandles[splitHandle] = accountHandle;
+      if (ModelTransforms.hasWholeCentsAmount(split)) {
+        amountsInCents[splitHandle] = ModelTransforms.centsAmountForSplit(split);
+      } else {
+        // The numerator is an int, so the amount in cents always fits in a long.
+        amountsInCents[splitHandle] =
+            LongMath.divide(
+                (long) split.getValueNumerator() * CENTS_PER_UNIT,
+                split.getValueDenominator(),
+                RoundingMode.HALF_UP);
+        fractionsOfInexactSplits.put(
+            splitHandle, packFraction(split.getValueNumerator(), split.getValueDenominator()));
+      }
+    }
+
+    ImmutableMap.Builder<String, Integer> handlesOfKnownAccountsById =
+        ImmutableMap.builderWithExpectedSize(accounts.size());
+    for (int handle = 0; handle < accounts.size(); handle++) {
+      handlesOfKnownAccountsById.put(accountIds.get(handle), handle);
+    }
+    return new ColumnarModel(
+        accounts,
+        handlesOfKnownAccountsById.build(),
+        ImmutableList.copyOf(accountIds),
+        transactionCount,
+        transactionIds.build(/* indexed= */ true),
+        descriptions.build(/* indexed= */ false),
+        postDateEpochSeconds,
+        splitOffsets,
+        splitTransactionHandles,
+        splitAccountHandles,
+        amountsInCents,
+        fractionsOfInexactSplits.build());
+  }
+
+  public ImmutableList<Account> getAllAccounts() {
+    return accounts;
+  }
+
+  public Optional<Account> getAccountById(String accountId) {
+    Integer handle = accountHandlesById.get(accountId);
+    return handle == null ? Optional.empty() : Optional.of(accounts.get(handle));
+  }
+
+  public int getTransactionCount() {
+    return transactionCount;
+  }
+
+  /** Returns the transactions of the model in their original order. */
+  public List<TransactionView> getAllTransactions() {
+    return new AbstractList<TransactionView>() {
+      @Override
+      public TransactionView get(int index) {
+        checkElementIndex(index, transactionCount);
+        return new TransactionView(index);
+      }
+
+      @Override
+      public int size() {
+        return transactionCount;
+      }
+    };
+  }
+
+  public Optional<TransactionView> getTransactionById(String transactionId) {
+    int handle = transactionIds.positionOf(transactionId);
+    return handle == StringColumn.NOT_FOUND || handle >= transactionCount
+        ? Optional.empty()
+        : Optional.of(new TransactionView(handle));
+  }
+
+  public List<SplitView> splitsForTransaction(TransactionView transaction) {
+    return splitRange(splitOffsets[transaction.handle], splitOffsets[transaction.handle + 1]);
+  }
+
+  /** Returns the splits of the transaction, which doesn't need to be in the model. */
+  public List<SplitView> splitsForTransaction(String transactionId) {
+    int handle = transactionIds.positionOf(transactionId);
+    return handle == StringColumn.NOT_FOUND
+        ? ImmutableList.of()
+        : splitRange(splitOffsets[handle], splitOffsets[handle + 1]);
+  }
+
+  /** Returns every split, grouped by transaction. */
+  public List<SplitView> getAllSplits() {
+    return splitRange(0, amountsInCents.length);
+  }
+
+  public Model toProto() {
+    List<Transaction> transactions = new ArrayList<>(transactionCount);
+    for (TransactionView transaction : getAllTransactions()) {
+      transactions.add(transaction.toProto());
+    }
+    List<Split> splits = new ArrayList<>(amountsInCents.length);
+    for (SplitView split : getAllSplits()) {
+      splits.add(split.toProto());
+    }
+    return ModelGenerators.create(accounts, transactions, splits);
+  }
+
+  private static long packFraction(int numerator, int denominator) {
+    return ((long) numerator << 32) | (denominator & 0xFFFFFFFFL);
+  }
+
+  private static int numeratorOf(long fraction) {
+    return (int) (fraction >> 32);
+  }
+
+  private static int denominatorOf(long fraction) {
+    return (int) fraction;
+  }
+
+  private List<SplitView> splitRange(int start, int end) {
+    return new AbstractList<SplitView>() {
+      @Override
+      public SplitView get(int index) {
+        checkElementIndex(index, end - start);
+        return new SplitView(start + index);
+      }
+
+      @Override
+      public int size() {
+        return end - start;
+      }
+    };
+  }
+
+  /** A transaction of the model. Only holds the transaction's handle. */
+  public final class TransactionView {
+    private final int handle;
+
+    private TransactionView(int handle) {
+      this.handle = handle;
+    }
+
+    public String id() {
+      return transactionIds.get(handle);
+    }
+
+    public String description() {
+      return descriptions.get(handle);
+    }
+
+    public long postDateEpochSecond() {
+      return postDateEpochSeconds[handle];
+    }
+
+    public Transaction toProto() {
+      return Transaction.newBuilder()
+          .setId(id())
+          .setDescription(description())
+          .setPostDateEpochSecond(postDateEpochSecond())
+          .build();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof TransactionView
+          && ((TransactionView) other).model() == ColumnarModel.this
+          && ((TransactionView) other).handle == handle;
+    }
+
+    @Override
+    public int hashCode() {
+      return handle;
+    }
+
+    @Override
+    public String toString() {
+      return "TransactionView{" + id() + "}";
+    }
+
+    private ColumnarModel model() {
+      return ColumnarModel.this;
+    }
+  }
+
+  /** A split of the model. Only holds the split's handle. */
+  public final class SplitView {
+    private final int handle;
+
+    private SplitView(int handle) {
+      this.handle = handle;
+    }
+
+    public String transactionId() {
+      return transactionIds.get(splitTransactionHandles[handle]);
+    }
+
+    public String accountId() {
+      return accountIds.get(splitAccountHandles[handle]);
+    }
+
+    /** Returns the split's account, unless the model doesn't have it. */
+    public Optional<Account> account() {
+      int accountHandle = splitAccountHandles[handle];
+      return accountHandle < accounts.size()
+          ? Optional.of(accounts.get(accountHandle))
+          : Optional.empty();
+    }
+
+    /** Returns whether the split's amount is a whole number of cents, as nearly all are. */
+    public boolean hasWholeCentsAmount() {
+      return !fractionsOfInexactSplits.containsKey(handle);
+    }
+
+    /**
+     * Returns the split's amount in cents. It's rounded half up if the amount isn't a whole number
+     * of cents, which {@link #amount()} and {@link #toProto()} don't do.
+     */
+    public long amountInCents() {
+      return amountsInCents[handle];
+    }
+
+    public BigDecimal amount() {
+      Long fraction = fractionsOfInexactSplits.get(handle);
+      if (fraction == null) {
+        return BigDecimal.valueOf(amountsInCents[handle], 2).stripTrailingZeros();
+      }
+      return new BigDecimal(numeratorOf(fraction))
+          .setScale(50, RoundingMode.UNNECESSARY)
+          .divide(new BigDecimal(denominatorOf(fraction)), RoundingMode.HALF_UP)
+          .stripTrailingZeros();
+    }
+
+    /** Returns the split as a proto. Its amount is reduced to the lowest terms. */
+    public Split toProto() {
+      Long fraction = fractionsOfInexactSplits.get(handle);
+      long numerator = fraction == null ? amountsInCents[handle] : numeratorOf(fraction);
+      long denominator = fraction == null ? CENTS_PER_UNIT : denominatorOf(fraction);
+      long gcd = LongMath.gcd(Math.abs(numerator), denominator);
+      return Split.newBuilder()
+          .setTransactionId(transactionId())
+          .setAccountId(accountId())
+          .setValueNumerator(Math.toIntExact(numerator / gcd))
+          .setValueDenominator(Math.toIntExact(denominator / gcd))
+          .build();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof SplitView
+          && ((SplitView) other).model() == ColumnarModel.this
+          && ((SplitView) other).handle == handle;
+    }
+
+    @Override
+    public int hashCode() {
+      return handle;
+    }
+
+    @Override
+    public String toString() {
+      return "SplitView{" + transactionId() + ", " + accountId() + ", " + amount() + "}";
+    }
+
+    private ColumnarModel model() {
+      return ColumnarModel.this;
+    }
+  }
+}
@@ -1,14 +1,18 @@
 package net.brentwalther.jcf.model;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Optional;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
@@ -18,6 +22,9 @@ import net.brentwalther.jcf.model.JcfModel.Transaction;
 /**
  * An immutable indexed view of a {@link JcfModel.Model} proto. This data structure produces a more
  * easily consumable "database" view of the proto.
+ *
+ * <p>Splits are indexed by transaction up front. The secondary indexes, of splits by account,
+ * transactions by post date and accounts by parent, are built on first use and then reused.
  */
 public class IndexedModel {
 
@@ -25,16 +32,39 @@ public class IndexedModel {
   private final ImmutableMap<String, Transaction> transactionsById;
   private final ImmutableListMultimap<String, Split> splitsByTransactionId;
   private final Instant creationInstant;
+  private final Supplier<ImmutableListMultimap<String, Split>> splitsByAccountId;
+  private final Supplier<PostDateIndex> postDateIndex;
+  private final Supplier<ImmutableListMultimap<String, Account>> accountsByParentId;
 
-  private IndexedModel(Model model) {
-    this.accountsById = Maps.uniqueIndex(model.getAccountList(), Account::getId);
-    this.transactionsById = Maps.uniqueIndex(model.getTransactionList(), Transaction::getId);
-    this.splitsByTransactionId = Multimaps.index(model.getSplitList(), Split::getTransactionId);
+  private IndexedModel(
+      ImmutableMap<String, Account> accountsById,
+      ImmutableMap<String, Transaction> transactionsById,
+      ImmutableListMultimap<String, Split> splitsByTransactionId) {
+    this.accountsById = accountsById;
+    this.transactionsById = transactionsById;
+    this.splitsByTransactionId = splitsByTransactionId;
     this.creationInstant = Instant.now();
+    this.splitsByAccountId =
+        Suppliers.memoize(
+            () -> Multimaps.index(splitsByTransactionId.values(), Split::getAccountId));
+    this.postDateIndex = Suppliers.memoize(() -> PostDateIndex.create(transactionsById.values()));
+    this.accountsByParentId =
+        Suppliers.memoize(() -> Multimaps.index(accountsById.values(), Account::getParentId));
   }
 
   public static IndexedModel create(Model model) {
-    return new IndexedModel(model);
+    return new IndexedModel(
+        Maps.uniqueIndex(model.getAccountList(), Account::getId),
+        Maps.uniqueIndex(model.getTransactionList(), Transaction::getId),
+        Multimaps.index(model.getSplitList(), Split::getTransactionId));
+  }
+
+  /** Returns a model of indexes that have already been built, such as by {@link ModelMerger}. */
+  static IndexedModel create(
+      ImmutableMap<String, Account> accountsById,
+      ImmutableMap<String, Transaction> transactionsById,
+      ImmutableListMultimap<String, Split> splitsByTransactionId) {
+    return new IndexedModel(accountsById, transactionsById, splitsByTransactionId);
   }
 
   public ImmutableCollection<Account> getAllAccounts() {
@@ -61,6 +91,36 @@ public class IndexedModel {
     return splitsByTransactionId.values();
   }
 
+  /** Returns the splits of the account, including those of transactions not in the model. */
+  public ImmutableList<Split> splitsForAccount(Account account) {
+    return splitsByAccountId.get().get(account.getId());
+  }
+
+  /** Returns the accounts whose parent is the specified account. */
+  public ImmutableList<Account> childrenOfAccount(Account account) {
+    return accountsByParentId.get().get(account.getId());
+  }
+
+  /**
+   * Returns every transaction ordered by post date. Transactions posted at the same time keep their
+   * order in the model.
+   */
+  public ImmutableList<Transaction> getTransactionsInPostDateOrder() {
+    return postDateIndex.get().transactions;
+  }
+
+  /**
+   * Returns the transactions posted from the start, inclusive, to the end, exclusive, ordered by
+   * post date.
+   */
+  public ImmutableList<Transaction> getTransactionsPostedBetween(
+      Instant startInclusive, Instant endExclusive) {
+    PostDateIndex index = postDateIndex.get();
+    int start = index.firstPostedAtOrAfter(startInclusive.getEpochSecond());
+    int end = index.firstPostedAtOrAfter(endExclusive.getEpochSecond());
+    return start < end ? index.transactions.subList(start, end) : ImmutableList.of();
+  }
+
   public Optional<Account> getAccountById(String accountId) {
     return Optional.ofNullable(accountsById.get(accountId));
   }
@@ -83,4 +143,40 @@ public class IndexedModel {
     return ModelGenerators.create(
         accountsById.values(), transactionsById.values(), splitsByTransactionId.values());
   }
+
+  /** The transactions sorted by post date alongside their post dates for binary searches. */
+  private static class PostDateIndex {
+    private final ImmutableList<Transaction> transactions;
+    private final long[] postDateEpochSeconds;
+
+    private PostDateIndex(ImmutableList<Transaction> transactions) {
+      this.transactions = transactions;
+      this.postDateEpochSeconds = new long[transactions.size()];
+      for (int i = 0; i < transactions.size(); i++) {
+        postDateEpochSeconds[i] = transactions.get(i).getPostDateEpochSecond();
+      }
+    }
+
+    private static PostDateIndex create(ImmutableCollection<Transaction> transactions) {
+      // The sort is stable, so transactions posted at the same time keep their order.
+      return new PostDateIndex(
+          Ordering.from(Comparator.comparingLong(Transaction::getPostDateEpochSecond))
+              .immutableSortedCopy(transactions));
+    }
+
+    /** Returns the index of the first transaction posted at or after the epoch second. */
+    private int firstPostedAtOrAfter(long epochSecond) {
+      int low = 0;
+      int high = postDateEpochSeconds.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (postDateEpochSeconds[middle] < epochSecond) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
 }
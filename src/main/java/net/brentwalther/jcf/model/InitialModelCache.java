@@ -0,0 +1,87 @@
+package net.brentwalther.jcf.model;
+
+import com.google.common.base.Supplier;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Caches the initial model in a directory so that it's only imported and merged again when its
+ * inputs change.
+ *
+ * <p>The cache file is named after a hash of the inputs, so the model of other inputs is never
+ * loaded. Only the model of the latest inputs is kept. A cache file that can't be read or written
+ * is logged and the model is built instead.
+ */
+public final class InitialModelCache {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+  private static final String FILE_PREFIX = "initial_model_";
+  /** Incremented whenever an importer changes the models it makes to invalidate old caches. */
+  private static final int VERSION = 1;
+
+  private final Path cacheDir;
+  private final Path cacheFile;
+  private final Supplier<IndexedModel> modelBuilder;
+
+  private InitialModelCache(Path cacheDir, Path cacheFile, Supplier<IndexedModel> modelBuilder) {
+    this.cacheDir = cacheDir;
+    this.cacheFile = cacheFile;
+    this.modelBuilder = modelBuilder;
+  }
+
+  /**
+   * Returns a cache in the directory for the model of the inputs with the hash, which the model
+   * builder builds on a cache miss.
+   */
+  public static InitialModelCache create(
+      Path cacheDir, HashCode inputHash, Supplier<IndexedModel> modelBuilder) {
+    String cacheKey =
+        Hashing.sha256()
+            .newHasher()
+            .putInt(VERSION)
+            .putBytes(inputHash.asBytes())
+            .hash()
+            .toString();
+    return new InitialModelCache(cacheDir, cacheDir.resolve(FILE_PREFIX + cacheKey), modelBuilder);
+  }
+
+  /** Returns the cached model, or builds and caches the model if there isn't a readable one. */
+  public IndexedModel get() {
+    if (Files.isRegularFile(cacheFile)) {
+      try {
+        IndexedModel model = BlockModelFile.open(cacheFile).load();
+        LOGGER.atInfo().log("Loaded the initial model from cache: %s", cacheFile);
+        return model;
+      } catch (IOException e) {
+        LOGGER.atWarning().withCause(e).log("Could not read initial model cache: %s", cacheFile);
+      }
+    }
+    return rebuild();
+  }
+
+  /** Builds the model and caches it in place of any cached model. */
+  public IndexedModel rebuild() {
+    IndexedModel model = modelBuilder.get();
+    try {
+      Files.createDirectories(cacheDir);
+      BlockModelFile.write(model, cacheFile);
+      LOGGER.atInfo().log("Saved the initial model to cache: %s", cacheFile);
+      try (DirectoryStream<Path> staleFiles =
+          Files.newDirectoryStream(cacheDir, FILE_PREFIX + "*")) {
+        for (Path staleFile : staleFiles) {
+          if (!staleFile.equals(cacheFile)) {
+            Files.deleteIfExists(staleFile);
+          }
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not write initial model cache: %s", cacheFile);
+    }
+    return model;
+  }
+}
@@ -0,0 +1,198 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hashing;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import net.brentwalther.jcf.string.Formatter;
+
+/**
+ * Merges any number of models, or streams of their records, into a single {@link IndexedModel}.
+ *
+ * <p>Records are merged in the order they're added: an account or transaction replaces any added
+ * earlier with the same ID, and records without an ID are given one. Identical splits of the same
+ * transaction are merged into one. Splits that refer to a transaction or account missing from the
+ * merged model are dropped, and unbalanced transactions are logged.
+ *
+ * <p>Transactions and their splits are partitioned by transaction ID as they're added, so that the
+ * partitions can be validated in parallel and are only copied once, into the indexed model.
+ * Instances are not thread-safe and can only be merged once.
+ */
+public final class ModelMerger {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+
+  private static final int DEFAULT_PARTITION_COUNT =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 4;
+
+  private final Map<String, Account> accountsById = new LinkedHashMap<>();
+  private final Partition[] partitions;
+  private boolean merged = false;
+
+  private ModelMerger(int partitionCount) {
+    this.partitions = new Partition[partitionCount];
+    for (int i = 0; i < partitionCount; i++) {
+      partitions[i] = new Partition();
+    }
+  }
+
+  public static ModelMerger create() {
+    return new ModelMerger(DEFAULT_PARTITION_COUNT);
+  }
+
+  public static ModelMerger create(int partitionCount) {
+    checkArgument(partitionCount > 0, "There must be at least one partition.");
+    return new ModelMerger(partitionCount);
+  }
+
+  /** Adds all the records of the model. */
+  public ModelMerger add(Model model) {
+    return addAccounts(model.getAccountList())
+        .addTransactions(model.getTransactionList())
+        .addSplits(model.getSplitList());
+  }
+
+  public ModelMerger addAccounts(Iterable<Account> accounts) {
+    checkNotMerged();
+    for (Account account : accounts) {
+      String accountId = account.getId();
+      if (accountId.isEmpty()) {
+        accountId = Hashing.goodFastHash(128).hashBytes(account.toByteArray()).toString();
+        account = account.toBuilder().setId(accountId).build();
+        LOGGER.atInfo().log("Generated ID %s for account [%s]", accountId, account);
+      }
+      Account previous = accountsById.put(accountId, account);
+      if (previous != null && !previous.equals(account)) {
+        LOGGER.atInfo().log("Overwriting account %s with %s.", previous, account);
+      }
+    }
+    return this;
+  }
+
+  public ModelMerger addTransactions(Iterable<Transaction> transactions) {
+    checkNotMerged();
+    for (Transaction transaction : transactions) {
+      String transactionId = transaction.getId();
+      if (transactionId.isEmpty()) {
+        transactionId = Hashing.goodFastHash(128).hashBytes(transaction.toByteArray()).toString();
+        transaction = transaction.toBuilder().setId(transactionId).build();
+        LOGGER.atInfo().log("Generated ID %s for transaction [%s]", transactionId, transaction);
+      }
+      Transaction previous =
+          partitionFor(transactionId).transactionsById.put(transactionId, transaction);
+      if (previous != null && !previous.equals(transaction)) {
+        LOGGER.atInfo().log("Overwriting %s with %s.", previous, transaction);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Adds the splits. Their transactions and accounts don't need to have been added yet, only by the
+   * time the model is merged.
+   */
+  public ModelMerger addSplits(Iterable<Split> splits) {
+    checkNotMerged();
+    for (Split split : splits) {
+      partitionFor(split.getTransactionId())
+          .splitsByTransactionId
+          .put(split.getTransactionId(), split);
+    }
+    return this;
+  }
+
+  /** Validates the partitions in parallel and returns the indexed model of all merged records. */
+  public IndexedModel merge() {
+    checkNotMerged();
+    merged = true;
+    ImmutableMap<String, Account> accounts = ImmutableMap.copyOf(accountsById);
+    List<ImmutableListMultimap<String, Split>> validSplitsByPartition =
+        Arrays.stream(partitions)
+            .parallel()
+            .map(partition -> partition.validate(accounts))
+            .collect(toList());
+    int transactionCount = 0;
+    for (Partition partition : partitions) {
+      transactionCount += partition.transactionsById.size();
+    }
+    ImmutableMap.Builder<String, Transaction> transactions =
+        ImmutableMap.builderWithExpectedSize(transactionCount);
+    ImmutableListMultimap.Builder<String, Split> splits = ImmutableListMultimap.builder();
+    for (int i = 0; i < partitions.length; i++) {
+      transactions.putAll(partitions[i].transactionsById);
+      splits.putAll(validSplitsByPartition.get(i));
+      // Let the partition go as soon as it's copied to keep the peak heap down.
+      partitions[i] = null;
+    }
+    return IndexedModel.create(accounts, transactions.build(), splits.build());
+  }
+
+  private Partition partitionFor(String transactionId) {
+    return partitions[(transactionId.hashCode() & Integer.MAX_VALUE) % partitions.length];
+  }
+
+  private void checkNotMerged() {
+    if (merged) {
+      throw new IllegalStateException("The models have already been merged.");
+    }
+  }
+
+  /** The transactions and splits whose transaction IDs hash to the same partition. */
+  private static class Partition {
+    private final Map<String, Transaction> transactionsById = new LinkedHashMap<>();
+    private final SetMultimap<String, Split> splitsByTransactionId = LinkedHashMultimap.create();
+
+    /** Returns the splits that refer to known transactions and accounts. */
+    private ImmutableListMultimap<String, Split> validate(
+        ImmutableMap<String, Account> accountsById) {
+      ImmutableListMultimap.Builder<String, Split> validSplits = ImmutableListMultimap.builder();
+      for (Map.Entry<String, Collection<Split>> entry :
+          splitsByTransactionId.asMap().entrySet()) {
+        String transactionId = entry.getKey();
+        boolean hasTransaction = transactionsById.containsKey(transactionId);
+        List<Split> splits = new ArrayList<>(entry.getValue().size());
+        for (Split split : entry.getValue()) {
+          List<String> badRefs = new ArrayList<>(2);
+          if (!hasTransaction) {
+            badRefs.add("transaction");
+          }
+          if (!accountsById.containsKey(split.getAccountId())) {
+            badRefs.add("account");
+          }
+          if (!badRefs.isEmpty()) {
+            LOGGER.atWarning().log(
+                "Split has bad ID for references to: %s. "
+                    + "Dropping it: [accountId: %s, transactionId: %s]",
+                Joiner.on(',').join(badRefs), split.getAccountId(), transactionId);
+            continue;
+          }
+          splits.add(split);
+        }
+        AmountSum balance = AmountSum.of(splits);
+        if (!balance.isZero()) {
+          LOGGER.atWarning().log(
+              "Splits are not balanced for transaction [%s]! Current balance: [%s]",
+              transactionsById.get(transactionId), Formatter.ledgerCurrency(balance.value()));
+        }
+        validSplits.putAll(transactionId, splits);
+      }
+      return validSplits.build();
+    }
+  }
+}
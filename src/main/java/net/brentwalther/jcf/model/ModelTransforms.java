@@ -5,7 +5,14 @@ import java.math.RoundingMode;
 import net.brentwalther.jcf.model.JcfModel.Split;
 
 public class ModelTransforms {
+
+  /** The number of cents in one unit of currency. */
+  public static final int CENTS_PER_UNIT = 100;
+
   public static BigDecimal bigDecimalAmountForSplit(Split split) {
+    if (hasWholeCentsAmount(split)) {
+      return BigDecimal.valueOf(centsAmountForSplit(split), 2).stripTrailingZeros();
+    }
     BigDecimal denominator = new BigDecimal(split.getValueDenominator());
     BigDecimal numerator = new BigDecimal(split.getValueNumerator());
     return numerator
@@ -13,4 +20,57 @@ public class ModelTransforms {
         .divide(denominator, RoundingMode.HALF_UP)
         .stripTrailingZeros();
   }
+
+  /**
+   * Returns whether the split's amount is a whole number of cents, which is true of nearly all
+   * splits. Only those amounts can be read with {@link #centsAmountForSplit}.
+   */
+  public static boolean hasWholeCentsAmount(Split split) {
+    int denominator = split.getValueDenominator();
+    return denominator != 0
+        && ((long) split.getValueNumerator() * CENTS_PER_UNIT) % denominator == 0;
+  }
+
+  /**
+   * Returns the split's amount in cents without rounding. The amount always fits in a long since
+   * the numerator is an int.
+   *
+   * @throws ArithmeticException if the amount is not a whole number of cents
+   */
+  public static long centsAmountForSplit(Split split) {
+    if (!hasWholeCentsAmount(split)) {
+      throw new ArithmeticException(
+          String.format(
+              "%s/%s is not a whole number of cents.",
+              split.getValueNumerator(), split.getValueDenominator()));
+    }
+    return (long) split.getValueNumerator() * CENTS_PER_UNIT / split.getValueDenominator();
+  }
+
+  /**
+   * Compares the amounts of two splits exactly, without converting either of them to a {@link
+   * BigDecimal}. Splits with a zero denominator compare by their numerator's sign, as if they were
+   * infinite.
+   */
+  public static int compareAmounts(Split left, Split right) {
+    long leftNumerator = left.getValueNumerator();
+    long leftDenominator = left.getValueDenominator();
+    long rightNumerator = right.getValueNumerator();
+    long rightDenominator = right.getValueDenominator();
+    if (leftDenominator < 0) {
+      leftNumerator = -leftNumerator;
+      leftDenominator = -leftDenominator;
+    }
+    if (rightDenominator < 0) {
+      rightNumerator = -rightNumerator;
+      rightDenominator = -rightDenominator;
+    }
+    if (leftDenominator == 0 || rightDenominator == 0) {
+      return Long.compare(
+          leftDenominator == 0 ? Long.signum(leftNumerator) : 0,
+          rightDenominator == 0 ? Long.signum(rightNumerator) : 0);
+    }
+    // Both products are at most 2^62 in magnitude so they can't overflow.
+    return Long.compare(leftNumerator * rightDenominator, rightNumerator * leftDenominator);
+  }
 }
@@ -0,0 +1,133 @@
+package net.brentwalther.jcf.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+
+/**
+ * An immutable column of strings stored as UTF-8 in a single byte array, which takes a fraction of
+ * the heap of the equivalent {@link String} objects. Strings are addressed by their position in
+ * the column.
+ *
+ * <p>A column can be indexed so that the position of a string can be looked up. The index is an
+ * open addressing hash table of positions.
+ */
+final class StringColumn {
+
+  /** The position returned for strings which are not in the column. */
+  static final int NOT_FOUND = -1;
+
+  private final byte[] bytes;
+  /** The offset of each string in the byte array, followed by the length of the byte array. */
+  private final int[] offsets;
+  /** The positions of the strings, placed by their hash with linear probing. Null if unindexed. */
+  private final int[] positionsBySlot;
+
+  private StringColumn(byte[] bytes, int[] offsets, boolean indexed) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.positionsBySlot = indexed ? index() : null;
+  }
+
+  static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  int size() {
+    return offsets.length - 1;
+  }
+
+  String get(int position) {
+    return new String(bytes, offsets[position], offsets[position + 1] - offsets[position], UTF_8);
+  }
+
+  /**
+   * Returns the position of the first occurrence of the string, or {@link #NOT_FOUND}. The column
+   * must be indexed.
+   */
+  int positionOf(String value) {
+    if (positionsBySlot == null) {
+      throw new IllegalStateException("The column is not indexed.");
+    }
+    byte[] valueBytes = value.getBytes(UTF_8);
+    int mask = positionsBySlot.length - 1;
+    int slot = hash(valueBytes, 0, valueBytes.length) & mask;
+    while (positionsBySlot[slot] != NOT_FOUND) {
+      int position = positionsBySlot[slot];
+      if (equals(position, valueBytes)) {
+        return position;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NOT_FOUND;
+  }
+
+  private int[] index() {
+    // Keep the table at most half full so that probe sequences stay short.
+    int[] table = new int[Integer.highestOneBit(Math.max(1, size() * 2 - 1)) * 2];
+    Arrays.fill(table, NOT_FOUND);
+    int mask = table.length - 1;
+    for (int position = 0; position < size(); position++) {
+      int slot = hash(bytes, offsets[position], offsets[position + 1]) & mask;
+      while (table[slot] != NOT_FOUND) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = position;
+    }
+    return table;
+  }
+
+  private boolean equals(int position, byte[] valueBytes) {
+    int start = offsets[position];
+    if (offsets[position + 1] - start != valueBytes.length) {
+      return false;
+    }
+    for (int i = 0; i < valueBytes.length; i++) {
+      if (bytes[start + i] != valueBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(byte[] bytes, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    // Spread the high bits into the low bits that select the slot.
+    return hash ^ (hash >>> 16);
+  }
+
+  static final class Builder {
+    private byte[] bytes;
+    private int[] offsets;
+    private int size = 0;
+
+    private Builder(int expectedSize) {
+      this.bytes = new byte[Math.max(16, expectedSize * 16)];
+      this.offsets = new int[expectedSize + 1];
+    }
+
+    /** Appends the string and returns its position. */
+    int add(String value) {
+      byte[] valueBytes = value.getBytes(UTF_8);
+      int start = offsets[size];
+      if (start + valueBytes.length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(start + valueBytes.length, bytes.length * 2));
+      }
+      System.arraycopy(valueBytes, 0, bytes, start, valueBytes.length);
+      if (size + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[++size] = start + valueBytes.length;
+      return size - 1;
+    }
+
+    StringColumn build(boolean indexed) {
+      int end = offsets[size];
+      return new StringColumn(
+          Arrays.copyOf(bytes, end), Arrays.copyOf(offsets, size + 1), indexed);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.environment.JcfEnvironment;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.model.IndexedModel;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import net.brentwalther.jcf.model.ModelMerger;
+
+/**
+ * Imports several files at once, each on its own thread of a bounded pool, and merges them into
+ * one model in the order the files were given. The same transaction in more than one file, like
+ * one in two overlapping statements of the same account, has the same content-derived ID in each,
+ * so it's merged into a single transaction and counted as a duplicate.
+ */
+public final class ConcurrentCsvImporter implements JcfModelImporter {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+
+  private final ImmutableMap<String, JcfModelImporter> importersByName;
+  private final int threadCount;
+
+  private ConcurrentCsvImporter(
+      ImmutableMap<String, JcfModelImporter> importersByName, int threadCount) {
+    this.importersByName = importersByName;
+    this.threadCount = threadCount;
+  }
+
+  /** Returns an importer of each of the environment's CSV files using its settings profile. */
+  public static ConcurrentCsvImporter create(JcfEnvironment jcfEnvironment) {
+    ImmutableMap.Builder<String, JcfModelImporter> importersByName = ImmutableMap.builder();
+    for (Map.Entry<File, SettingsProfile> csvProfile :
+        jcfEnvironment.getInputCsvProfiles().entrySet()) {
+      importersByName.put(
+          csvProfile.getKey().getPath(),
+          CsvTransactionListingImporter.create(
+              LazyTextFile.of(csvProfile.getKey()), csvProfile.getValue()));
+    }
+    return create(importersByName.build(), jcfEnvironment.getCsvImportThreadCount());
+  }
+
+  /** Returns an importer that runs the importers, keyed by the name of their file, at once. */
+  static ConcurrentCsvImporter create(
+      ImmutableMap<String, JcfModelImporter> importersByName, int threadCount) {
+    checkArgument(threadCount > 0, "There must be at least one thread.");
+    return new ConcurrentCsvImporter(importersByName, threadCount);
+  }
+
+  @Override
+  public Model get() {
+    return importAll().toProto();
+  }
+
+  /** Imports every file and returns the merged model. Files that fail to import are skipped. */
+  public IndexedModel importAll() {
+    ModelMerger merger = ModelMerger.create();
+    if (importersByName.isEmpty()) {
+      return merger.merge();
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(threadCount, importersByName.size()));
+    try {
+      List<Future<Model>> models = new ArrayList<>(importersByName.size());
+      for (JcfModelImporter importer : importersByName.values()) {
+        models.add(executor.submit(importer::get));
+      }
+      Set<String> transactionIds = new HashSet<>();
+      int duplicateCount = 0;
+      int i = 0;
+      for (String name : importersByName.keySet()) {
+        Model model;
+        try {
+          model = models.get(i++).get();
+        } catch (ExecutionException e) {
+          LOGGER.atSevere().withCause(e.getCause()).log("Could not import %s. Skipping it.", name);
+          continue;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while importing " + name, e);
+        }
+        int fileDuplicateCount = 0;
+        for (Transaction transaction : model.getTransactionList()) {
+          if (!transactionIds.add(transaction.getId())) {
+            fileDuplicateCount++;
+          }
+        }
+        LOGGER.atInfo().log(
+            "Imported %s transactions from %s, %s of which were already imported from another "
+                + "file.",
+            model.getTransactionCount(), name, fileDuplicateCount);
+        duplicateCount += fileDuplicateCount;
+        merger.add(model);
+      }
+      IndexedModel merged = merger.merge();
+      LOGGER.atInfo().log(
+          "Imported %s transactions from %s files and merged %s duplicates.",
+          merged.getTransactionCount(), importersByName.size(), duplicateCount);
+      return merged;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
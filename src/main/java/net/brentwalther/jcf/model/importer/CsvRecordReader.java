@@ -0,0 +1,139 @@
+package net.brentwalther.jcf.model.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV stream as defined by RFC 4180, a record at a time. Fields may be
+ * quoted, in which case they can contain commas, line breaks and quotes, which are doubled. Records
+ * end at a line feed, a carriage return or both, and blank lines are skipped.
+ *
+ * <p>Some banks escape quotes in quoted fields with a backslash instead of doubling them, so a
+ * quote in a quoted field that isn't followed by another quote, a comma or the end of the record
+ * is kept as is rather than ending the field. Instances are not thread-safe.
+ */
+final class CsvRecordReader implements Closeable {
+
+  private static final int END = -1;
+
+  private final Reader reader;
+  private final char[] buffer = new char[8192];
+  private int position = 0;
+  private int limit = 0;
+  private final StringBuilder field = new StringBuilder();
+  /** The number of fields of the last record, which the next one likely has too. */
+  private int lastFieldCount = 8;
+
+  private CsvRecordReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /** Returns a reader of the stream. The stream doesn't need to be buffered. */
+  static CsvRecordReader create(Reader reader) {
+    return new CsvRecordReader(reader);
+  }
+
+  /** Returns the fields of the record on the line, which may be just part of a record. */
+  static List<String> parseLine(String line) {
+    try (CsvRecordReader reader = create(new StringReader(line))) {
+      List<String> fields = reader.next();
+      return fields == null ? new ArrayList<>() : fields;
+    } catch (IOException e) {
+      throw new AssertionError("Strings can always be read.", e);
+    }
+  }
+
+  /** Returns the fields of the next record, or null if there are no more. */
+  List<String> next() throws IOException {
+    List<String> fields = new ArrayList<>(lastFieldCount);
+    boolean isQuoted = false;
+    boolean inQuotes = false;
+    while (true) {
+      int c = read();
+      if (inQuotes) {
+        if (c == END) {
+          // An unterminated quote runs to the end of the stream.
+          endField(fields);
+          return endRecord(fields);
+        } else if (c != '"') {
+          field.append((char) c);
+        } else if (peek() == '"') {
+          read();
+          field.append('"');
+        } else if (isDelimiter(peek())) {
+          inQuotes = false;
+        } else {
+          field.append('"');
+        }
+      } else if (c == ',') {
+        endField(fields);
+        isQuoted = false;
+      } else if (c == '\n' || c == '\r' || c == END) {
+        if (c == '\r' && peek() == '\n') {
+          read();
+        }
+        if (fields.isEmpty() && field.length() == 0 && !isQuoted) {
+          if (c == END) {
+            return null;
+          }
+          // Skip the blank line.
+          continue;
+        }
+        endField(fields);
+        return endRecord(fields);
+      } else if (c == '"' && field.length() == 0 && !isQuoted) {
+        isQuoted = true;
+        inQuotes = true;
+      } else {
+        field.append((char) c);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private void endField(List<String> fields) {
+    fields.add(field.toString());
+    field.setLength(0);
+  }
+
+  private List<String> endRecord(List<String> fields) {
+    lastFieldCount = fields.size();
+    return fields;
+  }
+
+  private static boolean isDelimiter(int c) {
+    return c == ',' || c == '\n' || c == '\r' || c == END;
+  }
+
+  private int read() throws IOException {
+    if (position == limit && !fill()) {
+      return END;
+    }
+    return buffer[position++];
+  }
+
+  private int peek() throws IOException {
+    if (position == limit && !fill()) {
+      return END;
+    }
+    return buffer[position];
+  }
+
+  private boolean fill() throws IOException {
+    int count = reader.read(buffer);
+    if (count <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = count;
+    return true;
+  }
+}
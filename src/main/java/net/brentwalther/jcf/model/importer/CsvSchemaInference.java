@@ -0,0 +1,503 @@
+package net.brentwalther.jcf.model.importer;
+
+import com.google.common.base.Ascii;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions.FieldPosition;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
+
+/**
+ * Infers the settings needed to import a CSV of transactions, the columns of its fields and the
+ * format of its dates, from a sample of its first rows. Each column is scored as a date in each of
+ * the common date formats, as an amount and as a description, and the header's column names break
+ * ties. Only the sample is read, so inference takes about as long on any size of file.
+ */
+public final class CsvSchemaInference {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+
+  /** The name of inferred profiles, which only shows up in the logs. */
+  static final String PROFILE_NAME = "inferred";
+
+  private static final int DEFAULT_SAMPLE_ROWS = 100;
+  /** The share of a column's values that have to fit a date format or amount to be one. */
+  private static final double MIN_MATCHING_SHARE = 0.9;
+  /** The share of rows that a column must have a value in to be the amount or description. */
+  private static final double MIN_FILLED_SHARE = 0.5;
+
+  /**
+   * The date formats to try, most likely first. The fixed-width formats come before the formats
+   * that also parse them so that they're chosen when both parse every date.
+   */
+  private static final ImmutableList<String> CANDIDATE_DATE_FORMATS =
+      ImmutableList.of(
+          "yyyy-MM-dd",
+          "MM/dd/yyyy",
+          "yyyy/MM/dd",
+          "dd/MM/yyyy",
+          "MM-dd-yyyy",
+          "dd-MM-yyyy",
+          "dd.MM.yyyy",
+          "yyyyMMdd",
+          "MM/dd/yy",
+          "dd/MM/yy",
+          "M/d/yyyy",
+          "d/M/yyyy",
+          "M/d/yy",
+          "d/M/yy",
+          "d MMM yyyy",
+          "MMM d, yyyy");
+
+  /** The fields that give a transaction's amount. */
+  private static final ImmutableSet<DataField> AMOUNT_FIELDS =
+      Sets.immutableEnumSet(
+          DataField.AMOUNT, DataField.NEGATED_AMOUNT, DataField.DEBIT, DataField.CREDIT);
+
+  private static final ImmutableMap<DataField, ImmutableList<String>> HEADER_HINTS =
+      ImmutableMap.of(
+          DataField.DATE, ImmutableList.of("date", "posted"),
+          DataField.DESCRIPTION,
+              ImmutableList.of("desc", "memo", "payee", "name", "detail", "narrative"),
+          DataField.AMOUNT, ImmutableList.of("amount", "value"),
+          DataField.DEBIT, ImmutableList.of("debit", "withdrawal", "payment"),
+          DataField.CREDIT, ImmutableList.of("credit", "deposit"));
+
+  private final CharSource csv;
+  private final int sampleRows;
+
+  private CsvSchemaInference(CharSource csv, int sampleRows) {
+    this.csv = csv;
+    this.sampleRows = sampleRows;
+  }
+
+  public static CsvSchemaInference create(CharSource csv) {
+    return new CsvSchemaInference(csv, DEFAULT_SAMPLE_ROWS);
+  }
+
+  /**
+   * Returns a profile with the CSV's field positions and date format, or empty if they can't be
+   * inferred. Known field positions are always kept, and only the missing fields are inferred from
+   * the columns that aren't already in use. The date format is inferred from the DATE column.
+   *
+   * @throws UncheckedIOException if the CSV can't be read
+   */
+  public Optional<SettingsProfile> infer(Map<DataField, Integer> knownPositions) {
+    Sample sample = readSample();
+    if (sample.rows.isEmpty()) {
+      LOGGER.atWarning().log("The CSV has no rows to infer its settings from.");
+      return Optional.empty();
+    }
+    Map<DataField, Integer> positions = new LinkedHashMap<>(knownPositions);
+    String dateFormat;
+    if (CsvTransactionListingImporter.isAcceptableFieldMappingSet(
+        ImmutableMap.copyOf(knownPositions).keySet())) {
+      dateFormat = bestDateFormat(sample, knownPositions.get(DataField.DATE)).orElse(null);
+    } else {
+      dateFormat = inferMissingPositions(sample, positions);
+    }
+    if (dateFormat == null) {
+      LOGGER.atWarning().log("Could not infer the CSV's date column and format.");
+      return Optional.empty();
+    }
+    if (!CsvTransactionListingImporter.isAcceptableFieldMappingSet(
+        ImmutableMap.copyOf(positions).keySet())) {
+      LOGGER.atWarning().log(
+          "Could only infer the CSV's field positions [%s], which aren't enough to import it.",
+          positions);
+      return Optional.empty();
+    }
+    CsvFieldPositions.Builder fieldPositions = CsvFieldPositions.newBuilder();
+    for (Map.Entry<DataField, Integer> position : positions.entrySet()) {
+      fieldPositions.addPosition(
+          FieldPosition.newBuilder()
+              .setField(position.getKey())
+              .setColumnIndex(position.getValue()));
+    }
+    return Optional.of(
+        SettingsProfile.newBuilder()
+            .setName(PROFILE_NAME)
+            .setCsvFieldPositions(fieldPositions)
+            .setCsvDateFormatJava(dateFormat)
+            .build());
+  }
+
+  /**
+   * Puts the positions of the date, amount and description columns that aren't already known, in
+   * columns that aren't already in use, and returns the date format of the DATE column, or null if
+   * it isn't a date. The amount is only inferred if none of the amount fields are known.
+   */
+  private static String inferMissingPositions(Sample sample, Map<DataField, Integer> positions) {
+    Map<Integer, String> dateFormatsByColumn = new LinkedHashMap<>();
+    for (int column = 0; column < sample.columnCount; column++) {
+      Optional<String> format = bestDateFormat(sample, column);
+      if (format.isPresent()) {
+        dateFormatsByColumn.put(column, format.get());
+      }
+    }
+    if (!positions.containsKey(DataField.DATE)) {
+      int dateColumn = -1;
+      double bestScore = 0;
+      for (int column : dateFormatsByColumn.keySet()) {
+        if (positions.containsValue(column)) {
+          continue;
+        }
+        double score = sample.filledShare(column) + hintScore(sample, column, DataField.DATE);
+        if (score > bestScore) {
+          dateColumn = column;
+          bestScore = score;
+        }
+      }
+      if (dateColumn < 0) {
+        return null;
+      }
+      positions.put(DataField.DATE, dateColumn);
+    }
+    String dateFormat = dateFormatsByColumn.get(positions.get(DataField.DATE));
+    if (dateFormat == null) {
+      return null;
+    }
+
+    if (Sets.intersection(AMOUNT_FIELDS, positions.keySet()).isEmpty()) {
+      putAmount(sample, dateFormatsByColumn.keySet(), positions);
+    }
+
+    if (!positions.containsKey(DataField.DESCRIPTION)) {
+      putDescription(sample, positions);
+    }
+    return dateFormat;
+  }
+
+  /** Puts the position of the amount column, or of the debit and credit columns, if any. */
+  private static void putAmount(
+      Sample sample, Set<Integer> dateColumns, Map<DataField, Integer> positions) {
+    // Dates like 20200131 look like amounts too, so no date column is an amount.
+    Set<Integer> amountColumns = new TreeSet<>();
+    for (int column = 0; column < sample.columnCount; column++) {
+      if (!dateColumns.contains(column)
+          && !positions.containsValue(column)
+          && sample.matchingShare(column, CsvSchemaInference::isAmount) >= MIN_MATCHING_SHARE) {
+        amountColumns.add(column);
+      }
+    }
+    if (!putDebitAndCredit(sample, amountColumns, positions)) {
+      int amountColumn = -1;
+      double bestScore = 0;
+      for (int column : amountColumns) {
+        if (sample.filledShare(column) < MIN_FILLED_SHARE) {
+          continue;
+        }
+        double score = amountScore(sample, column);
+        if (score > bestScore || (score == bestScore && column < amountColumn)) {
+          amountColumn = column;
+          bestScore = score;
+        }
+      }
+      if (amountColumn >= 0) {
+        positions.put(DataField.AMOUNT, amountColumn);
+      }
+    }
+  }
+
+  /** Puts the position of the description column among those not in use, if there is one. */
+  private static void putDescription(Sample sample, Map<DataField, Integer> positions) {
+    int descriptionColumn = -1;
+    double bestScore = 0;
+    for (int column = 0; column < sample.columnCount; column++) {
+      if (positions.containsValue(column) || sample.filledShare(column) < MIN_FILLED_SHARE) {
+        continue;
+      }
+      double score =
+          sample.averageLetterCount(column) * sample.distinctShare(column)
+              + 100 * hintScore(sample, column, DataField.DESCRIPTION);
+      if (score > bestScore) {
+        descriptionColumn = column;
+        bestScore = score;
+      }
+    }
+    if (descriptionColumn >= 0) {
+      positions.put(DataField.DESCRIPTION, descriptionColumn);
+    }
+  }
+
+  /**
+   * Puts the positions of separate debit and credit columns and returns true if there are any.
+   * They're either named as such or are a pair of amount columns of which each row has one value.
+   */
+  private static boolean putDebitAndCredit(
+      Sample sample, Set<Integer> amountColumns, Map<DataField, Integer> positions) {
+    int debitColumn = -1;
+    int creditColumn = -1;
+    for (int column : amountColumns) {
+      if (debitColumn < 0 && hintScore(sample, column, DataField.DEBIT) > 0) {
+        debitColumn = column;
+      } else if (creditColumn < 0 && hintScore(sample, column, DataField.CREDIT) > 0) {
+        creditColumn = column;
+      }
+    }
+    if (debitColumn < 0 || creditColumn < 0) {
+      debitColumn = -1;
+      creditColumn = -1;
+      for (int first = 0; first < sample.columnCount && debitColumn < 0; first++) {
+        for (int second = first + 1; second < sample.columnCount; second++) {
+          if (amountColumns.contains(first)
+              && amountColumns.contains(second)
+              && sample.exclusivelyFilledShare(first, second) >= MIN_MATCHING_SHARE) {
+            // Statements list debits before credits.
+            debitColumn = first;
+            creditColumn = second;
+            break;
+          }
+        }
+      }
+    }
+    if (debitColumn < 0) {
+      return false;
+    }
+    positions.put(DataField.DEBIT, debitColumn);
+    positions.put(DataField.CREDIT, creditColumn);
+    return true;
+  }
+
+  /**
+   * Scores how likely an amount column is the transaction amount. Amounts have cents and signs,
+   * while a running balance is usually positive and is named as such.
+   */
+  private static double amountScore(Sample sample, int column) {
+    double score = sample.filledShare(column) + 2 * hintScore(sample, column, DataField.AMOUNT);
+    if (sample.anyMatch(column, (value) -> value.indexOf('.') >= 0)) {
+      score += 1;
+    }
+    if (sample.anyMatch(column, (value) -> value.indexOf('-') >= 0 || value.indexOf('(') >= 0)) {
+      score += 0.5;
+    }
+    if (Ascii.toLowerCase(sample.header(column)).contains("balance")) {
+      score -= 2;
+    }
+    return score;
+  }
+
+  /** Returns the first date format that the most of the column's values are in, if any. */
+  private static Optional<String> bestDateFormat(Sample sample, Integer column) {
+    if (column == null || column < 0 || column >= sample.columnCount) {
+      return Optional.empty();
+    }
+    // Dates have digits, so this rules out most other columns without parsing anything.
+    if (sample.matchingShare(column, CsvSchemaInference::hasDigit) < MIN_MATCHING_SHARE) {
+      return Optional.empty();
+    }
+    String bestFormat = null;
+    double bestShare = 0;
+    for (String format : CANDIDATE_DATE_FORMATS) {
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+      double share = sample.matchingShare(column, (value) -> isDate(value, formatter));
+      if (share >= MIN_MATCHING_SHARE && share > bestShare) {
+        bestFormat = format;
+        bestShare = share;
+      }
+    }
+    return Optional.ofNullable(bestFormat);
+  }
+
+  /** Returns 1 if the column's name hints that it's the field, and 0 otherwise. */
+  private static double hintScore(Sample sample, int column, DataField field) {
+    String name = Ascii.toLowerCase(sample.header(column));
+    for (String hint : HEADER_HINTS.getOrDefault(field, ImmutableList.of())) {
+      if (name.contains(hint)) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
+  private static boolean isDate(String value, DateTimeFormatter formatter) {
+    try {
+      LocalDate.from(formatter.parse(value));
+      return true;
+    } catch (DateTimeException e) {
+      return false;
+    }
+  }
+
+  private static boolean hasDigit(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if the value is a currency amount like $-1,234.56 or (12.00), which is made of
+   * only digits, grouping commas, a decimal point, a sign or parentheses and a dollar sign.
+   */
+  static boolean isAmount(String value) {
+    boolean hasDigit = false;
+    int decimalPoints = 0;
+    int signs = 0;
+    int parentheses = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        hasDigit = true;
+      } else if (c == '.') {
+        decimalPoints++;
+      } else if (c == '-' || c == '+') {
+        signs++;
+      } else if (c == '(' || c == ')') {
+        parentheses++;
+      } else if (c != ',' && c != '$' && c != ' ') {
+        return false;
+      }
+    }
+    return hasDigit && decimalPoints <= 1 && signs <= 1 && parentheses % 2 == 0;
+  }
+
+  private Sample readSample() {
+    try (CsvRecordReader reader = CsvRecordReader.create(csv.openStream())) {
+      List<String> header = reader.next();
+      if (header == null) {
+        return new Sample(ImmutableList.of(), ImmutableList.of());
+      }
+      List<List<String>> rows = new ArrayList<>();
+      for (List<String> fields = reader.next();
+          fields != null && rows.size() < sampleRows;
+          fields = reader.next()) {
+        rows.add(fields);
+      }
+      return new Sample(header, rows);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read CSV: " + csv, e);
+    }
+  }
+
+  /** The header and first rows of a CSV, with values trimmed. */
+  private static class Sample {
+    private final List<String> header;
+    private final List<List<String>> rows;
+    private final int columnCount;
+
+    private Sample(List<String> header, List<List<String>> rows) {
+      this.header = header;
+      this.rows = rows;
+      int columnCount = header.size();
+      for (List<String> row : rows) {
+        columnCount = Math.max(columnCount, row.size());
+      }
+      this.columnCount = columnCount;
+    }
+
+    private String header(int column) {
+      return column < header.size() ? header.get(column) : "";
+    }
+
+    private String value(List<String> row, int column) {
+      return column < row.size() ? row.get(column).trim() : "";
+    }
+
+    private double filledShare(int column) {
+      int filled = 0;
+      for (List<String> row : rows) {
+        if (!value(row, column).isEmpty()) {
+          filled++;
+        }
+      }
+      return (double) filled / rows.size();
+    }
+
+    /**
+     * Returns the share of the column's values that match, or 0 if it has none. Stops as soon as
+     * too many values don't match for the share to reach {@link #MIN_MATCHING_SHARE}.
+     */
+    private double matchingShare(int column, Predicate<String> predicate) {
+      int filled = 0;
+      for (List<String> row : rows) {
+        if (!value(row, column).isEmpty()) {
+          filled++;
+        }
+      }
+      int maxMismatches = (int) (filled * (1 - MIN_MATCHING_SHARE));
+      int matching = 0;
+      int mismatches = 0;
+      for (List<String> row : rows) {
+        String value = value(row, column);
+        if (value.isEmpty()) {
+          continue;
+        }
+        if (predicate.test(value)) {
+          matching++;
+        } else if (++mismatches > maxMismatches) {
+          return 0;
+        }
+      }
+      return filled == 0 ? 0 : (double) matching / filled;
+    }
+
+    private boolean anyMatch(int column, Predicate<String> predicate) {
+      for (List<String> row : rows) {
+        String value = value(row, column);
+        if (!value.isEmpty() && predicate.test(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns the share of rows that have a value in exactly one of the two columns. */
+    private double exclusivelyFilledShare(int first, int second) {
+      int exclusive = 0;
+      for (List<String> row : rows) {
+        if (value(row, first).isEmpty() != value(row, second).isEmpty()) {
+          exclusive++;
+        }
+      }
+      return (double) exclusive / rows.size();
+    }
+
+    private double distinctShare(int column) {
+      Set<String> distinct = new HashSet<>();
+      int filled = 0;
+      for (List<String> row : rows) {
+        String value = value(row, column);
+        if (!value.isEmpty()) {
+          distinct.add(value);
+          filled++;
+        }
+      }
+      return filled == 0 ? 0 : (double) distinct.size() / filled;
+    }
+
+    private double averageLetterCount(int column) {
+      int letters = 0;
+      for (List<String> row : rows) {
+        String value = value(row, column);
+        for (int i = 0; i < value.length(); i++) {
+          if (Character.isLetter(value.charAt(i))) {
+            letters++;
+          }
+        }
+      }
+      return (double) letters / rows.size();
+    }
+  }
+}
@@ -1,81 +1,47 @@
 package net.brentwalther.jcf.model.importer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
-import com.google.re2j.Pattern;
-import java.time.Instant;
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
-import java.util.function.Supplier;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions.FieldPosition;
 import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
 import net.brentwalther.jcf.environment.JcfEnvironment;
+import net.brentwalther.jcf.flag.LazyTextFile;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
 import net.brentwalther.jcf.model.JcfModel.Split;
 import net.brentwalther.jcf.model.JcfModel.Transaction;
 import net.brentwalther.jcf.model.ModelGenerators;
-import net.brentwalther.jcf.string.Formatter;
+import net.brentwalther.jcf.string.DateDecoder;
 
 public class CsvTransactionListingImporter implements JcfModelImporter {
 
+  /** Splits a line of a CSV file into its fields. Prefer {@link #stream} for whole files. */
   public static final Function<String, ImmutableList<String>> CSV_SPLITTER =
-      csvString ->
-          ImmutableList.copyOf(
-              new AbstractIterator<String>() {
-
-                private int lastDelimiter = -1;
-
-                @Override
-                protected String computeNext() {
-                  if (lastDelimiter >= csvString.length() - 1) {
-                    return endOfData();
-                  }
-                  int firstTokenCharIndex = lastDelimiter + 1;
-                  // If the next token is immediately another comma, don't go searching for the next
-                  // one.
-                  // Just return the empty string.
-                  if (csvString.charAt(firstTokenCharIndex) == ',') {
-                    lastDelimiter = firstTokenCharIndex;
-                    return "";
-                  }
-                  // If the start of this token is a quote, we'll assume that this is supposed to be
-                  // a
-                  // quoted column and we need to find the closing parentheses.
-                  if (csvString.charAt(firstTokenCharIndex) == '"') {
-                    // Add one to tokenStart to shave off the initial quote.
-                    int quoteStart = firstTokenCharIndex + 1;
-                    int quoteEnd = csvString.indexOf('"', quoteStart);
-                    while (quoteEnd != -1 && csvString.charAt(quoteEnd - 1) == '\\') {
-                      quoteEnd = csvString.indexOf('"', quoteEnd + 2);
-                    }
-                    if (quoteEnd > quoteStart) {
-                      lastDelimiter = quoteEnd + 1;
-                      return csvString.substring(quoteStart, quoteEnd);
-                    }
-                  }
-                  // Otherwise just search for the next comma.
-                  int nextDelimiterIndex = csvString.indexOf(",", firstTokenCharIndex);
-                  if (nextDelimiterIndex == -1) {
-                    lastDelimiter = csvString.length();
-                    return csvString.substring(firstTokenCharIndex);
-                  } else {
-                    lastDelimiter = nextDelimiterIndex;
-                    return csvString.substring(firstTokenCharIndex, nextDelimiterIndex);
-                  }
-                }
-              });
+      csvString -> ImmutableList.copyOf(CsvRecordReader.parseLine(csvString));
   private static final JcfModelImporter NO_OP_IMPORTER = () -> Model.getDefaultInstance();
   private static final ImmutableSet<ImmutableSet<DataField>> ACCEPTABLE_DATA_FIELD_COMBINATIONS =
       ImmutableSet.of(
@@ -83,56 +49,84 @@ public class CsvTransactionListingImporter implements JcfModelImporter {
           Sets.immutableEnumSet(DataField.DATE, DataField.DESCRIPTION, DataField.NEGATED_AMOUNT),
           Sets.immutableEnumSet(
               DataField.DATE, DataField.DESCRIPTION, DataField.CREDIT, DataField.DEBIT));
-  private static final Pattern NON_DECIMAL_CHARACTERS_PATTERN = Pattern.compile("[^\\-0-9.]");
   private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
-  private final ImmutableList<String> csvLines;
+  private static final int DEFAULT_ROWS_PER_BATCH = 4096;
+  private final CharSource csv;
   private final Map<DataField, Integer> csvFieldPositions;
-  private final DateTimeFormatter dateTimeFormatter;
+  private final DateDecoder dateDecoder;
   private final Function<String, Account> accountGenerator;
+  private final int rowsPerBatch;
 
   private CsvTransactionListingImporter(
-      ImmutableList<String> csvLines,
+      CharSource csv,
       Map<DataField, Integer> csvFieldPositions,
       DateTimeFormatter dateTimeFormatter,
-      Function<String, Account> accountGenerator) {
-    this.csvLines = csvLines;
+      Function<String, Account> accountGenerator,
+      int rowsPerBatch) {
+    this.csv = csv;
     this.csvFieldPositions = csvFieldPositions;
-    this.dateTimeFormatter = dateTimeFormatter;
+    this.dateDecoder = DateDecoder.forFormatter(dateTimeFormatter);
     this.accountGenerator = accountGenerator;
+    this.rowsPerBatch = rowsPerBatch;
   }
 
-  private static int parseCurrencyValueStringAsCents(String dollarValueString) {
-    String strippedString =
-        NON_DECIMAL_CHARACTERS_PATTERN.matcher(dollarValueString).replaceAll("");
-    checkState(
-        strippedString.indexOf('.') == strippedString.lastIndexOf('.'),
-        "Decimal-like value '%s' had more than one decimal point!",
-        strippedString);
-    checkState(
-        strippedString.indexOf('-') == strippedString.lastIndexOf('-'),
-        "Decimal-like value '%s' had more than one negative sign!",
-        strippedString);
-    int decimalPointIndex = strippedString.indexOf('.');
-    if (decimalPointIndex < 0) {
-      return Integer.parseInt(strippedString) * 100;
-    } else if (decimalPointIndex == dollarValueString.length() - 1) {
-      return Integer.parseInt(strippedString.substring(0, decimalPointIndex)) * 100;
-    } else {
-      boolean isNegative = strippedString.charAt(0) == '-';
-      int dollars =
-          Integer.parseInt(strippedString.substring(isNegative ? 1 : 0, decimalPointIndex));
-      int fraction = Integer.parseInt(strippedString.substring(decimalPointIndex + 1));
-      while (fraction >= 100) {
-        fraction /= 10;
+  /**
+   * Returns the amount in cents. An amount in parentheses, as accountants write them, is negative.
+   * Other characters than digits, the decimal point and the negative sign, such as currency symbols
+   * and thousands separators, are ignored, as are digits after the cents.
+   */
+  static int parseCurrencyValueStringAsCents(String dollarValueString) {
+    long dollars = 0;
+    int cents = 0;
+    // Negative until the decimal point is found.
+    int fractionDigits = -1;
+    boolean isNegative = false;
+    boolean hasDigits = false;
+    for (int i = 0; i < dollarValueString.length(); i++) {
+      char c = dollarValueString.charAt(i);
+      if (c >= '0' && c <= '9') {
+        hasDigits = true;
+        if (fractionDigits < 0) {
+          dollars = dollars * 10 + (c - '0');
+          // Fail early on long values. The value with its cents is checked at the end.
+          if (dollars > Integer.MAX_VALUE / 100) {
+            throw new NumberFormatException("Value '" + dollarValueString + "' is too large.");
+          }
+        } else if (fractionDigits++ < 2) {
+          cents = cents * 10 + (c - '0');
+        }
+      } else if (c == '.') {
+        checkState(
+            fractionDigits < 0,
+            "Decimal-like value '%s' had more than one decimal point!",
+            dollarValueString);
+        fractionDigits = 0;
+      } else if (c == '-' || c == '(') {
+        checkState(
+            !isNegative,
+            "Decimal-like value '%s' had more than one negative sign!",
+            dollarValueString);
+        isNegative = true;
       }
-      return (dollars * 100 + fraction) * (isNegative ? -1 : 1);
     }
+    if (!hasDigits) {
+      throw new NumberFormatException("Value '" + dollarValueString + "' has no digits.");
+    }
+    if (fractionDigits == 1) {
+      // A single digit is tenths, e.g. 56.9 is 56.90.
+      cents *= 10;
+    }
+    long value = dollars * 100 + cents;
+    if (value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Value '" + dollarValueString + "' is too large.");
+    }
+    return isNegative ? (int) -value : (int) value;
   }
 
   public static JcfModelImporter create(JcfEnvironment jcfEnvironment) {
-    ImmutableList<String> inputCsvLines = jcfEnvironment.getInputCsvLines();
-    if (inputCsvLines.isEmpty()) {
-      LOGGER.atSevere().log("CSV input lines are unexpectedly empty. Returning a no-op importer.");
+    LazyTextFile inputCsv = jcfEnvironment.getInputCsv();
+    if (inputCsv.isEmpty()) {
+      LOGGER.atSevere().log("CSV input is unexpectedly empty. Returning a no-op importer.");
       return NO_OP_IMPORTER;
     }
     ImmutableMap<DataField, Integer> csvFieldMappings = jcfEnvironment.getCsvFieldMappings();
@@ -150,11 +144,71 @@ public class CsvTransactionListingImporter implements JcfModelImporter {
       return NO_OP_IMPORTER;
     }
 
-    return new CsvTransactionListingImporter(
-        inputCsvLines,
+    return create(
+        inputCsv.asCharSource(),
         csvFieldMappings,
         csvDateTimeFormatter.get(),
-        jcfEnvironment.getImportAccountGenerator());
+        jcfEnvironment.getImportAccountGenerator(),
+        DEFAULT_ROWS_PER_BATCH);
+  }
+
+  /**
+   * Returns an importer of the CSV file using the field positions, date format and import account
+   * of the settings profile, or a no-op importer if the profile doesn't have enough of them.
+   */
+  public static JcfModelImporter create(LazyTextFile csv, SettingsProfile profile) {
+    ImmutableMap<DataField, Integer> csvFieldMappings =
+        ImmutableMap.copyOf(
+            Maps.transformValues(
+                Maps.uniqueIndex(
+                    profile.getCsvFieldPositions().getPositionList(), FieldPosition::getField),
+                FieldPosition::getColumnIndex));
+    if (!isAcceptableFieldMappingSet(csvFieldMappings.keySet())) {
+      LOGGER.atSevere().log(
+          "The CSV field mappings of %s are not sufficient. Returning a no-op importer. "
+              + "Found: [%s]. Wanted: [%s].",
+          csv,
+          Joiner.on(", ").join(csvFieldMappings.keySet()),
+          Joiner.on(" or ").join(ACCEPTABLE_DATA_FIELD_COMBINATIONS));
+      return NO_OP_IMPORTER;
+    }
+    if (profile.getCsvDateFormatJava().isEmpty()) {
+      LOGGER.atSevere().log("No CSV date format for %s. Returning a no-op importer.", csv);
+      return NO_OP_IMPORTER;
+    }
+    return create(
+        csv.asCharSource(),
+        csvFieldMappings,
+        DateTimeFormatter.ofPattern(profile.getCsvDateFormatJava()),
+        importAccountGenerator(profile.getCsvAccountName(), profile.getImportAccountNamePrefix()),
+        DEFAULT_ROWS_PER_BATCH);
+  }
+
+  /**
+   * Returns the generator of the account that imported transactions are from. It's the named
+   * account if there's a name, or else the prefix followed by the value of the row's
+   * ACCOUNT_IDENTIFIER field if there's a prefix.
+   */
+  public static Function<String, Account> importAccountGenerator(
+      String accountName, String accountNamePrefix) {
+    if (!accountName.isEmpty()) {
+      return (unused) -> ModelGenerators.simpleAccount(accountName);
+    }
+    if (!accountNamePrefix.isEmpty()) {
+      return (identifier) -> ModelGenerators.simpleAccount(accountNamePrefix.concat(identifier));
+    }
+    return (unused) -> ModelGenerators.simpleAccount("Imbalance (Account not set)");
+  }
+
+  static CsvTransactionListingImporter create(
+      CharSource csv,
+      Map<DataField, Integer> csvFieldPositions,
+      DateTimeFormatter dateTimeFormatter,
+      Function<String, Account> accountGenerator,
+      int rowsPerBatch) {
+    checkArgument(rowsPerBatch > 0, "Batches must have at least one row.");
+    return new CsvTransactionListingImporter(
+        csv, csvFieldPositions, dateTimeFormatter, accountGenerator, rowsPerBatch);
   }
 
   /** Returns true if the set of data fields is sufficient for attempting to do an import. */
@@ -167,46 +221,114 @@ public class CsvTransactionListingImporter implements JcfModelImporter {
 
   @Override
   public Model get() {
-    checkState(!csvLines.isEmpty());
-    ImmutableList.Builder<Transaction> transactions =
-        ImmutableList.builderWithExpectedSize(csvLines.size() - 1);
+    Set<Account> allAccounts = new LinkedHashSet<>();
+    ImmutableList.Builder<Transaction> transactions = ImmutableList.builder();
     ImmutableList.Builder<Split> splits = ImmutableList.builder();
-    ImmutableSet.Builder<Account> allAccounts = ImmutableSet.builder();
-    Supplier<Hasher> idHasherSupplier =
-        () ->
-            Hashing.goodFastHash(32)
-                .newHasher()
-                .putLong(System.currentTimeMillis())
-                .putDouble(Math.random());
-    for (int i = 1; i < csvLines.size(); i++) {
-      String line = csvLines.get(i);
-      if (line.isEmpty()) {
-        // An empty line isn't interesting. Just ignore it rather than logging
-        // a warning message.
-        continue;
+    stream(
+        (account, transaction, split) -> {
+          allAccounts.add(account);
+          transactions.add(transaction);
+          splits.add(split);
+        });
+    return ModelGenerators.create(allAccounts, transactions.build(), splits.build());
+  }
+
+  /**
+   * Imports the CSV a batch of rows at a time, passing each row's transaction to the consumer in
+   * file order. Rows are read and decoded in parallel batches, so only a few batches are ever held
+   * at once no matter how large the CSV is.
+   *
+   * @throws UncheckedIOException if the CSV can't be read
+   */
+  public void stream(RowConsumer consumer) {
+    int maxPendingBatches = 2 * ForkJoinPool.getCommonPoolParallelism();
+    Deque<ForkJoinTask<List<DecodedRow>>> pendingBatches = new ArrayDeque<>();
+    TransactionIdGenerator idGenerator = TransactionIdGenerator.create();
+    int rowCount = 0;
+    try (CsvRecordReader reader = CsvRecordReader.create(csv.openStream())) {
+      // The first record is the header.
+      if (reader.next() == null) {
+        return;
+      }
+      List<List<String>> batch = new ArrayList<>();
+      for (List<String> fields = reader.next(); fields != null; fields = reader.next()) {
+        rowCount++;
+        batch.add(fields);
+        if (batch.size() == rowsPerBatch) {
+          pendingBatches.addLast(submit(batch, rowCount - batch.size() + 1));
+          batch = new ArrayList<>();
+          if (pendingBatches.size() > maxPendingBatches) {
+            emit(pendingBatches.removeFirst().join(), idGenerator, consumer);
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        pendingBatches.addLast(submit(batch, rowCount - batch.size() + 1));
       }
-      List<String> pieces = CSV_SPLITTER.apply(line);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read CSV: " + csv, e);
+    }
+    while (!pendingBatches.isEmpty()) {
+      emit(pendingBatches.removeFirst().join(), idGenerator, consumer);
+    }
+    LOGGER.atInfo().log("Imported %s rows of a CSV file.", rowCount);
+  }
+
+  private ForkJoinTask<List<DecodedRow>> submit(List<List<String>> batch, int firstRowNumber) {
+    return ForkJoinPool.commonPool().submit(() -> decode(batch, firstRowNumber));
+  }
+
+  /** Assigns IDs in file order, which is why it's done here rather than as rows are decoded. */
+  private void emit(
+      List<DecodedRow> rows, TransactionIdGenerator idGenerator, RowConsumer consumer) {
+    for (DecodedRow row : rows) {
+      Account fromAccount = accountGenerator.apply(row.accountIdentifier);
+      Split.Builder split =
+          Split.newBuilder()
+              .setAccountId(fromAccount.getId())
+              .setValueNumerator(row.valueNumerator)
+              .setValueDenominator(100);
+      String transactionId =
+          idGenerator.nextId(
+              TransactionIdGenerator.contentHash(
+                  row.postDateEpochSecond, row.description, ImmutableList.of(split.build())));
+      consumer.accept(
+          fromAccount,
+          Transaction.newBuilder()
+              .setId(transactionId)
+              .setPostDateEpochSecond(row.postDateEpochSecond)
+              .setDescription(row.description)
+              .build(),
+          split.setTransactionId(transactionId).build());
+    }
+  }
+
+  /** Decodes the rows of a batch, skipping and logging the ones without a date or description. */
+  private List<DecodedRow> decode(List<List<String>> batch, int firstRowNumber) {
+    List<DecodedRow> rows = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      List<String> pieces = batch.get(i);
+      int rowNumber = firstRowNumber + i;
       String dateString = getFieldValue(pieces, DataField.DATE, csvFieldPositions);
       if (dateString.isEmpty()) {
         LOGGER.atWarning().log(
-            "Didn't find a date at row %s, column index %s of CSV file.\nLine - %s",
-            i, csvFieldPositions.get(DataField.DATE), line);
+            "Didn't find a date at row %s, column index %s of CSV file.\nRow - %s",
+            rowNumber, csvFieldPositions.get(DataField.DATE), pieces);
         continue;
       }
-      Instant date = Formatter.parseDateFrom(dateString, dateTimeFormatter);
+      long postDateEpochSecond = dateDecoder.decode(dateString);
       String description = getFieldValue(pieces, DataField.DESCRIPTION, csvFieldPositions);
       if (description.isEmpty()) {
         LOGGER.atWarning().log(
-            "Didn't find a description at row %s, column index %s of CSV line.\nLine - %s",
-            csvFieldPositions.get(DataField.DESCRIPTION), line);
+            "Didn't find a description at row %s, column index %s of CSV file.\nRow - %s",
+            rowNumber, csvFieldPositions.get(DataField.DESCRIPTION), pieces);
         continue;
       }
       String amount = getFieldValue(pieces, DataField.AMOUNT, csvFieldPositions);
       String negatedAmount = getFieldValue(pieces, DataField.NEGATED_AMOUNT, csvFieldPositions);
       String debit = getFieldValue(pieces, DataField.DEBIT, csvFieldPositions);
       String credit = getFieldValue(pieces, DataField.CREDIT, csvFieldPositions);
-      int valueNumerator = 0;
-      int valueDenominator = 100;
+      int valueNumerator;
       if (!amount.isEmpty()) {
         valueNumerator = parseCurrencyValueStringAsCents(amount);
       } else if (!negatedAmount.isEmpty()) {
@@ -216,29 +338,14 @@ public class CsvTransactionListingImporter implements JcfModelImporter {
       } else {
         valueNumerator = -1 * parseCurrencyValueStringAsCents(debit);
       }
-      Account fromAccount =
-          accountGenerator.apply(
-              csvFieldPositions.containsKey(DataField.ACCOUNT_IDENTIFIER)
-                  ? pieces.get(csvFieldPositions.get(DataField.ACCOUNT_IDENTIFIER))
-                  : "?");
-      allAccounts.add(fromAccount);
-      Transaction transaction =
-          Transaction.newBuilder()
-              .setId(idHasherSupplier.get().putInt(i).hash().toString())
-              .setPostDateEpochSecond(date.getEpochSecond())
-              .setDescription(description)
-              .build();
-      transactions.add(transaction);
-      splits.add(
-          Split.newBuilder()
-              .setAccountId(fromAccount.getId())
-              .setTransactionId(transaction.getId())
-              .setValueNumerator(valueNumerator)
-              .setValueDenominator(valueDenominator)
-              .build());
+      String accountIdentifier =
+          csvFieldPositions.containsKey(DataField.ACCOUNT_IDENTIFIER)
+              ? pieces.get(csvFieldPositions.get(DataField.ACCOUNT_IDENTIFIER))
+              : "?";
+      rows.add(
+          new DecodedRow(postDateEpochSecond, description, valueNumerator, accountIdentifier));
     }
-    return ModelGenerators.create(
-        allAccounts.build().asList(), transactions.build(), splits.build());
+    return rows;
   }
 
   private String getFieldValue(
@@ -252,4 +359,29 @@ public class CsvTransactionListingImporter implements JcfModelImporter {
     }
     return pieces.get(index);
   }
+
+  /** Consumes the imported rows, each a transaction with a single split from its account. */
+  @FunctionalInterface
+  public interface RowConsumer {
+    void accept(Account account, Transaction transaction, Split split);
+  }
+
+  /** The values of a row, which don't have IDs until the batches are emitted in order. */
+  private static class DecodedRow {
+    private final long postDateEpochSecond;
+    private final String description;
+    private final int valueNumerator;
+    private final String accountIdentifier;
+
+    private DecodedRow(
+        long postDateEpochSecond,
+        String description,
+        int valueNumerator,
+        String accountIdentifier) {
+      this.postDateEpochSecond = postDateEpochSecond;
+      this.description = description;
+      this.valueNumerator = valueNumerator;
+      this.accountIdentifier = accountIdentifier;
+    }
+  }
 }
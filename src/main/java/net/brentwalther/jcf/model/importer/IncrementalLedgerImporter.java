@@ -0,0 +1,156 @@
+package net.brentwalther.jcf.model.importer;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.ModelGenerators;
+
+/**
+ * Imports an append-only ledger file, parsing only what was appended since the last import.
+ *
+ * <p>After each import, the model of the file up to its last blank line is saved to a sidecar file
+ * with the byte offset just after that line and a checksum of the bytes before it. The next import
+ * checks the checksum and, if those bytes haven't changed, only parses the rest of the file and
+ * appends it to the saved model. If they have changed, or the sidecar can't be read, the whole file
+ * is parsed. Either way the model is the same as {@link LedgerFileImporter}'s.
+ *
+ * <p>The sidecar holds, in order, the magic number, the format version, the byte offset, the
+ * checksum and the model as a length-prefixed proto.
+ */
+public final class IncrementalLedgerImporter implements JcfModelImporter {
+
+  private static final FluentLogger LOGGER = FluentLogger.forEnclosingClass();
+  /** "JCFL" in ASCII. */
+  private static final int MAGIC = 0x4a43464c;
+  /** Incremented whenever the format or the parsing changes to invalidate old sidecars. */
+  private static final int VERSION = 1;
+
+  private final LazyTextFile ledgerFile;
+  private final Path sidecarFile;
+
+  private IncrementalLedgerImporter(LazyTextFile ledgerFile, Path sidecarFile) {
+    this.ledgerFile = ledgerFile;
+    this.sidecarFile = sidecarFile;
+  }
+
+  public static IncrementalLedgerImporter create(LazyTextFile ledgerFile, Path sidecarFile) {
+    return new IncrementalLedgerImporter(ledgerFile, sidecarFile);
+  }
+
+  @Override
+  public Model get() {
+    Optional<Sidecar> sidecar = readSidecar().filter(this::isPrefixUnchanged);
+    long start = sidecar.isPresent() ? sidecar.get().offset : 0;
+    Model base = sidecar.isPresent() ? sidecar.get().model : ModelGenerators.empty();
+    LOGGER.atInfo().log(
+        "Parsing %s of %s bytes of ledger file %s.",
+        ledgerFile.size() - start, ledgerFile.size(), ledgerFile);
+
+    // The lines after the last blank line may be a transaction that is still being written, so
+    // they're not saved in the sidecar. They're parsed again next time.
+    long end = ledgerFile.endOfLastBlankLine(start);
+    Model complete = LedgerFileImporter.create(ledgerFile.lines(start, end)).getAppendedTo(base);
+    if (!sidecar.isPresent() || end > start) {
+      writeSidecar(new Sidecar(end, checksumOfBytesBefore(end), complete));
+    }
+    return LedgerFileImporter.create(ledgerFile.lines(end, ledgerFile.size()))
+        .getAppendedTo(complete);
+  }
+
+  private boolean isPrefixUnchanged(Sidecar sidecar) {
+    if (sidecar.offset > ledgerFile.size()
+        || !checksumOfBytesBefore(sidecar.offset).equals(sidecar.checksum)) {
+      LOGGER.atInfo().log("The start of %s has changed. Parsing all of it.", ledgerFile);
+      return false;
+    }
+    return true;
+  }
+
+  private HashCode checksumOfBytesBefore(long offset) {
+    try {
+      return ledgerFile.asByteSource().slice(0, offset).hash(Hashing.sha256());
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not hash ledger file: %s", ledgerFile);
+      // A random hash never matches a saved one, so the whole file is parsed next time.
+      return HashCode.fromLong(System.nanoTime());
+    }
+  }
+
+  private Optional<Sidecar> readSidecar() {
+    if (!Files.isRegularFile(sidecarFile)) {
+      return Optional.empty();
+    }
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecarFile)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        LOGGER.atInfo().log("Ignoring ledger sidecar with an unknown format: %s", sidecarFile);
+        return Optional.empty();
+      }
+      long offset = input.readLong();
+      HashCode checksum = HashCode.fromBytes(readBytes(input));
+      Model model = Model.parseFrom(readBytes(input));
+      return Optional.of(new Sidecar(offset, checksum, model));
+    } catch (IOException | RuntimeException e) {
+      // Whatever is wrong with the sidecar, the whole file can simply be parsed again.
+      LOGGER.atWarning().withCause(e).log("Could not read ledger sidecar: %s", sidecarFile);
+      return Optional.empty();
+    }
+  }
+
+  private void writeSidecar(Sidecar sidecar) {
+    Path temporaryFile = sidecarFile.resolveSibling(sidecarFile.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(sidecar.offset);
+        writeBytes(output, sidecar.checksum.asBytes());
+        writeBytes(output, sidecar.model.toByteArray());
+      }
+      // Readers never see a partially written sidecar.
+      Files.move(
+          temporaryFile,
+          sidecarFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.atWarning().withCause(e).log("Could not write ledger sidecar to: %s", sidecarFile);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  /** The model of a ledger file up to the byte offset, and the checksum of those bytes. */
+  private static class Sidecar {
+    private final long offset;
+    private final HashCode checksum;
+    private final Model model;
+
+    private Sidecar(long offset, HashCode checksum, Model model) {
+      this.offset = offset;
+      this.checksum = checksum;
+      this.model = model;
+    }
+  }
+}
@@ -1,32 +1,34 @@
 package net.brentwalther.jcf.model.importer;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.base.Joiner;
-import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.FluentIterable;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.hash.Hashing;
+import com.google.common.hash.HashCode;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import net.brentwalther.jcf.model.AmountSum;
 import net.brentwalther.jcf.model.JcfModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Split;
 import net.brentwalther.jcf.model.JcfModel.Transaction;
 import net.brentwalther.jcf.model.ModelGenerators;
-import net.brentwalther.jcf.model.ModelTransforms;
 import net.brentwalther.jcf.model.ModelValidations;
+import net.brentwalther.jcf.string.DateDecoder;
 import net.brentwalther.jcf.string.Formatter;
 
 public class LedgerFileImporter implements JcfModelImporter {
@@ -36,186 +38,284 @@ public class LedgerFileImporter implements JcfModelImporter {
   private static final String ACCOUNT_NAME_PREFIX = "account";
   private static final Pattern CURRENCY_LIKE_AT_END_OF_LINE_PATTERN =
       Pattern.compile("\\s*[$][-]?[0-9,]+([.]\\d+)?\\s*$");
-  private static final ImmutableMap<Pattern, DateTimeFormatter> DATE_TIME_PATTERNS_TO_FORMATTERS =
-      ImmutableMap.<Pattern, DateTimeFormatter>builder()
-          .put(
-              Pattern.compile("[12]\\d{3}-\\d{2}-\\d{2}"),
-              DateTimeFormatter.ofPattern("yyyy-MM-dd"))
-          .put(
-              Pattern.compile("[12]\\d{3}/\\d{2}/\\d{2}"),
-              DateTimeFormatter.ofPattern("yyyy/MM/dd"))
-          .build();
-
-  private final ImmutableList<String> ledgerFileLines;
-
-  private LedgerFileImporter(List<String> ledgerFileLines) {
-    this.ledgerFileLines = ImmutableList.copyOf(ledgerFileLines);
+  private static final DateDecoder DATE_DECODER = DateDecoder.forLedger();
+
+  /**
+   * The number of lines after which the file is split into another chunk, at the next blank line.
+   * Files smaller than this are parsed in a single chunk.
+   */
+  private static final int DEFAULT_LINES_PER_CHUNK = 8192;
+
+  private final Iterable<String> ledgerFileLines;
+  private final int linesPerChunk;
+
+  private LedgerFileImporter(Iterable<String> ledgerFileLines, int linesPerChunk) {
+    this.ledgerFileLines = ledgerFileLines;
+    this.linesPerChunk = linesPerChunk;
   }
 
-  public static LedgerFileImporter create(List<String> ledgerFileLines) {
-    return new LedgerFileImporter(ledgerFileLines);
+  /**
+   * Returns an importer of the lines. The lines are iterated once, when the model is imported, so
+   * they can be read lazily from the file.
+   */
+  public static LedgerFileImporter create(Iterable<String> ledgerFileLines) {
+    return new LedgerFileImporter(ledgerFileLines, DEFAULT_LINES_PER_CHUNK);
+  }
+
+  /**
+   * Returns an importer which splits the file into chunks of about the number of lines. Each chunk
+   * ends at a blank line, so that every transaction is parsed within a single chunk.
+   */
+  static LedgerFileImporter create(Iterable<String> ledgerFileLines, int linesPerChunk) {
+    checkArgument(linesPerChunk > 0, "There must be at least one line per chunk.");
+    return new LedgerFileImporter(ledgerFileLines, linesPerChunk);
   }
 
   private static Account accountForLedgerName(String accountName) {
     return ModelGenerators.simpleAccount(accountName);
   }
 
+  /**
+   * Parses the file. Chunks of the file are parsed in parallel on the common fork-join pool and
+   * then merged in file order, so the result is the same as parsing the file from start to end.
+   * Only a few chunks are read ahead of the oldest one being parsed, so the lines of the whole file
+   * are never held at once.
+   */
   public JcfModel.Model get() {
-    Splitter spaceSplitter = Splitter.on(' ').omitEmptyStrings().trimResults();
-    Joiner spaceJoiner = Joiner.on(' ');
-    Map<String, Account> accountsById = new HashMap<>();
-    Map<String, Transaction> transactionsById = new HashMap<>();
-    Multimap<String, Split> splitsByTranscationId = ArrayListMultimap.create();
-
-    Transaction currentTransaction = null;
-    List<Split> currentSplits = new ArrayList<>();
-
-    // Process all lines and ensure the last line is always an empty line.
-    for (String line : FluentIterable.from(ledgerFileLines).append("")) {
-      if (line.trim().isEmpty()) {
-        // If the line is empty and we are currently processing a transaction, go ahead
-        // and check that it and the splits are valid and then commit it.
-        if (currentTransaction != null) {
-          if (currentSplits.isEmpty()) {
-            LOGGER.atWarning().log(
-                "The transaction %s has no splits. Skipping it.",
-                spaceJoiner.join(
-                    Formatter.ledgerDate(
-                        Instant.ofEpochSecond(currentTransaction.getPostDateEpochSecond())),
-                    currentTransaction.getDescription()));
-          }
-          if (!ModelValidations.areSplitsBalanced(currentSplits)) {
-            LOGGER.atWarning().log(
-                "The transaction %s %s is not balanced! Splits are: [%s]",
-                Formatter.ledgerDate(
-                    Instant.ofEpochSecond(currentTransaction.getPostDateEpochSecond())),
-                currentTransaction.getDescription(),
-                Joiner.on(", ").join(currentSplits));
-          }
-          transactionsById.put(currentTransaction.getId(), currentTransaction);
-          splitsByTranscationId.putAll(currentTransaction.getId(), currentSplits);
-          currentTransaction = null;
-          currentSplits.clear();
-        }
-        continue;
-      }
+    return getAppendedTo(ModelGenerators.empty());
+  }
 
-      List<String> tokens = spaceSplitter.splitToList(line);
-
-      // If we've got a non-null currentTransaction it means we're in the middle of extracting its
-      // splits. Try to parse this line as one.
-      if (currentTransaction != null) {
-        Matcher currencyMatcher = CURRENCY_LIKE_AT_END_OF_LINE_PATTERN.matcher(line);
-        boolean foundAmount = currencyMatcher.find();
-        if (!foundAmount && currentSplits.isEmpty()) {
-          LOGGER.atWarning().log(
-              "Expected to but could not find a currency-like amount on line '%s'.\nSkipping it.",
-              line);
-          continue;
-        }
-        BigDecimal amount =
-            foundAmount
-                ? new BigDecimal(
-                    // Create a big decimal from the regular base-10 number the matcher found,
-                    // stripping formatting characters first.
-                    line.substring(currencyMatcher.start(), currencyMatcher.end())
-                        .trim()
-                        .replace("$", "")
-                        .replace(",", ""))
-                : currentSplits.stream()
-                    .map(ModelTransforms::bigDecimalAmountForSplit)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .negate();
-        Split.Builder splitBuilder =
-            ModelGenerators.splitBuilderWithAmount(amount)
-                .setTransactionId(currentTransaction.getId());
-        Account account =
-            accountForLedgerName(
-                foundAmount ? line.substring(0, currencyMatcher.start()).trim() : line.trim());
-        Account oldAccount = accountsById.put(account.getId(), account);
-        if (oldAccount != null && !oldAccount.equals(account)) {
-          LOGGER.atInfo().log("Replaced account [%s] with [%s]", oldAccount, account);
-          accountsById.put(account.getId(), account);
-        }
-        currentSplits.add(splitBuilder.setAccountId(account.getId()).build());
-      } else if (tokens.get(0).equals(ACCOUNT_NAME_PREFIX)) {
-        FluentIterable<String> rest = FluentIterable.from(tokens).skip(1);
-        String accountName = spaceJoiner.join(rest).trim();
-        Account account = accountForLedgerName(accountName);
-        Account oldAccount = accountsById.put(account.getId(), account);
-        if (oldAccount != null && !oldAccount.equals(account)) {
-          LOGGER.atInfo().log("Replaced account [%s] with [%s]", oldAccount, account);
-          accountsById.put(account.getId(), account);
+  /**
+   * Returns the model of the lines appended to the base, which must be the import of the lines that
+   * came before them in the same file. The result is the same as importing all the lines at once.
+   */
+  JcfModel.Model getAppendedTo(JcfModel.Model base) {
+    int maxPendingChunks = 2 * ForkJoinPool.getCommonPoolParallelism();
+    Deque<ForkJoinTask<Chunk>> pendingChunks = new ArrayDeque<>();
+    MergedChunks merged = new MergedChunks(base);
+    List<String> chunkLines = new ArrayList<>();
+    int lineCount = 0;
+    for (String line : ledgerFileLines) {
+      lineCount++;
+      chunkLines.add(line);
+      // Only end a chunk at a blank line, where no transaction is being parsed.
+      if (chunkLines.size() >= linesPerChunk && isBlank(line)) {
+        pendingChunks.addLast(submit(chunkLines));
+        chunkLines = new ArrayList<>();
+        if (pendingChunks.size() > maxPendingChunks) {
+          merged.add(pendingChunks.removeFirst().join());
         }
-      } else if (isProbableDate(tokens.get(0))) {
-        Optional<Instant> maybeInstant = parseDateAsInstant(tokens.get(0));
-        if (!maybeInstant.isPresent()) {
-          LOGGER.atWarning().log(
-              "Thought the field %s was a date but could not parse it. Ignoring line: %s",
-              tokens.get(0), line);
-          continue;
-        }
-        // For the first line of transaction, the format is defined at:
-        // https://www.ledger-cli.org/3.0/doc/ledger3.html#index-transaction_002c-automated
-        // It looks like: `DATE[=EDATE] [*|!] [(CODE)] DESC`
-        Instant transactionInstant = maybeInstant.get();
-        FluentIterable<String> restOfTokens = FluentIterable.from(tokens).skip(1);
-        // If the next token is a * or ! it indicates the clear status. Go ahead and skip that
-        // since we don't keep track of clearing status in our model.
-        String maybeClearStatus = Iterables.getFirst(restOfTokens, "");
-        if (maybeClearStatus.equals("*") || maybeClearStatus.equals("!")) {
-          restOfTokens = restOfTokens.skip(1);
-        }
-        // We also don't keep track of the optional code in the current model so skip over it if
-        // it's present.
-        String maybeCode = Iterables.getFirst(restOfTokens, "");
-        if (maybeCode.startsWith("(") && maybeCode.endsWith(")")) {
-          restOfTokens = restOfTokens.skip(1);
-        }
-        String transactionDescription = spaceJoiner.join(restOfTokens);
-        if (transactionDescription.isEmpty()) {
-          LOGGER.atWarning().log(
-              "Transaction occurring on date %s had no description!", tokens.get(0));
-        }
-        currentTransaction =
-            Transaction.newBuilder()
-                .setId(
-                    Hashing.goodFastHash(32)
-                        .newHasher()
-                        .putInt(transactionInstant.hashCode())
-                        .putInt(transactionDescription.hashCode())
-                        .putDouble(Math.random())
-                        .hash()
-                        .toString())
-                .setDescription(transactionDescription)
-                .setPostDateEpochSecond(transactionInstant.getEpochSecond())
-                .build();
-      } else {
-        LOGGER.atWarning().log("Ignoring line from ledger file: '%s'", line);
       }
     }
+    if (!chunkLines.isEmpty()) {
+      pendingChunks.addLast(submit(chunkLines));
+    }
+    while (!pendingChunks.isEmpty()) {
+      merged.add(pendingChunks.removeFirst().join());
+    }
     LOGGER.atInfo().log(
-        "Imported %s accounts, %s transactions, and %s splits from %s lines of a ledger CLI-compatible file.",
-        accountsById.size(),
-        transactionsById.size(),
-        splitsByTranscationId.size(),
-        ledgerFileLines.size());
+        "Imported %s accounts, %s transactions, and %s splits from %s lines of a ledger "
+            + "CLI-compatible file in %s chunks.",
+        merged.accountsById.size(),
+        merged.transactionsById.size(),
+        merged.splitsByTranscationId.size(),
+        lineCount,
+        merged.chunkCount);
     return ModelGenerators.create(
-        accountsById.values(), transactionsById.values(), splitsByTranscationId.values());
+        merged.accountsById.values(),
+        merged.transactionsById.values(),
+        merged.splitsByTranscationId.values());
+  }
+
+  private static ForkJoinTask<Chunk> submit(List<String> chunkLines) {
+    return ForkJoinPool.commonPool().submit(() -> Chunk.parse(chunkLines));
+  }
+
+  private static boolean isBlank(String line) {
+    return line.trim().isEmpty();
+  }
+
+  /** Puts the account, replacing and logging any different account with the same ID. */
+  private static void putAccount(Map<String, Account> accountsById, Account account) {
+    Account oldAccount = accountsById.put(account.getId(), account);
+    if (oldAccount != null && !oldAccount.equals(account)) {
+      LOGGER.atInfo().log("Replaced account [%s] with [%s]", oldAccount, account);
+    }
   }
 
-  private Optional<Instant> parseDateAsInstant(String s) {
-    for (Pattern pattern : DATE_TIME_PATTERNS_TO_FORMATTERS.keySet()) {
-      if (pattern.matches(s)) {
-        return Optional.of(
-            Formatter.parseDateFrom(s, DATE_TIME_PATTERNS_TO_FORMATTERS.get(pattern)));
+  /** The accounts, transactions and splits of the chunks merged so far, in file order. */
+  private static class MergedChunks {
+    private final Map<String, Account> accountsById = new LinkedHashMap<>();
+    private final Map<String, Transaction> transactionsById = new LinkedHashMap<>();
+    private final Multimap<String, Split> splitsByTranscationId =
+        MultimapBuilder.linkedHashKeys().arrayListValues().build();
+    /** Assigns IDs in file order, which is why it's done here rather than as chunks are parsed. */
+    private final TransactionIdGenerator idGenerator = TransactionIdGenerator.create();
+    private int chunkCount = 0;
+
+    private MergedChunks(JcfModel.Model base) {
+      for (Account account : base.getAccountList()) {
+        accountsById.put(account.getId(), account);
+      }
+      for (Split split : base.getSplitList()) {
+        splitsByTranscationId.put(split.getTransactionId(), split);
       }
+      for (Transaction transaction : base.getTransactionList()) {
+        transactionsById.put(transaction.getId(), transaction);
+        idGenerator.countExisting(
+            TransactionIdGenerator.contentHash(
+                transaction.getPostDateEpochSecond(),
+                transaction.getDescription(),
+                splitsByTranscationId.get(transaction.getId())));
+      }
+    }
+
+    private void add(Chunk chunk) {
+      for (Account account : chunk.accountsById.values()) {
+        putAccount(accountsById, account);
+      }
+      for (ParsedTransaction parsed : chunk.transactions) {
+        String id = idGenerator.nextId(parsed.contentHash);
+        transactionsById.put(id, parsed.transaction.toBuilder().setId(id).build());
+        for (Split split : parsed.splits) {
+          splitsByTranscationId.put(id, split.toBuilder().setTransactionId(id).build());
+        }
+      }
+      chunkCount++;
+    }
+  }
+
+  /** A transaction and its splits, which don't have IDs until the chunks are merged. */
+  private static class ParsedTransaction {
+    private final Transaction transaction;
+    private final List<Split> splits;
+    private final HashCode contentHash;
+
+    private ParsedTransaction(Transaction transaction, List<Split> splits) {
+      this.transaction = transaction;
+      this.splits = splits;
+      this.contentHash =
+          TransactionIdGenerator.contentHash(
+              transaction.getPostDateEpochSecond(), transaction.getDescription(), splits);
     }
-    return Optional.absent();
   }
 
-  private boolean isProbableDate(String s) {
-    return FluentIterable.from(DATE_TIME_PATTERNS_TO_FORMATTERS.keySet())
-        .anyMatch(p -> p.matches(s));
+  /** The accounts and transactions parsed from a chunk of lines. */
+  private static class Chunk {
+    private final Map<String, Account> accountsById = new LinkedHashMap<>();
+    private final List<ParsedTransaction> transactions = new ArrayList<>();
+
+    private static Chunk parse(List<String> lines) {
+      Splitter spaceSplitter = Splitter.on(' ').omitEmptyStrings().trimResults();
+      Joiner spaceJoiner = Joiner.on(' ');
+      Chunk chunk = new Chunk();
+
+      Transaction currentTransaction = null;
+      List<Split> currentSplits = new ArrayList<>();
+
+      // Process all lines and ensure the last line is always an empty line.
+      for (String line : FluentIterable.from(lines).append("")) {
+        if (isBlank(line)) {
+          // If the line is empty and we are currently processing a transaction, go ahead
+          // and check that it and the splits are valid and then commit it.
+          if (currentTransaction != null) {
+            if (currentSplits.isEmpty()) {
+              LOGGER.atWarning().log(
+                  "The transaction %s has no splits. Skipping it.",
+                  spaceJoiner.join(
+                      Formatter.ledgerDate(
+                          Instant.ofEpochSecond(currentTransaction.getPostDateEpochSecond())),
+                      currentTransaction.getDescription()));
+            }
+            if (!ModelValidations.areSplitsBalanced(currentSplits)) {
+              LOGGER.atWarning().log(
+                  "The transaction %s %s is not balanced! Splits are: [%s]",
+                  Formatter.ledgerDate(
+                      Instant.ofEpochSecond(currentTransaction.getPostDateEpochSecond())),
+                  currentTransaction.getDescription(),
+                  Joiner.on(", ").join(currentSplits));
+            }
+            chunk.transactions.add(new ParsedTransaction(currentTransaction, currentSplits));
+            currentTransaction = null;
+            currentSplits = new ArrayList<>();
+          }
+          continue;
+        }
+
+        // If we've got a non-null currentTransaction it means we're in the middle of extracting
+        // its splits. Try to parse this line as one.
+        if (currentTransaction != null) {
+          // Every amount has a dollar sign, so lines without one can skip the pattern.
+          Matcher currencyMatcher = CURRENCY_LIKE_AT_END_OF_LINE_PATTERN.matcher(line);
+          boolean foundAmount = line.indexOf('$') >= 0 && currencyMatcher.find();
+          if (!foundAmount && currentSplits.isEmpty()) {
+            LOGGER.atWarning().log(
+                "Expected to but could not find a currency-like amount on line '%s'.\nSkipping it.",
+                line);
+            continue;
+          }
+          BigDecimal amount =
+              foundAmount
+                  ? new BigDecimal(
+                      // Create a big decimal from the regular base-10 number the matcher found,
+                      // stripping formatting characters first.
+                      line.substring(currencyMatcher.start(), currencyMatcher.end())
+                          .trim()
+                          .replace("$", "")
+                          .replace(",", ""))
+                  : AmountSum.of(currentSplits).value().negate();
+          Split.Builder splitBuilder = ModelGenerators.splitBuilderWithAmount(amount);
+          Account account =
+              accountForLedgerName(
+                  foundAmount ? line.substring(0, currencyMatcher.start()).trim() : line.trim());
+          putAccount(chunk.accountsById, account);
+          currentSplits.add(splitBuilder.setAccountId(account.getId()).build());
+          continue;
+        }
+
+        List<String> tokens = spaceSplitter.splitToList(line);
+        long postDateEpochSecond;
+        if (tokens.get(0).equals(ACCOUNT_NAME_PREFIX)) {
+          String accountName = spaceJoiner.join(tokens.subList(1, tokens.size())).trim();
+          putAccount(chunk.accountsById, accountForLedgerName(accountName));
+        } else if ((postDateEpochSecond = DATE_DECODER.decode(tokens.get(0)))
+            != DateDecoder.NOT_A_DATE) {
+          // For the first line of transaction, the format is defined at:
+          // https://www.ledger-cli.org/3.0/doc/ledger3.html#index-transaction_002c-automated
+          // It looks like: `DATE[=EDATE] [*|!] [(CODE)] DESC`
+          int descriptionStart = 1;
+          // If the next token is a * or ! it indicates the clear status. Go ahead and skip that
+          // since we don't keep track of clearing status in our model.
+          String maybeClearStatus = tokenOrEmpty(tokens, descriptionStart);
+          if (maybeClearStatus.equals("*") || maybeClearStatus.equals("!")) {
+            descriptionStart++;
+          }
+          // We also don't keep track of the optional code in the current model so skip over it if
+          // it's present.
+          String maybeCode = tokenOrEmpty(tokens, descriptionStart);
+          if (maybeCode.startsWith("(") && maybeCode.endsWith(")")) {
+            descriptionStart++;
+          }
+          String transactionDescription =
+              spaceJoiner.join(tokens.subList(descriptionStart, tokens.size()));
+          if (transactionDescription.isEmpty()) {
+            LOGGER.atWarning().log(
+                "Transaction occurring on date %s had no description!", tokens.get(0));
+          }
+          currentTransaction =
+              Transaction.newBuilder()
+                  .setDescription(transactionDescription)
+                  .setPostDateEpochSecond(postDateEpochSecond)
+                  .build();
+        } else {
+          LOGGER.atWarning().log("Ignoring line from ledger file: '%s'", line);
+        }
+      }
+      return chunk;
+    }
+
+    private static String tokenOrEmpty(List<String> tokens, int index) {
+      return index < tokens.size() ? tokens.get(index) : "";
+    }
   }
 }
@@ -0,0 +1,73 @@
+package net.brentwalther.jcf.model.importer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.util.HashMap;
+import java.util.Map;
+import net.brentwalther.jcf.model.JcfModel.Split;
+
+/**
+ * Generates transaction IDs from the content of the transactions, so that importing the same file
+ * again yields the same IDs. The content is the post date, the description and the account and
+ * amount of each split. Transactions with the same content are told apart by their ordinal, the
+ * number of transactions with the same content that were given an ID before them.
+ *
+ * <p>IDs must be requested in the order the transactions appear in the file. Instances are not
+ * thread-safe, but {@link #contentHash} can be called from any thread.
+ */
+final class TransactionIdGenerator {
+
+  /** Unlike {@link Hashing#goodFastHash}, the same on every run. */
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final Map<HashCode, Integer> ordinalsByContentHash = new HashMap<>();
+
+  static TransactionIdGenerator create() {
+    return new TransactionIdGenerator();
+  }
+
+  /** Returns the hash of a transaction's content. The splits' transaction IDs are ignored. */
+  static HashCode contentHash(
+      long postDateEpochSecond, String description, Iterable<Split> splits) {
+    Hasher hasher = HASH_FUNCTION.newHasher().putLong(postDateEpochSecond);
+    putString(hasher, description);
+    for (Split split : splits) {
+      putString(hasher, split.getAccountId());
+      hasher.putInt(split.getValueNumerator()).putInt(split.getValueDenominator());
+    }
+    return hasher.hash();
+  }
+
+  /**
+   * Counts a transaction that was given its ID by an earlier import, such as of the start of a file
+   * whose end is imported now, so that the ordinals carry on from it.
+   */
+  void countExisting(HashCode contentHash) {
+    ordinalsByContentHash.merge(contentHash, 1, Integer::sum);
+  }
+
+  /** Returns the ID of the next transaction with the content. */
+  String nextId(HashCode contentHash) {
+    int ordinal = ordinalsByContentHash.merge(contentHash, 1, Integer::sum) - 1;
+    if (ordinal == 0) {
+      return contentHash.toString();
+    }
+    return HASH_FUNCTION
+        .newHasher()
+        .putBytes(contentHash.asBytes())
+        .putInt(ordinal)
+        .hash()
+        .toString();
+  }
+
+  /** Puts the string with its length so that adjacent strings can't run together. */
+  private static void putString(Hasher hasher, String string) {
+    hasher.putInt(string.length()).putString(string, UTF_8);
+  }
+
+  private TransactionIdGenerator() {}
+}
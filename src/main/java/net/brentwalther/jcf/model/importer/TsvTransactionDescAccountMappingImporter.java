@@ -1,7 +1,6 @@
 package net.brentwalther.jcf.model.importer;
 
 import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableList;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -17,13 +16,13 @@ public class TsvTransactionDescAccountMappingImporter implements JcfModelImporte
 
   private static final Splitter TSV_SPLITTER = Splitter.on('\t');
 
-  private final ImmutableList<String> tsvLines;
+  private final Iterable<String> tsvLines;
 
-  private TsvTransactionDescAccountMappingImporter(List<String> tsvLines) {
-    this.tsvLines = ImmutableList.copyOf(tsvLines);
+  private TsvTransactionDescAccountMappingImporter(Iterable<String> tsvLines) {
+    this.tsvLines = tsvLines;
   }
 
-  public static TsvTransactionDescAccountMappingImporter create(List<String> tsvLines) {
+  public static TsvTransactionDescAccountMappingImporter create(Iterable<String> tsvLines) {
     return new TsvTransactionDescAccountMappingImporter(tsvLines);
   }
 
@@ -9,17 +9,19 @@ import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Map;
+import java.util.Optional;
+import net.brentwalther.jcf.model.AmountSum;
 import net.brentwalther.jcf.model.CompleteSplit;
 import net.brentwalther.jcf.model.IndexedModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
-import net.brentwalther.jcf.model.ModelTransforms;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
 import net.brentwalther.jcf.string.Formatter;
 
 public class TsvNetworthReport {
@@ -29,28 +31,22 @@ public class TsvNetworthReport {
   }
 
   public static String generateFrom(IndexedModel model) {
+    ImmutableListMultimap.Builder<Instant, CompleteSplit> splitsByInstantBuilder =
+        ImmutableListMultimap.builder();
+    for (Transaction transaction : model.getTransactionsInPostDateOrder()) {
+      Instant instant = Instant.ofEpochSecond(transaction.getPostDateEpochSecond());
+      for (Split split : model.splitsForTransaction(transaction)) {
+        Optional<Account> account = model.getAccountById(split.getAccountId());
+        if (account.isPresent()) {
+          splitsByInstantBuilder.put(
+              instant, CompleteSplit.create(split, account.get(), transaction));
+        }
+      }
+    }
     ImmutableMultimap<Instant, CompleteSplit> splitsByDistinctInstants =
-        ImmutableListMultimap.copyOf(
-            FluentIterable.from(model.getAllSplits())
-                .filter(
-                    s ->
-                        s != null
-                            && model.getAccountById(s.getAccountId()).isPresent()
-                            && model.getTransactionById(s.getTransactionId()).isPresent())
-                .transform(
-                    split ->
-                        Maps.immutableEntry(
-                            Instant.ofEpochSecond(
-                                model
-                                    .getTransactionById(split.getTransactionId())
-                                    .get()
-                                    .getPostDateEpochSecond()),
-                            CompleteSplit.create(
-                                split,
-                                model.getAccountById(split.getAccountId()).get(),
-                                model.getTransactionById(split.getTransactionId()).get()))));
+        splitsByInstantBuilder.build();
 
-    Map<Account, BigDecimal> balances =
+    Map<Account, AmountSum> balances =
         Maps.newLinkedHashMapWithExpectedSize(model.getAllAccounts().size());
     ImmutableSortedSet<Instant> orderedDistinctTransactionInstants =
         ImmutableSortedSet.copyOf(Ordering.natural(), splitsByDistinctInstants.keySet());
@@ -77,16 +73,16 @@ public class TsvNetworthReport {
       }
       for (Instant instant : distinctInstants) {
         for (CompleteSplit split : splitsByDistinctInstants.get(instant)) {
-          balances.put(
-              split.account(),
-              balances
-                  .getOrDefault(split.account(), BigDecimal.ZERO)
-                  .add(ModelTransforms.bigDecimalAmountForSplit(split.split())));
+          balances
+              .computeIfAbsent(split.account(), account -> AmountSum.create())
+              .add(split.split());
         }
       }
       lines.add(
           FluentIterable.of(Formatter.date(nextCutoff.toInstant()))
-              .append(FluentIterable.from(balances.values()).transform(Formatter::currency))
+              .append(
+                  FluentIterable.from(balances.values())
+                      .transform(balance -> Formatter.currency(balance.value())))
               .join(Joiner.on('\t')));
       nextCutoff = nextCutoff.plusMonths(1);
     }
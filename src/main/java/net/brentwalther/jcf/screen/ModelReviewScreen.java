@@ -1,19 +1,12 @@
 package net.brentwalther.jcf.screen;
 
-import static com.google.common.base.Preconditions.checkState;
-
 import com.google.common.base.Joiner;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
-import com.google.common.collect.Multiset;
-import com.google.common.collect.Multiset.Entry;
-import com.google.common.collect.Multisets;
 import java.util.Comparator;
 import java.util.Optional;
 import net.brentwalther.jcf.export.CsvExporter;
@@ -90,18 +83,17 @@ class ModelReviewScreen {
         Optional.ofNullable(promptEvaluator.blockingGetResult(FilePrompt.anyFile()))
             .filter(r -> !r.equals(Result.userInterrupt()))
             .flatMap(Result::instance)
-            .ifPresent(file -> JcfModelExporter.start(indexedModel.toProto(), file));
+            .ifPresent(file -> JcfModelExporter.start(indexedModel, file));
         break;
       case CSV_EXPORT:
-        Multiset<String> accountIdCounts =
-            HashMultiset.create(
-                FluentIterable.from(indexedModel.getAllSplits())
-                    .transform((split) -> split.getAccountId()));
-        Entry<String> mostFrequentlyOccurringAccountId =
-            accountIdCounts.entrySet().stream()
-                .max(Comparator.comparingInt(Entry::getCount))
-                .orElse(Multisets.immutableEntry("", 0));
-        if (mostFrequentlyOccurringAccountId.getCount() != indexedModel.getTransactionCount()) {
+        Optional<Account> mostFrequentlyOccurringAccountOptional =
+            indexedModel.getAllAccounts().stream()
+                .max(
+                    Comparator.comparingInt(
+                        (account) -> indexedModel.splitsForAccount(account).size()));
+        if (!mostFrequentlyOccurringAccountOptional.isPresent()
+            || indexedModel.splitsForAccount(mostFrequentlyOccurringAccountOptional.get()).size()
+                != indexedModel.getTransactionCount()) {
           promptEvaluator.blockingGetResult(
               NoticePrompt.withMessages(
                   ImmutableList.of(
@@ -109,9 +101,6 @@ class ModelReviewScreen {
                       "that splits every transaction (the primary 'source' of these transactions).",
                       "Please only export CSVs from a model created from a single account")));
         } else {
-          Optional<Account> mostFrequentlyOccurringAccountOptional =
-              indexedModel.getAccountById(mostFrequentlyOccurringAccountId.getElement());
-          checkState(mostFrequentlyOccurringAccountOptional.isPresent());
           Account mostFrequentlyOccurringAccount = mostFrequentlyOccurringAccountOptional.get();
           Optional.ofNullable(promptEvaluator.blockingGetResult(FilePrompt.anyFile()))
               .filter(r -> !r.equals(Result.userInterrupt()))
@@ -1,32 +1,27 @@
 package net.brentwalther.jcf.screen;
 
-import static com.google.common.base.Preconditions.checkState;
-
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Joiner;
-import com.google.common.base.Strings;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
-import com.google.common.collect.Ordering;
 import com.google.common.flogger.FluentLogger;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import net.brentwalther.jcf.matcher.SplitMatcher;
+import net.brentwalther.jcf.matcher.SplitMatcher.AccountScore;
 import net.brentwalther.jcf.matcher.SplitMatcher.Match;
 import net.brentwalther.jcf.matcher.SplitMatcher.MatchData;
-import net.brentwalther.jcf.matcher.SplitMatcher.MatchResult;
+import net.brentwalther.jcf.matcher.SplitMatcher.ShouldExcludePredicate;
+import net.brentwalther.jcf.model.AmountSum;
 import net.brentwalther.jcf.model.IndexedModel;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
@@ -112,51 +107,13 @@ public class SplitMatcherScreen {
             ImmutableList.copyOf(
                 Lists.transform(
                     splitsForTransaction, split -> allAccountsById.get(split.getAccountId())));
-        ImmutableList<Match> matches =
-            splitMatcher.getTopMatches(
-                transaction,
-                splitsForTransaction,
-                /* shouldExcludePredicate= */ account ->
-                    FluentIterable.from(accountsOfExistingSplits)
-                        .transform(Account::getName)
-                        .anyMatch(
-                            existingSplitAccountName -> {
-                              if (account.getName().equals(existingSplitAccountName)) {
-                                // Don't suggest to split the transaction with an account it's
-                                // already been split with.
-                                return true;
-                              }
-                              String commonPrefix =
-                                  Strings.commonPrefix(existingSplitAccountName, account.getName());
-                              // Exclude the account if it shares at least one 'parent' account
-                              // in common. This only works for account hierarchies that use a
-                              // colon separator.
-                              return commonPrefix.chars().filter(i -> i == ':').count() > 1;
-                            }));
-
-        // Add all the partial confidence matches ordered by their confidence.
-        Map<Account, Double> accountProbabilities = new HashMap<>();
-        for (Match match : matches) {
-          if (!match.result().equals(MatchResult.PARTIAL_CONFIDENCE)) {
-            continue;
-          }
-          checkState(match.matches().size() == 1);
-          accountProbabilities.compute(
-              match.matches().get(0).account(),
-              (account, existingProbability) ->
-                  match.confidence().orElse(0.0)
-                      + Optional.ofNullable(existingProbability).orElse(0.0));
-        }
+        ShouldExcludePredicate shouldExcludePredicate =
+            ShouldExcludePredicate.excludingRelativesOf(accountsOfExistingSplits);
         ImmutableList<Account> topMatches =
             FluentIterable.from(
-                    ImmutableSortedSet.copyOf(
-                            Ordering.natural()
-                                .onResultOf(
-                                    e -> Optional.ofNullable(e).map(Entry::getValue).orElse(0.0)),
-                            accountProbabilities.entrySet())
-                        .descendingSet())
-                .transform(Entry::getKey)
-                .limit(MAX_NUM_MATCHES_SHOWN)
+                    splitMatcher.getTopAccounts(
+                        transaction, MAX_NUM_MATCHES_SHOWN, shouldExcludePredicate))
+                .transform(AccountScore::account)
                 .toList();
 
         ImmutableList.Builder<Option> optionsBuilder =
@@ -170,9 +127,7 @@ public class SplitMatcherScreen {
 
         // If the split matcher thought it could be a duplicate, allow the user to confirm that.
         Optional<Match> duplicateMatchResult =
-            matches.stream()
-                .filter(match -> match.result().equals(MatchResult.PROBABLE_DUPLICATE))
-                .findFirst();
+            splitMatcher.getProbableDuplicate(transaction, splitsForTransaction);
         Option duplicateOption =
             duplicateMatchResult.isPresent()
                 ? Option.create(
@@ -283,10 +238,7 @@ public class SplitMatcherScreen {
 
   /** Returns a BigDecimal which is the negation of the sum of all split amounts. */
   private static BigDecimal offsettingAmountOf(List<Split> splitsForTransaction) {
-    return splitsForTransaction.stream()
-        .map(ModelTransforms::bigDecimalAmountForSplit)
-        .reduce(BigDecimal.ZERO, BigDecimal::add)
-        .negate();
+    return AmountSum.of(splitsForTransaction).value().negate();
   }
 
   @Deprecated
@@ -0,0 +1,148 @@
+package net.brentwalther.jcf.string;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes dates to the epoch second at the start of their day in the system time zone, like {@link
+ * Formatter#parseDateFrom} but much faster for the common fixed-width layouts, which are decoded
+ * by hand. Each day's epoch second is computed once and then cached, so a decoder should be reused
+ * for all the dates of an import. Instances are thread-safe.
+ */
+public final class DateDecoder {
+
+  /** Returned by {@link #decode} for text that isn't a date. */
+  public static final long NOT_A_DATE = Long.MIN_VALUE;
+
+  private final ImmutableList<Layout> layouts;
+  /** Parses dates in any other format, or null if there's no other format. */
+  private final DateTimeFormatter fallbackFormatter;
+  private final ZoneId zone = ZoneId.systemDefault();
+  /** The epoch seconds by year * 10000 + month * 100 + day. */
+  private final Map<Integer, Long> epochSecondsByDay = new ConcurrentHashMap<>();
+
+  private DateDecoder(ImmutableList<Layout> layouts, DateTimeFormatter fallbackFormatter) {
+    this.layouts = layouts;
+    this.fallbackFormatter = fallbackFormatter;
+  }
+
+  /**
+   * Returns a decoder of dates in the formatter's format. It's decoded by hand if it's one of the
+   * common fixed-width layouts and parsed by the formatter otherwise.
+   */
+  public static DateDecoder forFormatter(DateTimeFormatter formatter) {
+    for (Layout layout : Layout.values()) {
+      if (layout.isFormatOf(formatter)) {
+        // Text that isn't in the layout still fails to parse the same way.
+        return new DateDecoder(ImmutableList.of(layout), formatter);
+      }
+    }
+    return new DateDecoder(ImmutableList.of(), formatter);
+  }
+
+  /** Returns a decoder of the date formats of ledger files, yyyy-MM-dd and yyyy/MM/dd. */
+  public static DateDecoder forLedger() {
+    return new DateDecoder(
+        ImmutableList.of(Layout.YEAR_MONTH_DAY_DASHES, Layout.YEAR_MONTH_DAY_SLASHES), null);
+  }
+
+  /**
+   * Returns the epoch second at the start of the date's day, or {@link #NOT_A_DATE} if the text
+   * isn't a date in any of the fixed-width layouts and there's no formatter to fall back to.
+   *
+   * @throws java.time.format.DateTimeParseException if the fallback formatter can't parse the text
+   */
+  public long decode(String text) {
+    for (Layout layout : layouts) {
+      int day = layout.decodeDay(text);
+      if (day >= 0) {
+        return epochSecondsByDay.computeIfAbsent(
+            day,
+            unused ->
+                LocalDate.of(day / 10000, day / 100 % 100, day % 100)
+                    .atStartOfDay(zone)
+                    .toEpochSecond());
+      }
+    }
+    if (fallbackFormatter != null) {
+      return Formatter.parseDateFrom(text, fallbackFormatter).getEpochSecond();
+    }
+    return NOT_A_DATE;
+  }
+
+  /** A fixed-width date layout with a four-digit year and two-digit month and day. */
+  enum Layout {
+    YEAR_MONTH_DAY_DASHES("yyyy-MM-dd", 0, 5, 8),
+    YEAR_MONTH_DAY_SLASHES("yyyy/MM/dd", 0, 5, 8),
+    MONTH_DAY_YEAR_SLASHES("MM/dd/yyyy", 6, 0, 3);
+
+    private static final int LENGTH = 10;
+
+    private final String pattern;
+    private final int yearStart;
+    private final int monthStart;
+    private final int dayStart;
+
+    Layout(String pattern, int yearStart, int monthStart, int dayStart) {
+      checkArgument(pattern.length() == LENGTH);
+      this.pattern = pattern;
+      this.yearStart = yearStart;
+      this.monthStart = monthStart;
+      this.dayStart = dayStart;
+    }
+
+    /**
+     * Returns true if the formatter parses exactly this layout. Formatters print their parsing
+     * rules, so the same rules print the same.
+     */
+    private boolean isFormatOf(DateTimeFormatter formatter) {
+      return formatter.getZone() == null
+          && (formatter.getChronology() == null
+              || formatter.getChronology().equals(IsoChronology.INSTANCE))
+          && formatter.toString().equals(DateTimeFormatter.ofPattern(pattern).toString());
+    }
+
+    /**
+     * Returns the day as year * 10000 + month * 100 + day, or -1 if the text isn't a date in this
+     * layout. Like the formatter's default resolver, a day past the end of the month is the last
+     * day of the month.
+     */
+    private int decodeDay(String text) {
+      if (text.length() != LENGTH) {
+        return -1;
+      }
+      for (int i = 0; i < LENGTH; i++) {
+        char c = text.charAt(i);
+        boolean isDigit = c >= '0' && c <= '9';
+        if (isDigit != (pattern.charAt(i) != '/' && pattern.charAt(i) != '-')
+            || (!isDigit && c != pattern.charAt(i))) {
+          return -1;
+        }
+      }
+      int year = digits(text, yearStart, 4);
+      int month = digits(text, monthStart, 2);
+      int day = digits(text, dayStart, 2);
+      if (year == 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+        return -1;
+      }
+      day = Math.min(day, YearMonth.of(year, month).lengthOfMonth());
+      return year * 10000 + month * 100 + day;
+    }
+
+    private static int digits(String text, int start, int count) {
+      int value = 0;
+      for (int i = start; i < start + count; i++) {
+        value = value * 10 + (text.charAt(i) - '0');
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package net.brentwalther.jcf.flag;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LazyTextFileTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testLines_matchReadAllLines() throws IOException {
+    String[] contents = {
+      "",
+      "one line",
+      "trailing line feed\n",
+      "unix\nline\n\nfeeds",
+      "windows\r\nline\r\n\r\nfeeds\r\n",
+      "old mac\rcarriage\r\rreturns",
+      "mixed\r\n\n\r\rendings\n\r",
+      "multi-byte ¢ € 𝄞 characters\n",
+    };
+    for (String content : contents) {
+      File file = write(content);
+      assertThat(LazyTextFile.of(file).lines())
+          .containsExactlyElementsIn(Files.readAllLines(file.toPath(), UTF_8))
+          .inOrder();
+      // Tiny regions split line endings and characters between mappings.
+      assertThat(LazyTextFile.of(file, /* regionSize= */ 1).lines())
+          .containsExactlyElementsIn(Files.readAllLines(file.toPath(), UTF_8))
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void testLines_canBeIteratedAgain() throws IOException {
+    LazyTextFile file = LazyTextFile.of(write("a\nb\n"));
+    assertThat(file.lines()).containsExactly("a", "b").inOrder();
+    assertThat(file.lines()).containsExactly("a", "b").inOrder();
+  }
+
+  @Test
+  public void testLines_longLines() throws IOException {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      longLine.append(i % 10);
+    }
+    LazyTextFile file = LazyTextFile.of(write(longLine + "\n" + longLine));
+    assertThat(file.lines()).containsExactly(longLine.toString(), longLine.toString()).inOrder();
+  }
+
+  @Test
+  public void testEndOfLastBlankLine() throws IOException {
+    LazyTextFile file = LazyTextFile.of(write("a\n\nb\r\n \t\r\nc\n\n"), /* regionSize= */ 1);
+    assertThat(file.endOfLastBlankLine(0)).isEqualTo(file.size());
+    assertThat(file.endOfLastBlankLine(file.size())).isEqualTo(file.size());
+
+    LazyTextFile unterminated = LazyTextFile.of(write("a\n\nb\r\n \t\r\nc\n"));
+    assertThat(unterminated.endOfLastBlankLine(0)).isEqualTo(10);
+    assertThat(unterminated.lines(10, unterminated.size())).containsExactly("c");
+    assertThat(unterminated.endOfLastBlankLine(10)).isEqualTo(10);
+    assertThat(LazyTextFile.of(write("no blank lines\n")).endOfLastBlankLine(0)).isEqualTo(0);
+  }
+
+  @Test
+  public void testLines_range() throws IOException {
+    LazyTextFile file = LazyTextFile.of(write("a\n\nb\nc"));
+    assertThat(file.lines(0, 3)).containsExactly("a", "").inOrder();
+    assertThat(file.lines(3, file.size())).containsExactly("b", "c").inOrder();
+    assertThat(file.lines(3, 3)).isEmpty();
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    assertThat(LazyTextFile.EMPTY.isEmpty()).isTrue();
+    assertThat(LazyTextFile.EMPTY.lines()).isEmpty();
+    assertThat(LazyTextFile.EMPTY.asByteSource().isEmpty()).isTrue();
+    assertThat(LazyTextFile.of(write("")).isEmpty()).isTrue();
+    assertThat(LazyTextFile.of(write("\n")).isEmpty()).isFalse();
+  }
+
+  private File write(String content) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), content.getBytes(UTF_8));
+    return file;
+  }
+}
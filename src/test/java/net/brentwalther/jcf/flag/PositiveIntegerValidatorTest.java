@@ -0,0 +1,30 @@
+package net.brentwalther.jcf.flag;
+
+import com.beust.jcommander.ParameterException;
+import org.junit.Test;
+
+public class PositiveIntegerValidatorTest {
+
+  private static final PositiveIntegerValidator VALIDATOR = new PositiveIntegerValidator();
+
+  @Test
+  public void testValidate_acceptsPositiveIntegers() {
+    VALIDATOR.validate("--threads", "1");
+    VALIDATOR.validate("--threads", "64");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void testValidate_rejectsZero() {
+    VALIDATOR.validate("--threads", "0");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void testValidate_rejectsNegativeIntegers() {
+    VALIDATOR.validate("--threads", "-2");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void testValidate_rejectsNonIntegers() {
+    VALIDATOR.validate("--threads", "four");
+  }
+}
@@ -0,0 +1,174 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import net.brentwalther.jcf.matcher.BatchMatcher.BatchResult;
+import net.brentwalther.jcf.matcher.SplitMatcher.AccountScore;
+import net.brentwalther.jcf.model.IndexedModel;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import net.brentwalther.jcf.string.Formatter;
+import org.junit.Test;
+
+public class BatchMatcherTest {
+
+  private static final Account CHECKING =
+      Account.newBuilder().setId("checking").setName("Assets:Bank:Checking").build();
+  private static final Account FUEL =
+      Account.newBuilder().setId("fuel").setName("Expenses:Fuel").build();
+  private static final Account GROCERIES =
+      Account.newBuilder().setId("groceries").setName("Expenses:Groceries").build();
+  private static final Account SNACKS =
+      Account.newBuilder().setId("snacks").setName("Expenses:Snacks").build();
+
+  @Test
+  public void testMatch_autoMatchesConfidentTransactionsAndSetsAsideTheRest() {
+    Model.Builder ledger =
+        Model.newBuilder()
+            .addAccount(CHECKING)
+            .addAccount(FUEL)
+            .addAccount(GROCERIES)
+            .addAccount(SNACKS);
+    addTransaction(ledger, "l1", "SHELL OIL 1234", FUEL, 0);
+    addTransaction(ledger, "l2", "SHELL OIL 5678", FUEL, 100 * 86_400L);
+    addTransaction(ledger, "l3", "HEB GROCERY", GROCERIES, 0);
+    addTransaction(ledger, "l4", "HEB GROCERY", SNACKS, 0);
+    SplitMatcher splitMatcher = SplitMatcher.create(ledger.build());
+
+    Model.Builder imported = Model.newBuilder().addAccount(CHECKING);
+    addTransaction(imported, "i1", "SHELL OIL", CHECKING, 200 * 86_400L);
+    addTransaction(imported, "i2", "HEB GROCERY", CHECKING, 200 * 86_400L);
+    addTransaction(imported, "i3", "Unseen merchant", CHECKING, 200 * 86_400L);
+    BatchResult result =
+        BatchMatcher.match(
+            splitMatcher, IndexedModel.create(imported.build()), /* autoMatchThreshold= */ 0.9);
+
+    assertThat(result.autoMatched().getTransactionList())
+        .containsExactly(imported.getTransaction(0));
+    assertThat(result.autoMatched().getSplitList())
+        .containsExactly(
+            imported.getSplit(0),
+            Split.newBuilder()
+                .setTransactionId("i1")
+                .setAccountId(FUEL.getId())
+                .setValueNumerator(10)
+                .setValueDenominator(1)
+                .build());
+    // Groceries and snacks split the score of "HEB GROCERY" evenly.
+    assertThat(result.needsReview().getTransactionList())
+        .containsExactly(imported.getTransaction(1), imported.getTransaction(2))
+        .inOrder();
+    assertThat(result.needsReview().getSplitList())
+        .containsExactly(imported.getSplit(1), imported.getSplit(2));
+    assertThat(result.probableDuplicateCount()).isEqualTo(0);
+    assertThat(
+            BatchMatcher.match(
+                    splitMatcher,
+                    IndexedModel.create(imported.build()),
+                    /* autoMatchThreshold= */ 0.5)
+                .autoMatched()
+                .getTransactionCount())
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testMatch_setsAsideLoneWeakMatchesForReview() {
+    Model.Builder ledger =
+        Model.newBuilder()
+            .addAccount(CHECKING)
+            .addAccount(FUEL)
+            .addAccount(SNACKS);
+    addTransaction(ledger, "l1", "SHELL OIL", FUEL, 0);
+    addTransaction(ledger, "l2", "POS WALGREENS", SNACKS, 0);
+    SplitMatcher splitMatcher = SplitMatcher.create(ledger.build());
+
+    Model.Builder imported = Model.newBuilder().addAccount(CHECKING);
+    addTransaction(imported, "i1", "POS ACME HARDWARE", CHECKING, 100 * 86_400L);
+    BatchResult result =
+        BatchMatcher.match(
+            splitMatcher, IndexedModel.create(imported.build()), /* autoMatchThreshold= */ 0.5);
+
+    // Snacks has all of the score, but only because of one of the three tokens.
+    assertThat(result.autoMatched().getTransactionList()).isEmpty();
+    assertThat(result.needsReview().getTransactionList())
+        .containsExactly(imported.getTransaction(0));
+  }
+
+  @Test
+  public void testMatch_setsAsideProbableDuplicatesForReview() {
+    Model.Builder ledger = Model.newBuilder().addAccount(CHECKING).addAccount(FUEL);
+    addTransaction(ledger, "l1", "SHELL OIL", CHECKING, 0);
+    SplitMatcher splitMatcher = SplitMatcher.create(ledger.build());
+
+    Model.Builder imported = Model.newBuilder().addAccount(CHECKING);
+    addTransaction(imported, "i1", "SHELL", CHECKING, 86_400L);
+    BatchResult result =
+        BatchMatcher.match(
+            splitMatcher, IndexedModel.create(imported.build()), /* autoMatchThreshold= */ 0.9);
+
+    assertThat(result.autoMatched().getTransactionList()).isEmpty();
+    assertThat(result.needsReview().getTransactionList())
+        .containsExactly(
+            imported.getTransaction(0).toBuilder()
+                .setDescription(
+                    "SHELL (probable duplicate of transactions on "
+                        + Formatter.ledgerDate(Instant.EPOCH)
+                        + ")")
+                .build());
+    assertThat(result.needsReview().getSplitList()).containsExactly(imported.getSplit(0));
+    assertThat(result.probableDuplicateCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrentQueriesMatchSequentialQueries() {
+    ImmutableList<Account> accounts = ImmutableList.of(CHECKING, FUEL, GROCERIES, SNACKS);
+    ImmutableList<String> merchants =
+        ImmutableList.of("Shell oil", "HEB grocery", "Amazon mktplace", "POS Walgreens");
+    Model.Builder ledger = Model.newBuilder().addAllAccount(accounts);
+    List<Transaction> queries = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      String description = merchants.get(i % merchants.size()) + " store" + i % 89;
+      addTransaction(ledger, "l" + i, description, accounts.get(i % 3 + 1), i * 86_400L);
+      queries.add(Transaction.newBuilder().setId("q" + i).setDescription(description).build());
+    }
+    SplitMatcher splitMatcher = SplitMatcher.create(ledger.build(), MatchScorers.bm25());
+    splitMatcher.enableFuzzyTokenMatching();
+
+    List<ImmutableList<AccountScore>> sequential = new ArrayList<>();
+    for (Transaction query : queries) {
+      sequential.add(splitMatcher.getTopAccounts(query, /* limit= */ 3, account -> false));
+    }
+    List<ImmutableList<AccountScore>> concurrent = new ArrayList<>();
+    queries.parallelStream()
+        .map(query -> splitMatcher.getTopAccounts(query, /* limit= */ 3, account -> false))
+        .forEachOrdered(concurrent::add);
+
+    assertThat(concurrent).isEqualTo(sequential);
+  }
+
+  private static void addTransaction(
+      Model.Builder model,
+      String transactionId,
+      String description,
+      Account account,
+      long postDateEpochSecond) {
+    model
+        .addTransaction(
+            Transaction.newBuilder()
+                .setId(transactionId)
+                .setDescription(description)
+                .setPostDateEpochSecond(postDateEpochSecond))
+        .addSplit(
+            Split.newBuilder()
+                .setTransactionId(transactionId)
+                .setAccountId(account.getId())
+                .setValueNumerator(-10)
+                .setValueDenominator(1));
+  }
+}
@@ -0,0 +1,78 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of {@link DescriptionTokenizer} with the regular expression pipeline it
+ * replaced when interning the tokens of realistic bank transaction descriptions. Run with:
+ *
+ * <pre>bazel run //src/test/java/net/brentwalther/jcf/matcher:description_tokenizer_benchmark</pre>
+ */
+public class DescriptionTokenizerBenchmark {
+
+  private static final ImmutableList<String> TEMPLATES =
+      ImmutableList.of(
+          "AMAZON.COM*%s MKTPLACE PMTS AMZN.COM/BILL WA",
+          "POS DEBIT WALGREENS #%s AUSTIN TX",
+          "SQ *COFFEE SHOP %s gosq.com TX",
+          "ONLINE PAYMENT THANK YOU REF %s",
+          "UBER   TRIP HELP.UBER.COM %s",
+          "CHECKCARD 0412 SHELL OIL %s 57444",
+          "ACH DEBIT CITY OF AUSTIN UTIL ID:%s");
+  private static final int DESCRIPTION_COUNT = 100_000;
+  private static final int ROUNDS = 10;
+  private static final int WARMUP_ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Random random = new Random(0);
+    List<String> descriptions = new ArrayList<>(DESCRIPTION_COUNT);
+    for (int i = 0; i < DESCRIPTION_COUNT; i++) {
+      descriptions.add(
+          String.format(
+              TEMPLATES.get(random.nextInt(TEMPLATES.size())),
+              Long.toString(Math.abs(random.nextLong()), random.nextBoolean() ? 10 : 36)));
+    }
+
+    long regexNanos = Long.MAX_VALUE;
+    long tokenizerNanos = Long.MAX_VALUE;
+    long checksum = 0;
+    for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+      TokenDictionary regexDictionary = new TokenDictionary();
+      long start = System.nanoTime();
+      for (String description : descriptions) {
+        for (String token : RegexDescriptionTokenizer.tokensOf(description)) {
+          checksum += regexDictionary.intern(token.toCharArray(), 0, token.length());
+        }
+      }
+      long afterRegex = System.nanoTime();
+      TokenDictionary dictionary = new TokenDictionary();
+      DescriptionTokenizer tokenizer = new DescriptionTokenizer();
+      for (String description : descriptions) {
+        tokenizer.tokenize(description);
+        for (int i = 0; i < tokenizer.tokenCount(); i++) {
+          checksum -=
+              dictionary.intern(tokenizer.buffer(), tokenizer.tokenStart(i), tokenizer.tokenEnd(i));
+        }
+      }
+      long end = System.nanoTime();
+      if (round >= WARMUP_ROUNDS) {
+        regexNanos = Math.min(regexNanos, afterRegex - start);
+        tokenizerNanos = Math.min(tokenizerNanos, end - afterRegex);
+      }
+    }
+
+    if (checksum != 0) {
+      throw new IllegalStateException("The tokenizers disagree. Checksum: " + checksum);
+    }
+    System.out.printf(
+        "%,d descriptions, best of %d rounds:%n  regex pipeline: %,d ms%n  tokenizer: %,d ms%n",
+        DESCRIPTION_COUNT,
+        ROUNDS,
+        TimeUnit.NANOSECONDS.toMillis(regexNanos),
+        TimeUnit.NANOSECONDS.toMillis(tokenizerNanos));
+  }
+}
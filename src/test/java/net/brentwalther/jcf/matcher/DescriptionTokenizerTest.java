@@ -0,0 +1,69 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.base.Strings;
+import java.util.Random;
+import org.junit.Test;
+
+public class DescriptionTokenizerTest {
+
+  /** Characters that exercise every rule of the tokenizer, including a non-ASCII letter. */
+  private static final String FUZZ_ALPHABET = "aZ0123456789.cCoOmM -*é";
+
+  @Test
+  public void testTokens() {
+    assertThat(DescriptionTokenizer.tokensOf("POS DEBIT  WALGREENS #1234"))
+        .containsExactly("POS", "DEBIT", "WALGREENS")
+        .inOrder();
+    assertThat(DescriptionTokenizer.tokensOf("")).isEmpty();
+    assertThat(DescriptionTokenizer.tokensOf("~~ ** --")).isEmpty();
+  }
+
+  @Test
+  public void testDotComIsRemovedBeforeSplitting() {
+    assertThat(DescriptionTokenizer.tokensOf("AMAZON.COM*MKTPLACE"))
+        .containsExactly("AMAZON", "MKTPLACE")
+        .inOrder();
+    assertThat(DescriptionTokenizer.tokensOf("help.uber.com"))
+        .containsExactly("help", "uber")
+        .inOrder();
+    assertThat(DescriptionTokenizer.tokensOf("ab.comcd")).containsExactly("abcd");
+    assertThat(DescriptionTokenizer.tokensOf("12.com34")).isEmpty();
+    assertThat(DescriptionTokenizer.tokensOf(".co")).containsExactly("co");
+  }
+
+  @Test
+  public void testDigitRuns() {
+    assertThat(DescriptionTokenizer.tokensOf("ab123cd")).containsExactly("ab123cd");
+    assertThat(DescriptionTokenizer.tokensOf("ab1234cd")).containsExactly("ab", "cd").inOrder();
+    // A run of 27 digits loses its first 25 and keeps the last 2.
+    assertThat(DescriptionTokenizer.tokensOf("ab" + Strings.repeat("1", 25) + "23cd"))
+        .containsExactly("ab", "23cd")
+        .inOrder();
+    assertThat(DescriptionTokenizer.tokensOf(Strings.repeat("9", 29))).isEmpty();
+  }
+
+  @Test
+  public void testMatchesRegexPipeline() {
+    Random random = new Random(0);
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder description = new StringBuilder();
+      int length = random.nextInt(60);
+      for (int j = 0; j < length; j++) {
+        if (random.nextInt(10) == 0) {
+          // Long runs of digits are rare in random strings so add them explicitly.
+          description.append(Strings.repeat("7", random.nextInt(60)));
+        } else {
+          description.append(FUZZ_ALPHABET.charAt(random.nextInt(FUZZ_ALPHABET.length())));
+        }
+      }
+      String s = description.toString();
+      assertWithMessage("Tokens of '%s'", s)
+          .that(DescriptionTokenizer.tokensOf(s))
+          .containsExactlyElementsIn(RegexDescriptionTokenizer.tokensOf(s))
+          .inOrder();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import net.brentwalther.jcf.matcher.SplitMatcher.ShouldExcludePredicate;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MatcherSnapshotTest {
+
+  private static final Account GROCERY_ACCOUNT =
+      Account.newBuilder().setId("grocery").setName("Expenses:Groceries").build();
+  private static final Account FUEL_ACCOUNT =
+      Account.newBuilder().setId("fuel").setName("Expenses:Fuel").build();
+  private static final HashCode INPUT_HASH = Hashing.sha256().hashInt(1);
+  private static final ShouldExcludePredicate EXCLUDE_NO_ACCOUNTS = account -> false;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    SplitMatcher matcher = SplitMatcher.create(model(), MatchScorers.bm25());
+    Path file = temporaryFolder.getRoot().toPath().resolve("matcher.snapshot");
+
+    assertThat(MatcherSnapshot.write(matcher, INPUT_HASH, file)).isTrue();
+    Optional<SplitMatcher> restored = MatcherSnapshot.read(file, INPUT_HASH, MatchScorers.bm25());
+
+    assertThat(restored.isPresent()).isTrue();
+    assertThat(restored.get().statistics()).isEqualTo(matcher.statistics());
+    assertThat(restored.get().knownAccountsById()).isEqualTo(matcher.knownAccountsById());
+    Transaction query =
+        Transaction.newBuilder()
+            .setId("query")
+            .setDescription("HEB grocery Shell")
+            .setPostDateEpochSecond(1_000)
+            .build();
+    Split querySplit = split("query", GROCERY_ACCOUNT, 2500);
+    assertThat(
+            restored.get().getTopMatches(query, ImmutableList.of(querySplit), EXCLUDE_NO_ACCOUNTS))
+        .isEqualTo(matcher.getTopMatches(query, ImmutableList.of(querySplit), EXCLUDE_NO_ACCOUNTS));
+    assertThat(restored.get().getTopAccounts(query, 5, EXCLUDE_NO_ACCOUNTS))
+        .isEqualTo(matcher.getTopAccounts(query, 5, EXCLUDE_NO_ACCOUNTS));
+
+    // The restored matcher can keep linking new splits.
+    restored.get().link(query, querySplit);
+    matcher.link(query, querySplit);
+    assertThat(restored.get().getTopAccounts(query, 5, EXCLUDE_NO_ACCOUNTS))
+        .isEqualTo(matcher.getTopAccounts(query, 5, EXCLUDE_NO_ACCOUNTS));
+  }
+
+  @Test
+  public void testSnapshotOfOtherInputsIsIgnored() {
+    Path file = temporaryFolder.getRoot().toPath().resolve("matcher.snapshot");
+    MatcherSnapshot.write(SplitMatcher.create(model()), INPUT_HASH, file);
+
+    assertThat(
+            MatcherSnapshot.read(file, Hashing.sha256().hashInt(2), MatchScorers.tokenCount())
+                .isPresent())
+        .isFalse();
+  }
+
+  @Test
+  public void testMissingOrCorruptSnapshotIsIgnored() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("matcher.snapshot");
+    assertThat(MatcherSnapshot.read(file, INPUT_HASH, MatchScorers.tokenCount()).isPresent())
+        .isFalse();
+
+    Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+    assertThat(MatcherSnapshot.read(file, INPUT_HASH, MatchScorers.tokenCount()).isPresent())
+        .isFalse();
+
+    MatcherSnapshot.write(SplitMatcher.create(model()), INPUT_HASH, file);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+    assertThat(MatcherSnapshot.read(file, INPUT_HASH, MatchScorers.tokenCount()).isPresent())
+        .isFalse();
+  }
+
+  private static Model model() {
+    Model.Builder model = Model.newBuilder().addAccount(GROCERY_ACCOUNT).addAccount(FUEL_ACCOUNT);
+    ImmutableList<String> descriptions =
+        ImmutableList.of("HEB grocery #123", "Shell oil 4455", "HEB fuel", "Amazon.com");
+    for (int i = 0; i < descriptions.size(); i++) {
+      Transaction transaction =
+          Transaction.newBuilder()
+              .setId("t" + i)
+              .setDescription(descriptions.get(i))
+              .setPostDateEpochSecond(i * 1_000)
+              .build();
+      model
+          .addTransaction(transaction)
+          .addSplit(split(transaction.getId(), i % 2 == 0 ? GROCERY_ACCOUNT : FUEL_ACCOUNT, 2500));
+    }
+    return model.build();
+  }
+
+  private static Split split(String transactionId, Account account, int cents) {
+    return Split.newBuilder()
+        .setTransactionId(transactionId)
+        .setAccountId(account.getId())
+        .setValueNumerator(cents)
+        .setValueDenominator(100)
+        .build();
+  }
+}
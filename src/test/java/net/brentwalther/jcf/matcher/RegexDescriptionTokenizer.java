@@ -0,0 +1,28 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import java.util.regex.Pattern;
+
+/**
+ * The regular expression pipeline that {@link DescriptionTokenizer} replaced. It is kept as the
+ * reference implementation for equivalence tests and benchmarks.
+ */
+final class RegexDescriptionTokenizer {
+
+  private static final Splitter SPACE_SPLITTER = Splitter.on(' ').trimResults().omitEmptyStrings();
+  private static final Pattern DOT_COM_PATTERN = Pattern.compile("[.][Cc][Oo][Mm]");
+  private static final Pattern NON_ALPHANUM_CHAR_PATTERN = Pattern.compile("[^0-9A-Za-z]");
+  private static final Pattern REPEATED_DIGITS_PATTERN = Pattern.compile("[0-9]{4,25}");
+
+  static ImmutableList<String> tokensOf(String description) {
+    String sanitized = DOT_COM_PATTERN.matcher(description).replaceAll("");
+    sanitized = NON_ALPHANUM_CHAR_PATTERN.matcher(sanitized).replaceAll(" ");
+    sanitized = REPEATED_DIGITS_PATTERN.matcher(sanitized).replaceAll(" ");
+    return ImmutableList.copyOf(SPACE_SPLITTER.split(sanitized));
+  }
+
+  private RegexDescriptionTokenizer() {
+    /* do not instantiate. */
+  }
+}
@@ -0,0 +1,182 @@
+package net.brentwalther.jcf.matcher;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+
+/**
+ * Measures the per-call latency of {@link SplitMatcher} queries against synthetic master ledgers of
+ * increasing size. Run with:
+ *
+ * <pre>bazel run //src/test/java/net/brentwalther/jcf/matcher:split_matcher_benchmark</pre>
+ *
+ * Optionally pass the indexed split counts to measure as arguments.
+ *
+ * <p>One run on one core with -Xmx8g measured the following. The duplicate lookup is mean / p50 /
+ * p99 and the other queries are means.
+ *
+ * <pre>
+ * splits  build     probableDuplicatesOf   getTopMatches  getTopAccounts
+ * 10k     298 ms    16.4 / 2.1 / 34.1 us   0.38 ms        0.13 ms
+ * 100k    493 ms    6.5 / 4.3 / 20.1 us    3.7 ms         0.39 ms
+ * 1M      5,636 ms  16.6 / 11.8 / 27.3 us  49.4 ms        3.9 ms
+ * </pre>
+ *
+ * Token scoring dominates the top matches and top accounts queries, while the duplicate lookup
+ * stays in the tens of microseconds up to 1M splits.
+ */
+public class SplitMatcherBenchmark {
+
+  private static final ImmutableList<Integer> DEFAULT_SPLIT_COUNTS =
+      ImmutableList.of(10_000, 100_000, 1_000_000);
+  private static final ImmutableList<String> MERCHANTS =
+      ImmutableList.of(
+          "AMAZON MKTPLACE PMTS",
+          "SHELL OIL",
+          "HEB GROCERY",
+          "CITY OF AUSTIN UTILITIES",
+          "NETFLIX.COM",
+          "SQ *COFFEE SHOP",
+          "POS DEBIT WALGREENS",
+          "ONLINE PAYMENT THANK YOU",
+          "TICKETMASTER",
+          "UBER TRIP HELP.UBER.COM");
+  private static final int ACCOUNT_COUNT = 200;
+  private static final long FIFTEEN_YEARS_IN_SECONDS = TimeUnit.DAYS.toSeconds(15 * 365);
+  private static final long START_EPOCH_SECOND = 1_200_000_000L;
+  private static final int QUERY_COUNT = 2_000;
+  private static final int WARMUP_QUERY_COUNT = 500;
+  private static final int TOP_ACCOUNT_COUNT = 9;
+  private static final SplitMatcher.ShouldExcludePredicate EXCLUDE_NO_ACCOUNTS = account -> false;
+
+  public static void main(String[] args) {
+    List<Integer> splitCounts = new ArrayList<>();
+    for (String arg : args) {
+      splitCounts.add(Integer.parseInt(arg));
+    }
+    for (int splitCount : splitCounts.isEmpty() ? DEFAULT_SPLIT_COUNTS : splitCounts) {
+      run(splitCount);
+    }
+  }
+
+  private static void run(int splitCount) {
+    Random random = new Random(splitCount);
+    Model model = syntheticModel(splitCount, random);
+    long buildStart = System.nanoTime();
+    SplitMatcher matcher = SplitMatcher.create(model);
+    long buildNanos = System.nanoTime() - buildStart;
+
+    List<Transaction> queryTransactions = new ArrayList<>(QUERY_COUNT);
+    List<List<Split>> querySplits = new ArrayList<>(QUERY_COUNT);
+    for (int i = 0; i < QUERY_COUNT + WARMUP_QUERY_COUNT; i++) {
+      // Half of the queries re-import an already indexed split a few days later, the rest are new.
+      int existingTransaction = random.nextInt(model.getTransactionCount());
+      boolean isDuplicate = random.nextBoolean();
+      long postDateEpochSecond =
+          isDuplicate
+              ? model.getTransaction(existingTransaction).getPostDateEpochSecond()
+                  + random.nextInt((int) TimeUnit.DAYS.toSeconds(3))
+              : START_EPOCH_SECOND + (long) (random.nextDouble() * FIFTEEN_YEARS_IN_SECONDS);
+      Transaction transaction =
+          Transaction.newBuilder()
+              .setId("query-" + i)
+              .setDescription(MERCHANTS.get(random.nextInt(MERCHANTS.size())) + " " + i)
+              .setPostDateEpochSecond(postDateEpochSecond)
+              .build();
+      queryTransactions.add(transaction);
+      querySplits.add(
+          ImmutableList.of(
+              isDuplicate
+                  ? model.getSplit(2 * existingTransaction).toBuilder()
+                      .setTransactionId(transaction.getId())
+                      .build()
+                  : Split.newBuilder()
+                      .setTransactionId(transaction.getId())
+                      .setAccountId("account-" + random.nextInt(ACCOUNT_COUNT))
+                      .setValueNumerator(-random.nextInt(20_000))
+                      .setValueDenominator(100)
+                      .build()));
+    }
+
+    long[] duplicateNanos = new long[QUERY_COUNT];
+    long[] topMatchesNanos = new long[QUERY_COUNT];
+    long[] topAccountsNanos = new long[QUERY_COUNT];
+    int duplicatesFound = 0;
+    for (int i = 0; i < queryTransactions.size(); i++) {
+      Transaction transaction = queryTransactions.get(i);
+      List<Split> splits = querySplits.get(i);
+      long start = System.nanoTime();
+      duplicatesFound += matcher.probableDuplicatesOf(transaction, splits).size();
+      long afterDuplicates = System.nanoTime();
+      matcher.getTopMatches(transaction, splits, EXCLUDE_NO_ACCOUNTS);
+      long afterTopMatches = System.nanoTime();
+      matcher.getTopAccounts(transaction, TOP_ACCOUNT_COUNT, EXCLUDE_NO_ACCOUNTS);
+      long end = System.nanoTime();
+      if (i >= WARMUP_QUERY_COUNT) {
+        duplicateNanos[i - WARMUP_QUERY_COUNT] = afterDuplicates - start;
+        topMatchesNanos[i - WARMUP_QUERY_COUNT] = afterTopMatches - afterDuplicates;
+        topAccountsNanos[i - WARMUP_QUERY_COUNT] = end - afterTopMatches;
+      }
+    }
+
+    System.out.printf(
+        "%,d indexed splits: built in %,d ms, %,d duplicates found%n",
+        splitCount, TimeUnit.NANOSECONDS.toMillis(buildNanos), duplicatesFound);
+    printLatencies("  probableDuplicatesOf", duplicateNanos);
+    printLatencies("  getTopMatches", topMatchesNanos);
+    printLatencies("  getTopAccounts", topAccountsNanos);
+  }
+
+  private static void printLatencies(String label, long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    System.out.printf(
+        "%s: mean %.1f us, p50 %.1f us, p99 %.1f us%n",
+        label,
+        Arrays.stream(sorted).average().orElse(0) / 1_000,
+        sorted[sorted.length / 2] / 1_000.0,
+        sorted[(int) (sorted.length * 0.99)] / 1_000.0);
+  }
+
+  /** Returns a model of balanced two-split transactions spread evenly over fifteen years. */
+  private static Model syntheticModel(int splitCount, Random random) {
+    Model.Builder model = Model.newBuilder();
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      model.addAccount(Account.newBuilder().setId("account-" + i).setName("Expenses:Account " + i));
+    }
+    int transactionCount = splitCount / 2;
+    for (int i = 0; i < transactionCount; i++) {
+      Transaction transaction =
+          Transaction.newBuilder()
+              .setId("transaction-" + i)
+              .setDescription(
+                  MERCHANTS.get(random.nextInt(MERCHANTS.size())) + " " + random.nextInt(100_000))
+              .setPostDateEpochSecond(
+                  START_EPOCH_SECOND + FIFTEEN_YEARS_IN_SECONDS * i / transactionCount)
+              .build();
+      int amount = random.nextInt(20_000);
+      model
+          .addTransaction(transaction)
+          .addSplit(
+              Split.newBuilder()
+                  .setTransactionId(transaction.getId())
+                  .setAccountId("account-" + random.nextInt(ACCOUNT_COUNT))
+                  .setValueNumerator(amount)
+                  .setValueDenominator(100))
+          .addSplit(
+              Split.newBuilder()
+                  .setTransactionId(transaction.getId())
+                  .setAccountId("account-" + random.nextInt(ACCOUNT_COUNT))
+                  .setValueNumerator(-amount)
+                  .setValueDenominator(100));
+    }
+    return model.build();
+  }
+}
@@ -0,0 +1,129 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import net.brentwalther.jcf.matcher.SplitMatcher.ShouldExcludePredicate;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Test;
+
+/**
+ * Simulates matching sessions in which splits are linked one at a time and checks that after every
+ * link the matcher answers queries exactly as a matcher rebuilt from scratch would.
+ */
+public class SplitMatcherConsistencyTest {
+
+  private static final ImmutableList<String> WORDS =
+      ImmutableList.of(
+          "POS",
+          "DEBIT",
+          "PAYMENT",
+          "HEB",
+          "SHELL",
+          "OIL",
+          "AMAZON.COM",
+          "NETFLIX",
+          "UBER",
+          "#1234");
+  private static final int ACCOUNT_COUNT = 12;
+  private static final int INITIAL_TRANSACTION_COUNT = 150;
+  private static final int SESSION_LENGTH = 100;
+  private static final int TOP_ACCOUNT_COUNT = 5;
+  private static final long DAY_IN_SECONDS = 86_400;
+
+  @Test
+  public void testIncrementalLinksMatchRebuild_tokenCount() {
+    runSession(MatchScorers.tokenCount(), new Random(1));
+  }
+
+  @Test
+  public void testIncrementalLinksMatchRebuild_bm25() {
+    runSession(MatchScorers.bm25(), new Random(2));
+  }
+
+  private static void runSession(MatchScorer scorer, Random random) {
+    Model.Builder model = Model.newBuilder();
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      model.addAccount(Account.newBuilder().setId("a" + i).setName("Expenses:Account " + i));
+    }
+    for (int i = 0; i < INITIAL_TRANSACTION_COUNT; i++) {
+      addRandomTransaction(model, random);
+    }
+    SplitMatcher matcher = SplitMatcher.create(model.build(), scorer);
+    ShouldExcludePredicate excludeOneAccount = account -> account.getId().equals("a0");
+
+    for (int step = 0; step < SESSION_LENGTH; step++) {
+      Transaction transaction = addRandomTransaction(model, random);
+      Split split = model.getSplit(model.getSplitCount() - 1);
+      // Query before linking, as the screen does, and then link the match the user picked.
+      assertMatchesRebuild(
+          matcher,
+          SplitMatcher.create(
+              model.clone().removeSplit(model.getSplitCount() - 1).build(), scorer),
+          transaction,
+          split,
+          excludeOneAccount,
+          step);
+      matcher.link(transaction, split);
+      assertMatchesRebuild(
+          matcher,
+          SplitMatcher.create(model.build(), scorer),
+          transaction,
+          split,
+          excludeOneAccount,
+          step);
+    }
+  }
+
+  private static void assertMatchesRebuild(
+      SplitMatcher incremental,
+      SplitMatcher rebuilt,
+      Transaction transaction,
+      Split split,
+      ShouldExcludePredicate shouldExcludePredicate,
+      int step) {
+    ImmutableList<Split> splits = ImmutableList.of(split);
+    assertWithMessage("statistics at step %s", step)
+        .that(incremental.statistics())
+        .isEqualTo(rebuilt.statistics());
+    assertWithMessage("top matches at step %s", step)
+        .that(incremental.getTopMatches(transaction, splits, shouldExcludePredicate))
+        .isEqualTo(rebuilt.getTopMatches(transaction, splits, shouldExcludePredicate));
+    assertWithMessage("top accounts at step %s", step)
+        .that(incremental.getTopAccounts(transaction, TOP_ACCOUNT_COUNT, shouldExcludePredicate))
+        .isEqualTo(rebuilt.getTopAccounts(transaction, TOP_ACCOUNT_COUNT, shouldExcludePredicate));
+    assertWithMessage("probable duplicate at step %s", step)
+        .that(incremental.getProbableDuplicate(transaction, splits))
+        .isEqualTo(rebuilt.getProbableDuplicate(transaction, splits));
+  }
+
+  /** Adds a transaction with one split to the model and returns the transaction. */
+  private static Transaction addRandomTransaction(Model.Builder model, Random random) {
+    StringBuilder description = new StringBuilder();
+    for (int i = random.nextInt(4); i >= 0; i--) {
+      description.append(WORDS.get(random.nextInt(WORDS.size()))).append(' ');
+    }
+    // Occasionally introduce a token that hasn't been seen before.
+    description.append(random.nextInt(10) == 0 ? "NEW" + model.getTransactionCount() : "");
+    Transaction transaction =
+        Transaction.newBuilder()
+            .setId("t" + model.getTransactionCount())
+            .setDescription(description.toString())
+            .setPostDateEpochSecond(model.getTransactionCount() * DAY_IN_SECONDS)
+            .build();
+    model
+        .addTransaction(transaction)
+        .addSplit(
+            Split.newBuilder()
+                .setTransactionId(transaction.getId())
+                .setAccountId("a" + random.nextInt(ACCOUNT_COUNT))
+                // Few distinct amounts so that probable duplicates are common.
+                .setValueNumerator(100 * random.nextInt(5))
+                .setValueDenominator(100));
+    return transaction;
+  }
+}
@@ -4,8 +4,15 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.brentwalther.jcf.matcher.SplitMatcher.AccountScore;
 import net.brentwalther.jcf.matcher.SplitMatcher.Match;
+import net.brentwalther.jcf.matcher.SplitMatcher.MatchData;
 import net.brentwalther.jcf.matcher.SplitMatcher.MatchResult;
 import net.brentwalther.jcf.matcher.SplitMatcher.ShouldExcludePredicate;
 import net.brentwalther.jcf.model.JcfModel.Account;
@@ -165,4 +172,299 @@ public class SplitMatcherTest {
     assertThat(match.matches().get(0).account()).isEqualTo(DEFAULT_ACCOUNT);
     assertThat(match.matches().get(0).transaction()).isEqualTo(transaction);
   }
+
+  @Test
+  public void testProbableDuplicate_withinClearingWindow() {
+    Transaction transaction =
+        DEFAULT_TRANSACTION.toBuilder().setPostDateEpochSecond(1_600_000_000L).build();
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            Model.newBuilder()
+                .addAccount(DEFAULT_ACCOUNT)
+                .addTransaction(transaction)
+                .addSplit(DEFAULT_SPLIT)
+                .build());
+    Transaction importedTransaction =
+        Transaction.newBuilder()
+            .setId("imported")
+            .setDescription("Something else entirely")
+            .setPostDateEpochSecond(transaction.getPostDateEpochSecond() + 3 * 24 * 60 * 60)
+            .build();
+    // The same amount expressed with a different denominator should still be a duplicate.
+    Split importedSplit =
+        DEFAULT_SPLIT.toBuilder()
+            .setTransactionId(importedTransaction.getId())
+            .setValueNumerator(10)
+            .setValueDenominator(1)
+            .build();
+    ImmutableList<Match> topMatches =
+        matcher.getTopMatches(
+            importedTransaction, ImmutableList.of(importedSplit), EXCLUDE_NO_ACCOUNTS);
+    assertThat(topMatches).hasSize(1);
+    Match match = topMatches.get(0);
+    assertThat(match.result()).isEqualTo(MatchResult.PROBABLE_DUPLICATE);
+    assertThat(match.matches()).hasSize(1);
+    assertThat(match.matches().get(0).split()).isEqualTo(DEFAULT_SPLIT);
+    assertThat(match.matches().get(0).transaction()).isEqualTo(transaction);
+  }
+
+  @Test
+  public void testProbableDuplicate_outsideClearingWindowOrDifferentAmount() {
+    Transaction transaction =
+        DEFAULT_TRANSACTION.toBuilder().setPostDateEpochSecond(1_600_000_000L).build();
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            Model.newBuilder()
+                .addAccount(DEFAULT_ACCOUNT)
+                .addTransaction(transaction)
+                .addSplit(DEFAULT_SPLIT)
+                .build());
+    Transaction muchLaterTransaction =
+        Transaction.newBuilder()
+            .setId("imported")
+            .setDescription("Something else entirely")
+            .setPostDateEpochSecond(transaction.getPostDateEpochSecond() + 7 * 24 * 60 * 60)
+            .build();
+    Split importedSplit = DEFAULT_SPLIT.toBuilder().setTransactionId("imported").build();
+    assertThat(
+            matcher.getTopMatches(
+                muchLaterTransaction, ImmutableList.of(importedSplit), EXCLUDE_NO_ACCOUNTS))
+        .isEmpty();
+    assertThat(
+            matcher.getTopMatches(
+                muchLaterTransaction.toBuilder()
+                    .setPostDateEpochSecond(transaction.getPostDateEpochSecond())
+                    .build(),
+                ImmutableList.of(importedSplit.toBuilder().setValueNumerator(1001).build()),
+                EXCLUDE_NO_ACCOUNTS))
+        .isEmpty();
+  }
+
+  @Test
+  public void testConfidence_countsMatchedTokensOncePerDescription() {
+    Transaction otherTransaction =
+        Transaction.newBuilder().setId("t2").setDescription("Payment payment thank you").build();
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            Model.newBuilder()
+                .addAccount(DEFAULT_ACCOUNT)
+                .addTransaction(DEFAULT_TRANSACTION)
+                .addTransaction(otherTransaction)
+                .addSplit(DEFAULT_SPLIT)
+                .addSplit(DEFAULT_SPLIT.toBuilder().setTransactionId(otherTransaction.getId()))
+                .build());
+    ImmutableList<Match> topMatches =
+        matcher.getTopMatches(
+            DEFAULT_TRANSACTION.toBuilder().setDescription("payment thank").build(),
+            ImmutableList.of(),
+            EXCLUDE_NO_ACCOUNTS);
+    assertThat(topMatches).hasSize(1);
+    Match match = topMatches.get(0);
+    assertThat(match.matches().get(0).transaction()).isEqualTo(otherTransaction);
+    // Two of the query tokens matched and there are two linked splits in total.
+    assertThat(match.confidence().get()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testBm25_rareTokenOutranksCommonTokens() {
+    Account groceryAccount = Account.newBuilder().setId("grocery").setName("Groceries").build();
+    Model.Builder model = Model.newBuilder().addAccount(DEFAULT_ACCOUNT).addAccount(groceryAccount);
+    for (String merchant : ImmutableList.of("gym", "fuel", "rent")) {
+      Transaction transaction =
+          Transaction.newBuilder()
+              .setId(merchant)
+              .setDescription("POS payment " + merchant)
+              .build();
+      model
+          .addTransaction(transaction)
+          .addSplit(DEFAULT_SPLIT.toBuilder().setTransactionId(transaction.getId()));
+    }
+    Transaction groceryTransaction =
+        Transaction.newBuilder().setId("heb").setDescription("HEB").build();
+    model
+        .addTransaction(groceryTransaction)
+        .addSplit(
+            DEFAULT_SPLIT.toBuilder()
+                .setTransactionId(groceryTransaction.getId())
+                .setAccountId(groceryAccount.getId()));
+    Transaction query = DEFAULT_TRANSACTION.toBuilder().setDescription("POS payment HEB").build();
+
+    ImmutableList<Match> tokenCountMatches =
+        SplitMatcher.create(model.build(), MatchScorers.tokenCount())
+            .getTopMatches(query, ImmutableList.of(), EXCLUDE_NO_ACCOUNTS);
+    ImmutableList<Match> bm25Matches =
+        SplitMatcher.create(model.build(), MatchScorers.bm25())
+            .getTopMatches(query, ImmutableList.of(), EXCLUDE_NO_ACCOUNTS);
+
+    assertThat(tokenCountMatches).hasSize(4);
+    assertThat(bm25Matches).hasSize(4);
+    Match tokenCountGroceryMatch = Iterables.getLast(tokenCountMatches);
+    Match bm25GroceryMatch = Iterables.getLast(bm25Matches);
+    assertThat(tokenCountGroceryMatch.matches().get(0).account()).isEqualTo(groceryAccount);
+    assertThat(bm25GroceryMatch.matches().get(0).account()).isEqualTo(groceryAccount);
+    // Counting tokens favors the splits sharing the two common tokens "POS" and "PAYMENT".
+    assertThat(tokenCountGroceryMatch.confidence().get())
+        .isLessThan(tokenCountMatches.get(0).confidence().get());
+    // BM25 favors the split sharing the rare token "HEB".
+    assertThat(bm25GroceryMatch.confidence().get())
+        .isGreaterThan(bm25Matches.get(0).confidence().get());
+    for (Match match : bm25Matches) {
+      assertThat(match.confidence().get()).isIn(Range.closed(0.0, 1.0));
+    }
+  }
+
+  @Test
+  public void testMatchScorers_forName() {
+    assertThat(MatchScorers.forName("bm25").get().toString()).isEqualTo("bm25");
+    assertThat(MatchScorers.forName("token_count").get())
+        .isSameInstanceAs(MatchScorers.tokenCount());
+    assertThat(MatchScorers.forName("tf-idf").isPresent()).isFalse();
+  }
+
+  @Test
+  public void testTopAccounts_sumsConfidencePerAccountAndKeepsTheBest() {
+    Account fuelAccount = Account.newBuilder().setId("fuel").setName("Expenses:Fuel").build();
+    Account snacksAccount = Account.newBuilder().setId("snacks").setName("Expenses:Snacks").build();
+    Model.Builder model =
+        Model.newBuilder()
+            .addAccount(DEFAULT_ACCOUNT)
+            .addAccount(fuelAccount)
+            .addAccount(snacksAccount);
+    ImmutableList<Account> splitAccounts =
+        ImmutableList.of(fuelAccount, fuelAccount, snacksAccount, DEFAULT_ACCOUNT);
+    for (int i = 0; i < splitAccounts.size(); i++) {
+      Transaction transaction =
+          Transaction.newBuilder().setId("t" + i).setDescription("Shell oil").build();
+      model
+          .addTransaction(transaction)
+          .addSplit(
+              DEFAULT_SPLIT.toBuilder()
+                  .setTransactionId(transaction.getId())
+                  .setAccountId(splitAccounts.get(i).getId()));
+    }
+    SplitMatcher matcher = SplitMatcher.create(model.build());
+    Transaction query = DEFAULT_TRANSACTION.toBuilder().setDescription("Shell").build();
+
+    ImmutableList<AccountScore> topAccounts =
+        matcher.getTopAccounts(query, /* limit= */ 2, EXCLUDE_NO_ACCOUNTS);
+
+    // Each split matches the query's only token and there are four splits. Ties are broken by
+    // account name.
+    assertThat(topAccounts)
+        .containsExactly(
+            AccountScore.create(fuelAccount, 0.5, 1),
+            AccountScore.create(DEFAULT_ACCOUNT, 0.25, 1))
+        .inOrder();
+    assertThat(matcher.getTopAccounts(query, /* limit= */ 2, fuelAccount::equals))
+        .containsExactly(
+            AccountScore.create(DEFAULT_ACCOUNT, 0.25, 1),
+            AccountScore.create(snacksAccount, 0.25, 1))
+        .inOrder();
+    assertThat(matcher.getTopAccounts(query, /* limit= */ 0, EXCLUDE_NO_ACCOUNTS)).isEmpty();
+  }
+
+  @Test
+  public void testProbableDuplicate_isAbsentForNewTransactions() {
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            Model.newBuilder()
+                .addAccount(DEFAULT_ACCOUNT)
+                .addTransaction(DEFAULT_TRANSACTION)
+                .addSplit(DEFAULT_SPLIT)
+                .build());
+
+    assertThat(matcher.getProbableDuplicate(DEFAULT_TRANSACTION, ImmutableList.of(DEFAULT_SPLIT)))
+        .isEqualTo(
+            Optional.of(
+                Match.probableDuplicate(
+                    ImmutableList.of(
+                        MatchData.create(DEFAULT_ACCOUNT, DEFAULT_TRANSACTION, DEFAULT_SPLIT)))));
+    assertThat(
+            matcher.getProbableDuplicate(
+                DEFAULT_TRANSACTION,
+                ImmutableList.of(DEFAULT_SPLIT.toBuilder().setValueNumerator(999).build())))
+        .isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testBulkBuild_matchesLinkingOneSplitAtATime() {
+    ImmutableList<String> merchants =
+        ImmutableList.of("Shell oil", "HEB grocery", "Amazon.com mktplace", "POS Walgreens");
+    Model.Builder model = Model.newBuilder().addAccount(DEFAULT_ACCOUNT);
+    // Enough transactions that the bulk build tokenizes them in several chunks.
+    for (int i = 0; i < 10_000; i++) {
+      Transaction transaction =
+          Transaction.newBuilder()
+              .setId("t" + i)
+              .setDescription(merchants.get(i % merchants.size()) + " store" + i % 97)
+              .setPostDateEpochSecond(i * 86_400L)
+              .build();
+      model
+          .addTransaction(transaction)
+          .addSplit(DEFAULT_SPLIT.toBuilder().setTransactionId(transaction.getId()));
+    }
+    // Transactions without splits don't contribute tokens.
+    model.addTransaction(Transaction.newBuilder().setId("empty").setDescription("Unseen"));
+    SplitMatcher bulkMatcher = SplitMatcher.create(model.build(), MatchScorers.bm25());
+    SplitMatcher linkedMatcher =
+        SplitMatcher.create(
+            Model.newBuilder().addAccount(DEFAULT_ACCOUNT).build(), MatchScorers.bm25());
+    Map<String, Transaction> transactionsById =
+        Maps.uniqueIndex(model.getTransactionList(), Transaction::getId);
+    for (Split split : model.getSplitList()) {
+      linkedMatcher.link(transactionsById.get(split.getTransactionId()), split);
+    }
+
+    assertThat(bulkMatcher.statistics()).isEqualTo(linkedMatcher.statistics());
+    for (String query : ImmutableList.of("shell store5", "walgreens", "unseen", "amazon store96")) {
+      Transaction transaction = DEFAULT_TRANSACTION.toBuilder().setDescription(query).build();
+      assertThat(bulkMatcher.getTopMatches(transaction, ImmutableList.of(), EXCLUDE_NO_ACCOUNTS))
+          .isEqualTo(
+              linkedMatcher.getTopMatches(transaction, ImmutableList.of(), EXCLUDE_NO_ACCOUNTS));
+    }
+  }
+
+  @Test
+  public void testFuzzyTokenMatching_matchesMisspelledAndTruncatedTokens() {
+    Transaction walgreens =
+        Transaction.newBuilder().setId("t1").setDescription("POS WALGREENS").build();
+    SplitMatcher matcher =
+        SplitMatcher.create(
+            Model.newBuilder()
+                .addAccount(DEFAULT_ACCOUNT)
+                .addTransaction(walgreens)
+                .addSplit(DEFAULT_SPLIT.toBuilder().setTransactionId(walgreens.getId()))
+                .build());
+    Transaction query = DEFAULT_TRANSACTION.toBuilder().setDescription("Walgreen").build();
+    assertThat(matcher.getTopAccounts(query, /* limit= */ 1, EXCLUDE_NO_ACCOUNTS)).isEmpty();
+
+    matcher.enableFuzzyTokenMatching();
+
+    ImmutableList<AccountScore> topAccounts =
+        matcher.getTopAccounts(query, /* limit= */ 1, EXCLUDE_NO_ACCOUNTS);
+    assertThat(topAccounts).hasSize(1);
+    assertThat(topAccounts.get(0).account()).isEqualTo(DEFAULT_ACCOUNT);
+    // "walgreen" and "walgreens" share 7 of their 8 and 9 padded trigrams.
+    assertThat(topAccounts.get(0).score()).isWithin(1e-9).of(14.0 / 17);
+    // Tokens that are too different aren't matched.
+    Transaction unrelated = DEFAULT_TRANSACTION.toBuilder().setDescription("Wal").build();
+    assertThat(matcher.getTopAccounts(unrelated, /* limit= */ 1, EXCLUDE_NO_ACCOUNTS)).isEmpty();
+  }
+
+  @Test
+  public void testFuzzyTokenMatching_includesTokensLinkedAfterEnabling() {
+    SplitMatcher matcher =
+        SplitMatcher.create(Model.newBuilder().addAccount(DEFAULT_ACCOUNT).build());
+    matcher.enableFuzzyTokenMatching();
+    Transaction amazon =
+        Transaction.newBuilder().setId("t1").setDescription("AMAZON.COM*MKTPLACE").build();
+    matcher.link(amazon, DEFAULT_SPLIT.toBuilder().setTransactionId(amazon.getId()).build());
+
+    Transaction query = DEFAULT_TRANSACTION.toBuilder().setDescription("Mktp").build();
+    ImmutableList<Match> topMatches =
+        matcher.getTopMatches(query, ImmutableList.of(), EXCLUDE_NO_ACCOUNTS);
+
+    assertThat(topMatches).hasSize(1);
+    assertThat(topMatches.get(0).matches().get(0).transaction()).isEqualTo(amazon);
+  }
 }
@@ -0,0 +1,75 @@
+package net.brentwalther.jcf.matcher;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link TrigramIndex} takes to find the most similar token to a misspelled one
+ * in a vocabulary of 100k tokens. Run with:
+ *
+ * <pre>bazel run //src/test/java/net/brentwalther/jcf/matcher:trigram_index_benchmark</pre>
+ */
+public class TrigramIndexBenchmark {
+
+  /** A small alphabet so that tokens share many trigrams, which is the worst case for lookups. */
+  private static final String ALPHABET = "ABCDEFGHIJKLMNOP";
+  private static final int VOCABULARY_SIZE = 100_000;
+  private static final int QUERY_COUNT = 10_000;
+  private static final int ROUNDS = 10;
+  private static final int WARMUP_ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Random random = new Random(0);
+    char[][] vocabulary = new char[VOCABULARY_SIZE][];
+    TrigramIndex index = new TrigramIndex();
+    long start = System.nanoTime();
+    for (int tokenId = 0; tokenId < VOCABULARY_SIZE; tokenId++) {
+      vocabulary[tokenId] = randomToken(random);
+      index.add(tokenId, vocabulary[tokenId], 0, vocabulary[tokenId].length);
+    }
+    long buildNanos = System.nanoTime() - start;
+
+    // Each query is a vocabulary token with one character dropped.
+    char[][] queries = new char[QUERY_COUNT][];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      char[] token = vocabulary[random.nextInt(VOCABULARY_SIZE)];
+      int dropped = random.nextInt(token.length);
+      queries[i] = new char[token.length - 1];
+      System.arraycopy(token, 0, queries[i], 0, dropped);
+      System.arraycopy(token, dropped + 1, queries[i], dropped, token.length - dropped - 1);
+    }
+
+    long lookupNanos = Long.MAX_VALUE;
+    int found = 0;
+    for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+      found = 0;
+      start = System.nanoTime();
+      for (char[] query : queries) {
+        if (index.mostSimilar(query, 0, query.length, 0.5).isPresent()) {
+          found++;
+        }
+      }
+      if (round >= WARMUP_ROUNDS) {
+        lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+      }
+    }
+
+    System.out.printf(
+        "%,d tokens indexed in %,d ms%n%,d lookups, best of %d rounds: %,.1f us per lookup, %,d"
+            + " found%n",
+        VOCABULARY_SIZE,
+        TimeUnit.NANOSECONDS.toMillis(buildNanos),
+        QUERY_COUNT,
+        ROUNDS,
+        lookupNanos / 1_000.0 / QUERY_COUNT,
+        found);
+  }
+
+  private static char[] randomToken(Random random) {
+    char[] token = new char[4 + random.nextInt(9)];
+    for (int i = 0; i < token.length; i++) {
+      token[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+    }
+    return token;
+  }
+}
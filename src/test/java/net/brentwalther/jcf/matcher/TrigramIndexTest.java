@@ -0,0 +1,66 @@
+package net.brentwalther.jcf.matcher;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import net.brentwalther.jcf.matcher.TrigramIndex.SimilarToken;
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+  private static final ImmutableList<String> VOCABULARY =
+      ImmutableList.of("WALGREENS", "AMAZON", "MKTPLACE", "SHELL", "SHELLS");
+
+  @Test
+  public void testMostSimilar() {
+    TrigramIndex index = indexOf(VOCABULARY);
+
+    assertThat(mostSimilar(index, "walgreen", 0.5).get().tokenId()).isEqualTo(0);
+    assertThat(mostSimilar(index, "Mktp", 0.5).get())
+        .isEqualTo(SimilarToken.create(/* tokenId= */ 2, /* similarity= */ 0.5));
+    assertThat(mostSimilar(index, "AMAZON", 0.5).get())
+        .isEqualTo(SimilarToken.create(/* tokenId= */ 1, /* similarity= */ 1.0));
+    assertThat(mostSimilar(index, "Mktp", 0.6)).isEqualTo(Optional.empty());
+    assertThat(mostSimilar(index, "xyz", 0.1)).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testMostSimilar_tiesPreferTheLowestTokenId() {
+    // Both tokens have six trigrams and share four of them with the query.
+    TrigramIndex index = indexOf(ImmutableList.of("SHELLY", "SHELLS"));
+
+    assertThat(mostSimilar(index, "shell", 0.1).get().tokenId()).isEqualTo(0);
+  }
+
+  @Test
+  public void testMostSimilar_isRepeatable() {
+    TrigramIndex index = indexOf(VOCABULARY);
+
+    Optional<SimilarToken> first = mostSimilar(index, "shel", 0.1);
+    assertThat(mostSimilar(index, "shel", 0.1)).isEqualTo(first);
+    assertThat(first.get().tokenId()).isEqualTo(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_requiresSequentialIds() {
+    TrigramIndex index = new TrigramIndex();
+    char[] token = "SHELL".toCharArray();
+    index.add(1, token, 0, token.length);
+  }
+
+  private static TrigramIndex indexOf(ImmutableList<String> tokens) {
+    TrigramIndex index = new TrigramIndex();
+    for (int tokenId = 0; tokenId < tokens.size(); tokenId++) {
+      char[] token = tokens.get(tokenId).toCharArray();
+      index.add(tokenId, token, 0, token.length);
+    }
+    return index;
+  }
+
+  private static Optional<SimilarToken> mostSimilar(
+      TrigramIndex index, String query, double minimumSimilarity) {
+    char[] chars = query.toCharArray();
+    return index.mostSimilar(chars, 0, chars.length, minimumSimilarity);
+  }
+}
@@ -0,0 +1,156 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlockModelFileTest {
+
+  private static final Account CHECKING = Account.newBuilder().setId("c").setName("Check").build();
+  private static final Account FOOD = Account.newBuilder().setId("f").setName("Food").build();
+  private static final Account RENT = Account.newBuilder().setId("r").setName("Rent").build();
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file;
+  private IndexedModel model;
+
+  @Before
+  public void setUp() throws IOException {
+    file = temporaryFolder.getRoot().toPath().resolve("model.jcf");
+    Model.Builder builder =
+        Model.newBuilder().addAccount(CHECKING).addAccount(FOOD).addAccount(RENT);
+    for (int year = 2021; year <= 2024; year++) {
+      for (int month = 1; month <= 12; month++) {
+        // Rent was only paid in 2022.
+        Account expense = year == 2022 ? RENT : FOOD;
+        Transaction transaction =
+            Transaction.newBuilder()
+                .setId(year + "-" + month)
+                .setDescription("PAYMENT")
+                .setPostDateEpochSecond(
+                    LocalDate.of(year, month, 15).atStartOfDay(ZoneOffset.UTC).toEpochSecond())
+                .build();
+        builder
+            .addTransaction(transaction)
+            .addSplit(split(transaction, CHECKING, -month))
+            .addSplit(split(transaction, expense, month));
+      }
+    }
+    model = IndexedModel.create(builder.build());
+  }
+
+  @Test
+  public void testLoad_roundTrips() throws IOException {
+    BlockModelFile.write(model, file);
+    BlockModelFile blockModelFile = BlockModelFile.open(file);
+
+    assertThat(blockModelFile.accounts()).containsExactly(CHECKING, FOOD, RENT).inOrder();
+    assertThat(blockModelFile.transactionCount()).isEqualTo(48);
+    assertSameModel(blockModelFile.load(), model);
+  }
+
+  @Test
+  public void testLoadPostedBetween() throws IOException {
+    writeInBlocksOf(5);
+    Instant start = LocalDate.of(2023, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    Instant end = LocalDate.of(2024, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    IndexedModel transactionsIn2023 = BlockModelFile.open(file).loadPostedBetween(start, end);
+
+    assertThat(transactionsIn2023.getAllAccounts()).containsExactly(CHECKING, FOOD, RENT);
+    assertThat(transactionsIn2023.getTransactionsInPostDateOrder())
+        .containsExactlyElementsIn(model.getTransactionsPostedBetween(start, end))
+        .inOrder();
+    assertThat(transactionsIn2023.getAllSplits()).hasSize(24);
+  }
+
+  @Test
+  public void testLoadForAccount() throws IOException {
+    writeInBlocksOf(7);
+
+    IndexedModel rentTransactions = BlockModelFile.open(file).loadForAccount(RENT.getId());
+
+    assertThat(rentTransactions.getTransactionCount()).isEqualTo(12);
+    assertThat(rentTransactions.splitsForAccount(RENT))
+        .containsExactlyElementsIn(model.splitsForAccount(RENT));
+    // The other splits of the transactions are loaded too.
+    assertThat(rentTransactions.splitsForAccount(CHECKING)).hasSize(12);
+    assertThat(BlockModelFile.open(file).loadForAccount("unknown").getTransactionCount())
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testEmptyModel() throws IOException {
+    BlockModelFile.newWriter(file).commit();
+    BlockModelFile blockModelFile = BlockModelFile.open(file);
+
+    assertThat(blockModelFile.accounts()).isEmpty();
+    assertThat(blockModelFile.load().getTransactionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testWriter_closedWithoutCommitLeavesTheFile() throws IOException {
+    BlockModelFile.write(model, file);
+    try (BlockModelFile.Writer writer = BlockModelFile.newWriter(file)) {
+      // A write that fails partway through never commits.
+      writer.addAccounts(model.getAllAccounts());
+      Transaction transaction = model.getTransactionsInPostDateOrder().get(0);
+      writer.addTransaction(transaction, model.splitsForTransaction(transaction));
+    }
+
+    assertSameModel(BlockModelFile.open(file).load(), model);
+    assertThat(Files.exists(file.resolveSibling(file.getFileName() + ".tmp"))).isFalse();
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpen_notAModelFile() throws IOException {
+    Files.write(file, "not a model file, but long enough".getBytes(UTF_8));
+    BlockModelFile.open(file);
+  }
+
+  private void writeInBlocksOf(int transactionsPerBlock) throws IOException {
+    try (BlockModelFile.Writer writer = BlockModelFile.newWriter(file, transactionsPerBlock)) {
+      writer.addAccounts(model.getAllAccounts());
+      for (Transaction transaction : model.getTransactionsInPostDateOrder()) {
+        writer.addTransaction(transaction, model.splitsForTransaction(transaction));
+      }
+      writer.commit();
+    }
+  }
+
+  private static void assertSameModel(IndexedModel actual, IndexedModel expected) {
+    assertThat(actual.immutableAccountsByIdMap()).isEqualTo(expected.immutableAccountsByIdMap());
+    assertThat(actual.getTransactionsInPostDateOrder())
+        .containsExactlyElementsIn(expected.getTransactionsInPostDateOrder())
+        .inOrder();
+    for (Transaction transaction : expected.getAllTransactions()) {
+      assertThat(actual.splitsForTransaction(transaction))
+          .containsExactlyElementsIn(expected.splitsForTransaction(transaction))
+          .inOrder();
+    }
+  }
+
+  private static Split split(Transaction transaction, Account account, int dollars) {
+    return Split.newBuilder()
+        .setTransactionId(transaction.getId())
+        .setAccountId(account.getId())
+        .setValueNumerator(dollars)
+        .setValueDenominator(1)
+        .build();
+  }
+}
@@ -0,0 +1,76 @@
+package net.brentwalther.jcf.model;
+
+import java.util.Random;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+
+/**
+ * Compares the heap retained by an {@link IndexedModel} and a {@link ColumnarModel} of the same
+ * multi-million split model. Run with a large enough heap:
+ *
+ * <pre>bazel run //src/test/java/net/brentwalther/jcf/model:columnar_model_benchmark -- \
+ *     --jvm_flag=-Xmx4g</pre>
+ */
+public class ColumnarModelBenchmark {
+
+  private static final int ACCOUNT_COUNT = 500;
+  private static final int TRANSACTION_COUNT = 1_000_000;
+  private static final int SPLITS_PER_TRANSACTION = 2;
+
+  public static void main(String[] args) {
+    long baseline = usedHeapBytes();
+    // The indexed model retains the protos of the model it's created from.
+    IndexedModel indexedModel = IndexedModel.create(randomModel(new Random(0)));
+    long indexedModelBytes = usedHeapBytes() - baseline;
+
+    Model model = indexedModel.toProto();
+    indexedModel = null;
+    ColumnarModel columnarModel = ColumnarModel.create(model);
+    model = null;
+    long columnarModelBytes = usedHeapBytes() - baseline;
+
+    System.out.printf(
+        "%,d transactions with %,d splits each:%n  IndexedModel: %,d MB%n"
+            + "  ColumnarModel: %,d MB%n",
+        columnarModel.getTransactionCount(),
+        SPLITS_PER_TRANSACTION,
+        indexedModelBytes >> 20,
+        columnarModelBytes >> 20);
+  }
+
+  private static Model randomModel(Random random) {
+    Model.Builder model = Model.newBuilder();
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      model.addAccount(Account.newBuilder().setId("account" + i).setName("Expenses:Account" + i));
+    }
+    for (int i = 0; i < TRANSACTION_COUNT; i++) {
+      String transactionId = Long.toHexString(random.nextLong()) + Long.toHexString(i);
+      model.addTransaction(
+          Transaction.newBuilder()
+              .setId(transactionId)
+              .setDescription("POS DEBIT MERCHANT " + random.nextInt(10_000))
+              .setPostDateEpochSecond(1_500_000_000L + i * 600L));
+      int cents = random.nextInt(100_000);
+      for (int j = 0; j < SPLITS_PER_TRANSACTION; j++) {
+        model.addSplit(
+            Split.newBuilder()
+                .setTransactionId(transactionId)
+                .setAccountId("account" + random.nextInt(ACCOUNT_COUNT))
+                .setValueNumerator(j == 0 ? cents : -cents)
+                .setValueDenominator(100));
+      }
+    }
+    return model.build();
+  }
+
+  /** Returns the bytes in use after collecting garbage, which approximates the retained heap. */
+  private static long usedHeapBytes() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,150 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.FluentIterable;
+import java.math.BigDecimal;
+import net.brentwalther.jcf.model.ColumnarModel.SplitView;
+import net.brentwalther.jcf.model.ColumnarModel.TransactionView;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Test;
+
+public class ColumnarModelTest {
+
+  private static final Account CHECKING =
+      Account.newBuilder().setId("checking").setName("Checking").build();
+  private static final Account FUEL = Account.newBuilder().setId("fuel").setName("Fuel").build();
+  private static final Transaction SHELL =
+      Transaction.newBuilder()
+          .setId("t1")
+          .setDescription("SHELL OIL")
+          .setPostDateEpochSecond(1_600_000_000L)
+          .build();
+  private static final Transaction CAFE =
+      Transaction.newBuilder()
+          .setId("t2")
+          .setDescription("Café ☕")
+          .setPostDateEpochSecond(1_600_086_400L)
+          .build();
+  private static final Model MODEL =
+      Model.newBuilder()
+          .addAccount(CHECKING)
+          .addAccount(FUEL)
+          .addTransaction(SHELL)
+          .addTransaction(CAFE)
+          .addSplit(split("t2", "checking", -9, 2))
+          .addSplit(split("t1", "checking", -2501, 100))
+          .addSplit(split("t2", "fuel", 9, 2))
+          .addSplit(split("t1", "fuel", 2501, 100))
+          // A split of a transaction and an account that aren't in the model.
+          .addSplit(split("missing", "unknown", 3, 1))
+          .build();
+
+  @Test
+  public void testMatchesIndexedModel() {
+    ColumnarModel columnarModel = ColumnarModel.create(MODEL);
+    IndexedModel indexedModel = IndexedModel.create(MODEL);
+
+    assertThat(columnarModel.getAllAccounts())
+        .containsExactlyElementsIn(indexedModel.getAllAccounts())
+        .inOrder();
+    assertThat(columnarModel.getTransactionCount()).isEqualTo(indexedModel.getTransactionCount());
+    assertThat(
+            FluentIterable.from(columnarModel.getAllTransactions())
+                .transform(TransactionView::toProto))
+        .containsExactlyElementsIn(indexedModel.getAllTransactions())
+        .inOrder();
+    for (Transaction transaction : indexedModel.getAllTransactions()) {
+      TransactionView view = columnarModel.getTransactionById(transaction.getId()).get();
+      assertThat(
+              FluentIterable.from(columnarModel.splitsForTransaction(view))
+                  .transform(SplitView::toProto))
+          .containsExactlyElementsIn(indexedModel.splitsForTransaction(transaction))
+          .inOrder();
+    }
+    assertThat(FluentIterable.from(columnarModel.getAllSplits()).transform(SplitView::toProto))
+        .containsExactlyElementsIn(indexedModel.getAllSplits());
+    assertThat(columnarModel.getAccountById("fuel")).isEqualTo(indexedModel.getAccountById("fuel"));
+    assertThat(columnarModel.getAccountById("unknown").isPresent()).isFalse();
+    assertThat(columnarModel.getTransactionById("missing").isPresent()).isFalse();
+    assertThat(
+            FluentIterable.from(columnarModel.splitsForTransaction("missing"))
+                .transform(SplitView::toProto))
+        .containsExactly(split("missing", "unknown", 3, 1));
+    assertThat(columnarModel.splitsForTransaction("nonexistent")).isEmpty();
+  }
+
+  @Test
+  public void testAmountsAreStoredInCents() {
+    ColumnarModel columnarModel = ColumnarModel.create(MODEL);
+
+    SplitView split = columnarModel.splitsForTransaction("t2").get(0);
+    assertThat(split.hasWholeCentsAmount()).isTrue();
+    assertThat(split.amountInCents()).isEqualTo(-450);
+    assertThat(split.amount()).isEqualTo(new BigDecimal("-4.5"));
+    assertThat(split.account().get()).isEqualTo(CHECKING);
+    assertThat(split.toProto()).isEqualTo(split("t2", "checking", -9, 2));
+  }
+
+  @Test
+  public void testAmountsThatArentWholeCentsStayExact() {
+    // The least common multiple of these denominators doesn't fit in a long.
+    Model model =
+        Model.newBuilder()
+            .addTransaction(SHELL)
+            .addSplit(split("t1", "checking", -1, 3))
+            .addSplit(split("t1", "fuel", 2, 7))
+            .addSplit(split("t1", "fuel", 1, 999_999_937))
+            .addSplit(split("t1", "fuel", -1, Integer.MAX_VALUE))
+            .addSplit(split("t1", "fuel", 250, 100))
+            .build();
+    ColumnarModel columnarModel = ColumnarModel.create(model);
+
+    SplitView third = columnarModel.getAllSplits().get(0);
+    assertThat(third.hasWholeCentsAmount()).isFalse();
+    assertThat(third.amountInCents()).isEqualTo(-33);
+    assertThat(third.amount())
+        .isEqualTo(ModelTransforms.bigDecimalAmountForSplit(model.getSplit(0)));
+    assertThat(columnarModel.getAllSplits().get(1).amountInCents()).isEqualTo(29);
+    assertThat(columnarModel.getAllSplits().get(4).hasWholeCentsAmount()).isTrue();
+    assertThat(columnarModel.getAllSplits().get(4).toProto()).isEqualTo(split("t1", "fuel", 5, 2));
+    assertThat(FluentIterable.from(columnarModel.getAllSplits()).transform(SplitView::toProto))
+        .containsExactly(
+            split("t1", "checking", -1, 3),
+            split("t1", "fuel", 2, 7),
+            split("t1", "fuel", 1, 999_999_937),
+            split("t1", "fuel", -1, Integer.MAX_VALUE),
+            split("t1", "fuel", 5, 2))
+        .inOrder();
+  }
+
+  @Test
+  public void testViewsAreEqualByHandle() {
+    ColumnarModel columnarModel = ColumnarModel.create(MODEL);
+
+    assertThat(columnarModel.getTransactionById("t1").get())
+        .isEqualTo(columnarModel.getAllTransactions().get(0));
+    assertThat(columnarModel.getAllSplits().get(0))
+        .isEqualTo(columnarModel.splitsForTransaction("t1").get(0));
+    assertThat(columnarModel.getAllSplits().get(0))
+        .isNotEqualTo(ColumnarModel.create(MODEL).getAllSplits().get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_rejectsDuplicateTransactionIds() {
+    ColumnarModel.create(MODEL.toBuilder().addTransaction(SHELL).build());
+  }
+
+  private static Split split(
+      String transactionId, String accountId, int numerator, int denominator) {
+    return Split.newBuilder()
+        .setTransactionId(transactionId)
+        .setAccountId(accountId)
+        .setValueNumerator(numerator)
+        .setValueDenominator(denominator)
+        .build();
+  }
+}
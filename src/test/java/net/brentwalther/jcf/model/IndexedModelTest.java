@@ -0,0 +1,93 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Instant;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Test;
+
+public class IndexedModelTest {
+
+  private static final Account ASSETS = Account.newBuilder().setId("a").setName("Assets").build();
+  private static final Account CHECKING =
+      Account.newBuilder().setId("c").setName("Checking").setParentId("a").build();
+  private static final Account SAVINGS =
+      Account.newBuilder().setId("s").setName("Savings").setParentId("a").build();
+  private static final Transaction LATE = transaction("t1", 300);
+  private static final Transaction EARLY = transaction("t2", 100);
+  private static final Transaction MIDDLE = transaction("t3", 200);
+  private static final Transaction ALSO_EARLY = transaction("t4", 100);
+  private static final Split LATE_CHECKING = split(LATE, CHECKING);
+  private static final Split LATE_SAVINGS = split(LATE, SAVINGS);
+  private static final Split EARLY_CHECKING = split(EARLY, CHECKING);
+  private static final Split ORPHAN_CHECKING = split(transaction("missing", 0), CHECKING);
+  private static final IndexedModel MODEL =
+      IndexedModel.create(
+          Model.newBuilder()
+              .addAccount(ASSETS)
+              .addAccount(CHECKING)
+              .addAccount(SAVINGS)
+              .addTransaction(LATE)
+              .addTransaction(EARLY)
+              .addTransaction(MIDDLE)
+              .addTransaction(ALSO_EARLY)
+              .addSplit(LATE_CHECKING)
+              .addSplit(LATE_SAVINGS)
+              .addSplit(EARLY_CHECKING)
+              .addSplit(ORPHAN_CHECKING)
+              .build());
+
+  @Test
+  public void testSplitsForAccount() {
+    assertThat(MODEL.splitsForAccount(CHECKING))
+        .containsExactly(LATE_CHECKING, EARLY_CHECKING, ORPHAN_CHECKING)
+        .inOrder();
+    assertThat(MODEL.splitsForAccount(SAVINGS)).containsExactly(LATE_SAVINGS);
+    assertThat(MODEL.splitsForAccount(ASSETS)).isEmpty();
+  }
+
+  @Test
+  public void testChildrenOfAccount() {
+    assertThat(MODEL.childrenOfAccount(ASSETS)).containsExactly(CHECKING, SAVINGS).inOrder();
+    assertThat(MODEL.childrenOfAccount(CHECKING)).isEmpty();
+  }
+
+  @Test
+  public void testTransactionsInPostDateOrder_isStable() {
+    assertThat(MODEL.getTransactionsInPostDateOrder())
+        .containsExactly(EARLY, ALSO_EARLY, MIDDLE, LATE)
+        .inOrder();
+  }
+
+  @Test
+  public void testTransactionsPostedBetween() {
+    assertThat(MODEL.getTransactionsPostedBetween(epochSecond(100), epochSecond(300)))
+        .containsExactly(EARLY, ALSO_EARLY, MIDDLE)
+        .inOrder();
+    assertThat(MODEL.getTransactionsPostedBetween(epochSecond(101), epochSecond(301)))
+        .containsExactly(MIDDLE, LATE)
+        .inOrder();
+    assertThat(MODEL.getTransactionsPostedBetween(epochSecond(0), epochSecond(100))).isEmpty();
+    assertThat(MODEL.getTransactionsPostedBetween(epochSecond(300), epochSecond(100))).isEmpty();
+  }
+
+  private static Instant epochSecond(long epochSecond) {
+    return Instant.ofEpochSecond(epochSecond);
+  }
+
+  private static Transaction transaction(String id, long postDateEpochSecond) {
+    return Transaction.newBuilder().setId(id).setPostDateEpochSecond(postDateEpochSecond).build();
+  }
+
+  private static Split split(Transaction transaction, Account account) {
+    return Split.newBuilder()
+        .setTransactionId(transaction.getId())
+        .setAccountId(account.getId())
+        .setValueNumerator(1)
+        .setValueDenominator(1)
+        .build();
+  }
+}
@@ -0,0 +1,149 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InitialModelCacheTest {
+
+  private static final Account CHECKING = Account.newBuilder().setId("c").setName("Check").build();
+  private static final Account FOOD = Account.newBuilder().setId("f").setName("Food").build();
+  private static final Transaction GROCERIES =
+      Transaction.newBuilder()
+          .setId("t1")
+          .setDescription("GROCERIES")
+          .setPostDateEpochSecond(1_600_000_000L)
+          .build();
+  private static final IndexedModel MODEL =
+      IndexedModel.create(
+          Model.newBuilder()
+              .addAccount(CHECKING)
+              .addAccount(FOOD)
+              .addTransaction(GROCERIES)
+              .addSplit(split(CHECKING, -2000))
+              .addSplit(split(FOOD, 2000))
+              .build());
+  private static final HashCode INPUT_HASH = Hashing.sha256().hashString("inputs", UTF_8);
+  private static final HashCode CHANGED_INPUT_HASH =
+      Hashing.sha256().hashString("changed inputs", UTF_8);
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path cacheDir;
+  private int buildCount;
+
+  @Before
+  public void setUp() {
+    cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+    buildCount = 0;
+  }
+
+  @Test
+  public void testGet_loadsTheCachedModel() throws IOException {
+    assertSameRecords(cache(INPUT_HASH).get(), MODEL);
+    assertThat(buildCount).isEqualTo(1);
+    assertThat(cacheFiles()).hasSize(1);
+
+    assertSameRecords(cache(INPUT_HASH).get(), MODEL);
+    assertThat(buildCount).isEqualTo(1);
+  }
+
+  @Test
+  public void testGet_buildsAgainWhenTheInputsChange() throws IOException {
+    cache(INPUT_HASH).get();
+    List<Path> oldCacheFiles = cacheFiles();
+
+    assertSameRecords(cache(CHANGED_INPUT_HASH).get(), MODEL);
+    assertThat(buildCount).isEqualTo(2);
+    // The model of the old inputs is replaced.
+    assertThat(cacheFiles()).hasSize(1);
+    assertThat(cacheFiles()).containsNoneIn(oldCacheFiles);
+  }
+
+  @Test
+  public void testRebuild_replacesTheCachedModel() throws IOException {
+    cache(INPUT_HASH).get();
+    List<Path> cacheFiles = cacheFiles();
+
+    assertSameRecords(cache(INPUT_HASH).rebuild(), MODEL);
+    assertThat(buildCount).isEqualTo(2);
+    assertThat(cacheFiles()).isEqualTo(cacheFiles);
+    cache(INPUT_HASH).get();
+    assertThat(buildCount).isEqualTo(2);
+  }
+
+  @Test
+  public void testGet_deletesStaleCacheFilesOnly() throws IOException {
+    Files.createDirectories(cacheDir);
+    Path staleFile = Files.write(cacheDir.resolve("initial_model_stale"), new byte[] {1, 2, 3});
+    Path otherFile = Files.write(cacheDir.resolve("notes.txt"), "keep".getBytes(UTF_8));
+
+    cache(INPUT_HASH).get();
+
+    assertThat(Files.exists(staleFile)).isFalse();
+    assertThat(Files.exists(otherFile)).isTrue();
+    assertThat(cacheFiles()).hasSize(1);
+  }
+
+  @Test
+  public void testGet_buildsAgainWhenTheCacheFileIsCorrupt() throws IOException {
+    cache(INPUT_HASH).get();
+    Path cacheFile = cacheFiles().get(0);
+    Files.write(cacheFile, "not a model file".getBytes(UTF_8));
+
+    assertSameRecords(cache(INPUT_HASH).get(), MODEL);
+    assertThat(buildCount).isEqualTo(2);
+    // The corrupt file is replaced.
+    assertSameRecords(BlockModelFile.open(cacheFile).load(), MODEL);
+  }
+
+  private InitialModelCache cache(HashCode inputHash) {
+    return InitialModelCache.create(
+        cacheDir,
+        inputHash,
+        () -> {
+          buildCount++;
+          return MODEL;
+        });
+  }
+
+  private List<Path> cacheFiles() throws IOException {
+    List<Path> cacheFiles = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "initial_model_*")) {
+      files.forEach(cacheFiles::add);
+    }
+    return cacheFiles;
+  }
+
+  private static void assertSameRecords(IndexedModel actual, IndexedModel expected) {
+    assertThat(actual.getAllAccounts()).containsExactlyElementsIn(expected.getAllAccounts());
+    assertThat(actual.getAllTransactions())
+        .containsExactlyElementsIn(expected.getAllTransactions());
+    assertThat(actual.getAllSplits()).containsExactlyElementsIn(expected.getAllSplits());
+  }
+
+  private static Split split(Account account, int cents) {
+    return Split.newBuilder()
+        .setTransactionId(GROCERIES.getId())
+        .setAccountId(account.getId())
+        .setValueNumerator(cents)
+        .setValueDenominator(100)
+        .build();
+  }
+}
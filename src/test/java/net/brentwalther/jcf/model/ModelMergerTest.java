@@ -0,0 +1,138 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Test;
+
+public class ModelMergerTest {
+
+  private static final Account CHECKING = Account.newBuilder().setId("c").setName("Check").build();
+  private static final Account RENAMED_CHECKING = CHECKING.toBuilder().setName("Checking").build();
+  private static final Account FOOD = Account.newBuilder().setId("f").setName("Food").build();
+  private static final Transaction GROCERIES = transaction("t1", "GROCERIES");
+  private static final Transaction RENAMED_GROCERIES = transaction("t1", "GROCERY STORE");
+  private static final Transaction RENT = transaction("t2", "RENT");
+  private static final Split GROCERIES_CHECKING = split(GROCERIES, CHECKING, -500);
+  private static final Split GROCERIES_FOOD = split(GROCERIES, FOOD, 500);
+  private static final Split RENT_CHECKING = split(RENT, CHECKING, -1000);
+
+  @Test
+  public void testMerge_laterRecordsReplaceEarlierOnes() {
+    IndexedModel model =
+        ModelMerger.create()
+            .add(model(CHECKING, GROCERIES, GROCERIES_CHECKING, GROCERIES_FOOD))
+            .add(model(RENAMED_CHECKING, RENAMED_GROCERIES, GROCERIES_CHECKING))
+            .addAccounts(ImmutableList.of(FOOD))
+            .merge();
+
+    assertThat(model.getAllAccounts()).containsExactly(RENAMED_CHECKING, FOOD).inOrder();
+    assertThat(model.getAllTransactions()).containsExactly(RENAMED_GROCERIES);
+    assertThat(model.splitsForTransaction(RENAMED_GROCERIES))
+        .containsExactly(GROCERIES_CHECKING, GROCERIES_FOOD)
+        .inOrder();
+  }
+
+  @Test
+  public void testMerge_splitsCanPrecedeTheirRecords() {
+    IndexedModel model =
+        ModelMerger.create()
+            .addSplits(ImmutableList.of(RENT_CHECKING))
+            .addTransactions(ImmutableList.of(RENT))
+            .addAccounts(ImmutableList.of(CHECKING))
+            .merge();
+
+    assertThat(model.splitsForTransaction(RENT)).containsExactly(RENT_CHECKING);
+  }
+
+  @Test
+  public void testMerge_dropsSplitsWithBadReferences() {
+    Split unknownAccount = split(RENT, Account.newBuilder().setId("unknown").build(), 1000);
+    Split unknownTransaction = split(transaction("unknown", ""), CHECKING, 1);
+    IndexedModel model =
+        ModelMerger.create()
+            .add(model(CHECKING, RENT, RENT_CHECKING, unknownAccount, unknownTransaction))
+            .merge();
+
+    assertThat(model.getAllSplits()).containsExactly(RENT_CHECKING);
+  }
+
+  @Test
+  public void testMerge_generatesMissingIds() {
+    Account account = Account.newBuilder().setName("No ID").build();
+    IndexedModel model =
+        ModelMerger.create()
+            .addAccounts(ImmutableList.of(account))
+            .addTransactions(ImmutableList.of(Transaction.getDefaultInstance()))
+            .merge();
+
+    assertThat(model.getAllAccounts()).hasSize(1);
+    assertThat(model.getAllAccounts().iterator().next().getId()).isNotEmpty();
+    assertThat(model.getAllTransactions()).hasSize(1);
+    assertThat(model.getAllTransactions().iterator().next().getId()).isNotEmpty();
+  }
+
+  @Test
+  public void testMerge_isIndependentOfThePartitionCount() {
+    Random random = new Random(14);
+    Model.Builder base = Model.newBuilder().addAccount(CHECKING).addAccount(FOOD);
+    Model.Builder toMerge = Model.newBuilder().addAccount(RENAMED_CHECKING);
+    for (int i = 0; i < 1000; i++) {
+      Model.Builder model = random.nextBoolean() ? base : toMerge;
+      Transaction transaction = transaction("t" + random.nextInt(500), "DESCRIPTION " + i);
+      int amount = random.nextInt(10_000);
+      model
+          .addTransaction(transaction)
+          .addSplit(split(transaction, CHECKING, -amount))
+          .addSplit(split(transaction, FOOD, amount));
+    }
+
+    IndexedModel onePartition =
+        ModelMerger.create(1).add(base.build()).add(toMerge.build()).merge();
+    IndexedModel manyPartitions =
+        ModelMerger.create(7).add(base.build()).add(toMerge.build()).merge();
+
+    assertThat(manyPartitions.immutableAccountsByIdMap())
+        .isEqualTo(onePartition.immutableAccountsByIdMap());
+    assertThat(manyPartitions.getAllTransactions())
+        .containsExactlyElementsIn(onePartition.getAllTransactions());
+    for (Transaction transaction : onePartition.getAllTransactions()) {
+      assertThat(manyPartitions.splitsForTransaction(transaction))
+          .containsExactlyElementsIn(onePartition.splitsForTransaction(transaction))
+          .inOrder();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMerge_onlyOnce() {
+    ModelMerger merger = ModelMerger.create();
+    merger.merge();
+    merger.add(Model.getDefaultInstance());
+  }
+
+  private static Model model(Account account, Transaction transaction, Split... splits) {
+    return Model.newBuilder()
+        .addAccount(account)
+        .addTransaction(transaction)
+        .addAllSplit(ImmutableList.copyOf(splits))
+        .build();
+  }
+
+  private static Transaction transaction(String id, String description) {
+    return Transaction.newBuilder().setId(id).setDescription(description).build();
+  }
+
+  private static Split split(Transaction transaction, Account account, int cents) {
+    return Split.newBuilder()
+        .setTransactionId(transaction.getId())
+        .setAccountId(account.getId())
+        .setValueNumerator(cents)
+        .setValueDenominator(100)
+        .build();
+  }
+}
@@ -0,0 +1,88 @@
+package net.brentwalther.jcf.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import org.junit.Test;
+
+public class ModelTransformsTest {
+
+  @Test
+  public void testCentsAmountForSplit() {
+    assertThat(ModelTransforms.centsAmountForSplit(split(1234, 100))).isEqualTo(1234);
+    assertThat(ModelTransforms.centsAmountForSplit(split(-5, 2))).isEqualTo(-250);
+    assertThat(ModelTransforms.centsAmountForSplit(split(3, -3))).isEqualTo(-100);
+    assertThat(ModelTransforms.centsAmountForSplit(split(Integer.MIN_VALUE, 1)))
+        .isEqualTo(Integer.MIN_VALUE * 100L);
+    assertThat(ModelTransforms.hasWholeCentsAmount(split(1, 3))).isFalse();
+    assertThat(ModelTransforms.hasWholeCentsAmount(split(1, 0))).isFalse();
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testCentsAmountForSplit_fractionOfACent() {
+    ModelTransforms.centsAmountForSplit(split(1, 1000));
+  }
+
+  @Test
+  public void testBigDecimalAmountForSplit_matchesExactDivision() {
+    Random random = new Random(13);
+    int[] denominators = {1, 2, 3, 4, 5, 7, 10, 20, 25, 50, 100, 1000, -100};
+    for (int i = 0; i < 10_000; i++) {
+      int numerator = random.nextInt();
+      int denominator = denominators[random.nextInt(denominators.length)];
+      assertThat(ModelTransforms.bigDecimalAmountForSplit(split(numerator, denominator)))
+          .isEqualTo(
+              new BigDecimal(numerator)
+                  .setScale(50, RoundingMode.UNNECESSARY)
+                  .divide(new BigDecimal(denominator), RoundingMode.HALF_UP)
+                  .stripTrailingZeros());
+    }
+  }
+
+  @Test
+  public void testCompareAmounts() {
+    assertThat(ModelTransforms.compareAmounts(split(1, 2), split(50, 100))).isEqualTo(0);
+    assertThat(ModelTransforms.compareAmounts(split(1, 3), split(33, 100))).isGreaterThan(0);
+    assertThat(ModelTransforms.compareAmounts(split(-1, 3), split(1, -2))).isGreaterThan(0);
+    assertThat(
+            ModelTransforms.compareAmounts(
+                split(Integer.MAX_VALUE, 1), split(Integer.MIN_VALUE, -1)))
+        .isLessThan(0);
+  }
+
+  @Test
+  public void testAmountSum() {
+    AmountSum sum = AmountSum.create().add(split(1, 3)).add(split(-1, 3));
+    assertThat(sum.isZero()).isTrue();
+    sum.add(split(150, 100)).add(split(1, 8));
+    assertThat(sum.value()).isEqualTo(new BigDecimal("1.625"));
+
+    sum.clear();
+    assertThat(sum.isZero()).isTrue();
+    sum.addCents(Long.MAX_VALUE).addCents(Long.MAX_VALUE).addCents(-Long.MAX_VALUE);
+    assertThat(sum.value()).isEqualTo(BigDecimal.valueOf(Long.MAX_VALUE, 2).stripTrailingZeros());
+    assertThat(sum.isZero()).isFalse();
+  }
+
+  @Test
+  public void testAreSplitsBalanced() {
+    assertThat(
+            ModelValidations.areSplitsBalanced(
+                ImmutableList.of(split(1, 3), split(2, 3), split(-1, 1))))
+        .isTrue();
+    assertThat(
+            ModelValidations.areSplitsBalanced(ImmutableList.of(split(1, 1), split(-99, 100))))
+        .isFalse();
+  }
+
+  private static Split split(int numerator, int denominator) {
+    return Split.newBuilder()
+        .setValueNumerator(numerator)
+        .setValueDenominator(denominator)
+        .build();
+  }
+}
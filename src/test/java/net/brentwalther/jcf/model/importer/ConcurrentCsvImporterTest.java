@@ -0,0 +1,139 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions.FieldPosition;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.model.IndexedModel;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConcurrentCsvImporterTest {
+
+  private static final SettingsProfile CHECKING_PROFILE =
+      SettingsProfile.newBuilder()
+          .setCsvFieldPositions(
+              CsvFieldPositions.newBuilder()
+                  .addPosition(position(DataField.DATE, 0))
+                  .addPosition(position(DataField.DESCRIPTION, 1))
+                  .addPosition(position(DataField.AMOUNT, 2)))
+          .setCsvDateFormatJava("yyyy-MM-dd")
+          .setCsvAccountName("Assets:Checking")
+          .build();
+  private static final SettingsProfile CARD_PROFILE =
+      SettingsProfile.newBuilder()
+          .setCsvFieldPositions(
+              CsvFieldPositions.newBuilder()
+                  .addPosition(position(DataField.DESCRIPTION, 0))
+                  .addPosition(position(DataField.DATE, 1))
+                  .addPosition(position(DataField.NEGATED_AMOUNT, 2)))
+          .setCsvDateFormatJava("MM/dd/yyyy")
+          .setCsvAccountName("Liabilities:Card")
+          .build();
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testMergesFilesAndTheirDuplicates() throws IOException {
+    // The two checking statements overlap on the 15th, including both of its identical rows.
+    ConcurrentCsvImporter importer =
+        ConcurrentCsvImporter.create(
+            ImmutableMap.of(
+                "january",
+                CsvTransactionListingImporter.create(
+                    csvFile(
+                        "january.csv",
+                        "Date,Description,Amount",
+                        "2020-01-02,Coffee,-4.50",
+                        "2020-01-15,Parking,-2.00",
+                        "2020-01-15,Parking,-2.00"),
+                    CHECKING_PROFILE),
+                "mid-january",
+                CsvTransactionListingImporter.create(
+                    csvFile(
+                        "mid-january.csv",
+                        "Date,Description,Amount",
+                        "2020-01-15,Parking,-2.00",
+                        "2020-01-15,Parking,-2.00",
+                        "2020-01-31,Payroll,1500.00"),
+                    CHECKING_PROFILE),
+                "card",
+                CsvTransactionListingImporter.create(
+                    csvFile(
+                        "card.csv",
+                        "Description,Date,Amount",
+                        "Coffee,01/02/2020,4.50",
+                        "Books,01/20/2020,20.00"),
+                    CARD_PROFILE)),
+            /* threadCount= */ 2);
+
+    IndexedModel model = importer.importAll();
+
+    assertThat(
+            FluentIterable.from(model.getAllTransactions())
+                .transform(Transaction::getDescription)
+                .toList())
+        .containsExactly("Coffee", "Parking", "Parking", "Payroll", "Coffee", "Books");
+    assertThat(model.getAllAccounts()).hasSize(2);
+    assertThat(model.getAllSplits()).hasSize(6);
+  }
+
+  @Test
+  public void testSkipsFilesThatFail() throws IOException {
+    ConcurrentCsvImporter importer =
+        ConcurrentCsvImporter.create(
+            ImmutableMap.of(
+                "broken",
+                () -> {
+                  throw new IllegalStateException("Broken.");
+                },
+                "checking",
+                CsvTransactionListingImporter.create(
+                    csvFile("checking.csv", "Date,Description,Amount", "2020-01-02,Coffee,-4.50"),
+                    CHECKING_PROFILE)),
+            /* threadCount= */ 4);
+
+    assertThat(importer.importAll().getTransactionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testInsufficientProfileImportsNothing() throws IOException {
+    LazyTextFile csv =
+        csvFile("checking.csv", "Date,Description,Amount", "2020-01-02,Coffee,-4.50");
+
+    assertThat(
+            CsvTransactionListingImporter.create(
+                    csv, CHECKING_PROFILE.toBuilder().clearCsvDateFormatJava().build())
+                .get()
+                .getTransactionCount())
+        .isEqualTo(0);
+    assertThat(
+            CsvTransactionListingImporter.create(
+                    csv, CHECKING_PROFILE.toBuilder().clearCsvFieldPositions().build())
+                .get()
+                .getTransactionCount())
+        .isEqualTo(0);
+  }
+
+  private LazyTextFile csvFile(String name, String... lines) throws IOException {
+    File file = temporaryFolder.newFile(name);
+    Files.write(file.toPath(), Arrays.asList(lines), UTF_8);
+    return LazyTextFile.of(file);
+  }
+
+  private static FieldPosition position(DataField field, int columnIndex) {
+    return FieldPosition.newBuilder().setField(field).setColumnIndex(columnIndex).build();
+  }
+}
@@ -0,0 +1,73 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CsvRecordReaderTest {
+
+  @Test
+  public void testUnquotedFields() throws IOException {
+    assertThat(readAll("a,b,c\n1,,3\r\n,x,\r"))
+        .containsExactly(
+            ImmutableList.of("a", "b", "c"),
+            ImmutableList.of("1", "", "3"),
+            ImmutableList.of("", "x", ""))
+        .inOrder();
+  }
+
+  @Test
+  public void testQuotedFields() throws IOException {
+    assertThat(readAll("\"a,b\",\"say \"\"hi\"\"\",\"\"\n\"multi\r\nline\",2"))
+        .containsExactly(
+            ImmutableList.of("a,b", "say \"hi\"", ""), ImmutableList.of("multi\r\nline", "2"))
+        .inOrder();
+  }
+
+  @Test
+  public void testStrayQuotesAreKept() throws IOException {
+    assertThat(readAll("\"Foo,\\\"bar\",a\"b\"\n"))
+        .containsExactly(ImmutableList.of("Foo,\\\"bar", "a\"b\""));
+  }
+
+  @Test
+  public void testBlankLinesAreSkipped() throws IOException {
+    assertThat(readAll("\n\na\r\n\r\n\"\"\n\n"))
+        .containsExactly(ImmutableList.of("a"), ImmutableList.of(""))
+        .inOrder();
+  }
+
+  @Test
+  public void testRecordsSpanningBuffers() throws IOException {
+    StringBuilder field = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      field.append(i % 10 == 0 ? "\"\"" : "x");
+    }
+    String quoted = field.toString();
+    String unquoted = quoted.replace("\"\"", "\"");
+    assertThat(readAll("\"" + quoted + "\"," + "y\n" + "z"))
+        .containsExactly(ImmutableList.of(unquoted, "y"), ImmutableList.of("z"))
+        .inOrder();
+  }
+
+  @Test
+  public void testParseLine() {
+    assertThat(CsvRecordReader.parseLine("")).isEmpty();
+    assertThat(CsvRecordReader.parseLine("a,\"b,c\"")).containsExactly("a", "b,c").inOrder();
+  }
+
+  private static List<List<String>> readAll(String csv) throws IOException {
+    List<List<String>> records = new ArrayList<>();
+    try (CsvRecordReader reader = CsvRecordReader.create(new StringReader(csv))) {
+      for (List<String> fields = reader.next(); fields != null; fields = reader.next()) {
+        records.add(fields);
+      }
+    }
+    return records;
+  }
+}
@@ -0,0 +1,143 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharSource;
+import java.util.Map;
+import java.util.Optional;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.CsvFieldPositions.FieldPosition;
+import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
+import org.junit.Test;
+
+public class CsvSchemaInferenceTest {
+
+  @Test
+  public void testAmountColumn() {
+    Optional<SettingsProfile> profile =
+        infer(
+            ImmutableMap.of(),
+            "Posted Date,Reference,Payee,Amount,Balance",
+            "01/02/2020,1001,COFFEE SHOP #12,-4.50,995.50",
+            "01/03/2020,1002,GROCERY MART,-52.10,943.40",
+            "01/15/2020,1003,PAYROLL DEPOSIT,1500.00,2443.40",
+            "01/31/2020,1004,ELECTRIC COMPANY,-80.00,2363.40");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("MM/dd/yyyy");
+    assertThat(positionsOf(profile.get()))
+        .containsExactly(DataField.DATE, 0, DataField.AMOUNT, 3, DataField.DESCRIPTION, 2);
+  }
+
+  @Test
+  public void testDebitAndCreditColumns() {
+    Optional<SettingsProfile> profile =
+        infer(
+            ImmutableMap.of(),
+            "Date,Description,Out,In",
+            "2020-01-02,Coffee Shop,4.50,",
+            "2020-01-15,Payroll,,1500.00",
+            "2020-01-31,Electric Company,80.00,");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("yyyy-MM-dd");
+    assertThat(positionsOf(profile.get()))
+        .containsExactly(
+            DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.DEBIT, 2, DataField.CREDIT, 3);
+  }
+
+  @Test
+  public void testNamedDebitAndCreditColumns() {
+    Optional<SettingsProfile> profile =
+        infer(
+            ImmutableMap.of(),
+            "Credit,Debit,Memo,When",
+            "1500.00,0.00,Payroll,15.01.2020",
+            "0.00,4.50,Coffee,02.01.2020");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("dd.MM.yyyy");
+    assertThat(positionsOf(profile.get()))
+        .containsExactly(
+            DataField.DATE, 3, DataField.DESCRIPTION, 2, DataField.DEBIT, 1, DataField.CREDIT, 0);
+  }
+
+  @Test
+  public void testDayFirstDates() {
+    Optional<SettingsProfile> profile =
+        infer(
+            ImmutableMap.of(),
+            "Date,Description,Amount",
+            "02/01/2020,Coffee,-4.50",
+            "15/01/2020,Payroll,1500.00");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("dd/MM/yyyy");
+  }
+
+  @Test
+  public void testKnownPositionsAreKept() {
+    ImmutableMap<DataField, Integer> known =
+        ImmutableMap.of(DataField.DATE, 1, DataField.DESCRIPTION, 0, DataField.NEGATED_AMOUNT, 2);
+    Optional<SettingsProfile> profile =
+        infer(known, "a,b,c", "Coffee,1/2/2020,4.50", "Payroll,1/15/2020,-1500.00");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("M/d/yyyy");
+    assertThat(positionsOf(profile.get())).isEqualTo(known);
+  }
+
+  @Test
+  public void testInsufficientKnownPositionsAreKept() {
+    // The card numbers look like amounts and both dates have date names, so inference alone would
+    // choose other columns.
+    ImmutableMap<DataField, Integer> known =
+        ImmutableMap.of(
+            DataField.DATE, 1, DataField.DESCRIPTION, 2, DataField.ACCOUNT_IDENTIFIER, 3);
+    Optional<SettingsProfile> profile =
+        infer(
+            known,
+            "Posted,Transaction Date,Description,Card,Amount",
+            "2020-01-03,2020-01-02,Coffee,1234,-4.50",
+            "2020-01-16,2020-01-15,Payroll,5678,1500.00");
+
+    assertThat(profile.get().getCsvDateFormatJava()).isEqualTo("yyyy-MM-dd");
+    assertThat(positionsOf(profile.get()))
+        .containsExactly(
+            DataField.DATE,
+            1,
+            DataField.DESCRIPTION,
+            2,
+            DataField.ACCOUNT_IDENTIFIER,
+            3,
+            DataField.AMOUNT,
+            4);
+  }
+
+  @Test
+  public void testNoDateColumn() {
+    assertThat(infer(ImmutableMap.of(), "Description,Amount", "Coffee,4.50").isPresent()).isFalse();
+    assertThat(infer(ImmutableMap.of(), "Date,Description,Amount").isPresent()).isFalse();
+  }
+
+  @Test
+  public void testIsAmount() {
+    assertThat(CsvSchemaInference.isAmount("$-1,234.56")).isTrue();
+    assertThat(CsvSchemaInference.isAmount("(12.00)")).isTrue();
+    assertThat(CsvSchemaInference.isAmount("12")).isTrue();
+    assertThat(CsvSchemaInference.isAmount("2020-01-31")).isFalse();
+    assertThat(CsvSchemaInference.isAmount("1.2.3")).isFalse();
+    assertThat(CsvSchemaInference.isAmount("USD")).isFalse();
+  }
+
+  private static Optional<SettingsProfile> infer(
+      Map<DataField, Integer> knownPositions, String... lines) {
+    return CsvSchemaInference.create(CharSource.wrap(Joiner.on('\n').join(lines)))
+        .infer(knownPositions);
+  }
+
+  private static Map<DataField, Integer> positionsOf(SettingsProfile profile) {
+    ImmutableMap.Builder<DataField, Integer> positions = ImmutableMap.builder();
+    for (FieldPosition position : profile.getCsvFieldPositions().getPositionList()) {
+      positions.put(position.getField(), position.getColumnIndex());
+    }
+    return positions.build();
+  }
+}
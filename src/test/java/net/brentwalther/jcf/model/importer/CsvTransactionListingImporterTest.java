@@ -6,20 +6,28 @@ import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import net.brentwalther.jcf.SettingsProto.SettingsProfile.DataField;
 import net.brentwalther.jcf.environment.JcfEnvironment;
+import net.brentwalther.jcf.flag.LazyTextFile;
 import net.brentwalther.jcf.model.JcfModel.Account;
 import net.brentwalther.jcf.model.JcfModel.Model;
 import net.brentwalther.jcf.model.ModelGenerators;
 import net.brentwalther.jcf.model.ModelTransforms;
 import net.brentwalther.jcf.testing.Correspondences;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class CsvTransactionListingImporterTest {
 
@@ -37,12 +45,14 @@ public class CsvTransactionListingImporterTest {
   private static final Account DEFAULT_ACCOUNT =
       ModelGenerators.simpleAccount("Assets:Current Assets:Checking 1234");
 
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private JcfEnvironment mockEnvironment;
 
   @Before
   public void setUp() {
     mockEnvironment = mock(JcfEnvironment.class);
-    when(mockEnvironment.getInputCsvLines()).thenReturn(DEFAULT_CSV_LINES);
+    when(mockEnvironment.getInputCsv()).thenReturn(csvFile(DEFAULT_CSV_LINES));
     when(mockEnvironment.getCsvFieldMappings()).thenReturn(DEFAULT_CSV_FIELD_MAPPINGS);
     when(mockEnvironment.getImportAccountGenerator()).thenReturn((unused) -> DEFAULT_ACCOUNT);
     when(mockEnvironment.getCsvDateFormat()).thenReturn(Optional.of(DEFAULT_DATE_TIME_FORMATTER));
@@ -65,7 +75,7 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testEmptyInput() {
-    when(mockEnvironment.getInputCsvLines()).thenReturn(ImmutableList.of());
+    when(mockEnvironment.getInputCsv()).thenReturn(csvFile(ImmutableList.of()));
     Model model = CsvTransactionListingImporter.create(mockEnvironment).get();
 
     // We consider empty input an early exit condition and return an importer that does nothing.
@@ -112,7 +122,7 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithOnlyHeader() {
-    when(mockEnvironment.getInputCsvLines()).thenReturn(DEFAULT_CSV_LINES.subList(0, 1));
+    when(mockEnvironment.getInputCsv()).thenReturn(csvFile(DEFAULT_CSV_LINES.subList(0, 1)));
 
     Model model = CsvTransactionListingImporter.create(mockEnvironment).get();
     assertThat(model.getAccountList()).isEmpty();
@@ -122,11 +132,12 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithEmptyFirstField() {
-    when(mockEnvironment.getInputCsvLines())
+    when(mockEnvironment.getInputCsv())
         .thenReturn(
-            ImmutableList.of(
-                "Card,Date,Desc,Amt",
-                "," + DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",Foobar,50.00"));
+            csvFile(
+                ImmutableList.of(
+                    "Card,Date,Desc,Amt",
+                    "," + DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",Foobar,50.00")));
     when(mockEnvironment.getCsvFieldMappings())
         .thenReturn(
             ImmutableMap.of(DataField.DATE, 1, DataField.DESCRIPTION, 2, DataField.AMOUNT, 3));
@@ -146,11 +157,12 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithEmptyMiddleField() {
-    when(mockEnvironment.getInputCsvLines())
+    when(mockEnvironment.getInputCsv())
         .thenReturn(
-            ImmutableList.of(
-                "Date,Card,Desc,Amt",
-                DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",,Foobar,50.00"));
+            csvFile(
+                ImmutableList.of(
+                    "Date,Card,Desc,Amt",
+                    DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",,Foobar,50.00")));
     when(mockEnvironment.getCsvFieldMappings())
         .thenReturn(
             ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 2, DataField.AMOUNT, 3));
@@ -170,11 +182,12 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithEmptyLastField() {
-    when(mockEnvironment.getInputCsvLines())
+    when(mockEnvironment.getInputCsv())
         .thenReturn(
-            ImmutableList.of(
-                "Date,Desc,Amt,Card",
-                DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",Foobar,50.00,"));
+            csvFile(
+                ImmutableList.of(
+                    "Date,Desc,Amt,Card",
+                    DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",Foobar,50.00,")));
     when(mockEnvironment.getCsvFieldMappings())
         .thenReturn(
             ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.AMOUNT, 2));
@@ -194,11 +207,12 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithQuotedValueNoEscapeChars() {
-    when(mockEnvironment.getInputCsvLines())
+    when(mockEnvironment.getInputCsv())
         .thenReturn(
-            ImmutableList.of(
-                "Date,Desc,Amt,Card",
-                DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",\"Foo,bar\",50.00,"));
+            csvFile(
+                ImmutableList.of(
+                    "Date,Desc,Amt,Card",
+                    DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",\"Foo,bar\",50.00,")));
     when(mockEnvironment.getCsvFieldMappings())
         .thenReturn(
             ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.AMOUNT, 2));
@@ -218,11 +232,12 @@ public class CsvTransactionListingImporterTest {
 
   @Test
   public void testCsvWithQuotedValueWithEscapeChars() {
-    when(mockEnvironment.getInputCsvLines())
+    when(mockEnvironment.getInputCsv())
         .thenReturn(
-            ImmutableList.of(
-                "Date,Desc,Amt,Card",
-                DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",\"Foo,\\\"bar\",50.00,"));
+            csvFile(
+                ImmutableList.of(
+                    "Date,Desc,Amt,Card",
+                    DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",\"Foo,\\\"bar\",50.00,")));
     when(mockEnvironment.getCsvFieldMappings())
         .thenReturn(
             ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.AMOUNT, 2));
@@ -239,4 +254,122 @@ public class CsvTransactionListingImporterTest {
         .comparingElementsUsing(Correspondences.BIGDECIMAL_COMPARETO_CORRESPONDENCE)
         .containsExactly(new BigDecimal("50.00"));
   }
+
+  @Test
+  public void testTransactionIdsAreStable() {
+    String line = DEFAULT_CSV_LINES.get(1);
+    when(mockEnvironment.getInputCsv())
+        .thenReturn(csvFile(ImmutableList.of(DEFAULT_CSV_LINES.get(0), line, line)));
+    Model model = CsvTransactionListingImporter.create(mockEnvironment).get();
+    Model reimported = CsvTransactionListingImporter.create(mockEnvironment).get();
+
+    assertThat(reimported.getTransactionList())
+        .containsExactlyElementsIn(model.getTransactionList())
+        .inOrder();
+    assertThat(reimported.getSplitList()).containsExactlyElementsIn(model.getSplitList()).inOrder();
+    assertThat(model.getTransaction(0).getId()).isNotEqualTo(model.getTransaction(1).getId());
+  }
+
+  @Test
+  public void testCsvWithQuotedValueWithLineBreaksAndDoubledQuotes() {
+    when(mockEnvironment.getInputCsv())
+        .thenReturn(
+            csvFile(
+                ImmutableList.of(
+                    "Date,Desc,Amt",
+                    DEFAULT_DATE_TIME_FORMATTER.format(DEFAULT_DATE) + ",\"The \"\"Foo\"\"",
+                    "bar\",50.00")));
+    when(mockEnvironment.getCsvFieldMappings())
+        .thenReturn(
+            ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.AMOUNT, 2));
+
+    Model model = CsvTransactionListingImporter.create(mockEnvironment).get();
+    assertThat(model.getTransactionList())
+        .comparingElementsUsing(Correspondences.TRANSACTION_DESCRIPTION_CORRESPONDENCE)
+        .containsExactly("The \"Foo\"\nbar");
+  }
+
+  @Test
+  public void testStream_isIndependentOfTheBatchSize() {
+    StringBuilder csv = new StringBuilder("Date,Desc,Amt\n");
+    for (int i = 0; i < 1000; i++) {
+      csv.append("2020-12-")
+          .append(10 + i % 20)
+          .append(",Store ")
+          .append(i % 7)
+          .append(',')
+          .append(i % 13)
+          .append(".99\n");
+    }
+    Model oneBatch = importInBatchesOf(Integer.MAX_VALUE, csv.toString());
+    Model manyBatches = importInBatchesOf(3, csv.toString());
+
+    assertThat(manyBatches.getTransactionList())
+        .containsExactlyElementsIn(oneBatch.getTransactionList())
+        .inOrder();
+    assertThat(manyBatches.getSplitList())
+        .containsExactlyElementsIn(oneBatch.getSplitList())
+        .inOrder();
+    assertThat(manyBatches.getTransactionCount()).isEqualTo(1000);
+  }
+
+  @Test
+  public void testParseCurrencyValueStringAsCents() {
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("56.91"))
+        .isEqualTo(5691);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("-$1,234.5"))
+        .isEqualTo(-123450);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("12."))
+        .isEqualTo(1200);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents(".05"))
+        .isEqualTo(5);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("7.999"))
+        .isEqualTo(799);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("($1,234.56)"))
+        .isEqualTo(-123456);
+  }
+
+  @Test
+  public void testParseCurrencyValueStringAsCents_largestValue() {
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("21474836.47"))
+        .isEqualTo(Integer.MAX_VALUE);
+    assertThat(CsvTransactionListingImporter.parseCurrencyValueStringAsCents("-21474836.47"))
+        .isEqualTo(-Integer.MAX_VALUE);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testParseCurrencyValueStringAsCents_tooLarge() {
+    // The dollars fit, but the cents would overflow.
+    CsvTransactionListingImporter.parseCurrencyValueStringAsCents("21474836.48");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testParseCurrencyValueStringAsCents_negativeInParentheses() {
+    CsvTransactionListingImporter.parseCurrencyValueStringAsCents("(-12.00)");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testParseCurrencyValueStringAsCents_twoDecimalPoints() {
+    CsvTransactionListingImporter.parseCurrencyValueStringAsCents("1.2.3");
+  }
+
+  private static Model importInBatchesOf(int rowsPerBatch, String csv) {
+    return CsvTransactionListingImporter.create(
+            CharSource.wrap(csv),
+            ImmutableMap.of(DataField.DATE, 0, DataField.DESCRIPTION, 1, DataField.AMOUNT, 2),
+            DEFAULT_DATE_TIME_FORMATTER,
+            (unused) -> DEFAULT_ACCOUNT,
+            rowsPerBatch)
+        .get();
+  }
+
+  private LazyTextFile csvFile(ImmutableList<String> lines) {
+    try {
+      File file = temporaryFolder.newFile();
+      Files.write(file.toPath(), lines);
+      return LazyTextFile.of(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -0,0 +1,103 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import net.brentwalther.jcf.flag.LazyTextFile;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalLedgerImporterTest {
+
+  private static final String ACCOUNTS =
+      "account Liabilities:Credit Cards:Chase\naccount Expenses:Food/Drink:Alcohol & Bars\n\n";
+  private static final String COOL_BAR =
+      "2020-10-31 * Cool bar\n"
+          + "  Liabilities:Credit Cards:Chase  $-6.00\n"
+          + "  Expenses:Food/Drink:Alcohol & Bars\n";
+  private static final String GROCERIES =
+      "2020-11-01 * Groceries\n"
+          + "  Liabilities:Credit Cards:Chase  $-20.00\n"
+          + "  Expenses:Food/Drink:Groceries  $20.00\n";
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File ledgerFile;
+  private Path sidecarFile;
+
+  @Before
+  public void setUp() throws IOException {
+    ledgerFile = temporaryFolder.newFile("master.ledger");
+    sidecarFile = temporaryFolder.getRoot().toPath().resolve("master.ledger.sidecar");
+  }
+
+  @Test
+  public void testAppendedTransactions() throws IOException {
+    append(ACCOUNTS + COOL_BAR + "\n");
+    assertSameRecords(importIncrementally(), importFully());
+    assertThat(Files.exists(sidecarFile)).isTrue();
+
+    // The identical transaction must still get a different ID than the saved one.
+    append(COOL_BAR + "\n" + GROCERIES);
+    assertSameRecords(importIncrementally(), importFully());
+    assertThat(importIncrementally().getTransactionCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testTransactionAppendedToAfterTheLastImport() throws IOException {
+    append(ACCOUNTS + "2020-10-31 * Cool bar\n  Liabilities:Credit Cards:Chase  $-6.00\n");
+    importIncrementally();
+
+    append("  Expenses:Food/Drink:Alcohol & Bars\n\n" + GROCERIES);
+    Model model = importIncrementally();
+    assertSameRecords(model, importFully());
+    assertThat(model.getSplitCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void testEarlierBytesChanged() throws IOException {
+    append(ACCOUNTS + COOL_BAR + "\n");
+    importIncrementally();
+
+    Files.write(ledgerFile.toPath(), (ACCOUNTS + GROCERIES + "\n" + COOL_BAR).getBytes(UTF_8));
+    assertSameRecords(importIncrementally(), importFully());
+  }
+
+  @Test
+  public void testUnreadableSidecar() throws IOException {
+    append(ACCOUNTS + COOL_BAR + "\n" + GROCERIES);
+    Files.write(sidecarFile, "not a sidecar".getBytes(UTF_8));
+    assertSameRecords(importIncrementally(), importFully());
+    // It's replaced by a readable one.
+    assertSameRecords(importIncrementally(), importFully());
+  }
+
+  /** Model IDs aren't compared because they're not derived from the records. */
+  private static void assertSameRecords(Model actual, Model expected) {
+    assertThat(actual.getAccountList()).containsExactlyElementsIn(expected.getAccountList());
+    assertThat(actual.getTransactionList())
+        .containsExactlyElementsIn(expected.getTransactionList())
+        .inOrder();
+    assertThat(actual.getSplitList()).containsExactlyElementsIn(expected.getSplitList()).inOrder();
+  }
+
+  private Model importIncrementally() {
+    return IncrementalLedgerImporter.create(LazyTextFile.of(ledgerFile), sidecarFile).get();
+  }
+
+  private Model importFully() {
+    return LedgerFileImporter.create(LazyTextFile.of(ledgerFile).lines()).get();
+  }
+
+  private void append(String content) throws IOException {
+    Files.write(ledgerFile.toPath(), content.getBytes(UTF_8), StandardOpenOption.APPEND);
+  }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import java.math.BigDecimal;
 import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
 import net.brentwalther.jcf.model.ModelTransforms;
 import net.brentwalther.jcf.testing.Correspondences;
 import org.junit.Test;
@@ -252,4 +253,57 @@ public class LedgerFileImporterTest {
         .comparingElementsUsing(Correspondences.BIGDECIMAL_COMPARETO_CORRESPONDENCE)
         .containsAtLeast(new BigDecimal("-6"), new BigDecimal("-6"));
   }
+
+  @Test
+  public void testChunkedImportMatchesSingleChunk() {
+    ImmutableList.Builder<String> lines = ImmutableList.builder();
+    for (int i = 0; i < 100; i++) {
+      lines.add("account Expenses:Category " + (i % 7));
+      lines.add(String.format("2020-%02d-%02d * Purchase %s", i % 12 + 1, i % 28 + 1, i));
+      lines.add("  Liabilities:Credit Cards:Chase  $-" + i + ".25");
+      lines.add("  Expenses:Category " + (i % 7));
+      lines.add("");
+    }
+    Model singleChunk = LedgerFileImporter.create(lines.build()).get();
+    Model manyChunks = LedgerFileImporter.create(lines.build(), /* linesPerChunk= */ 7).get();
+
+    assertThat(manyChunks.getAccountList())
+        .containsExactlyElementsIn(singleChunk.getAccountList())
+        .inOrder();
+    assertThat(manyChunks.getTransactionList())
+        .containsExactlyElementsIn(singleChunk.getTransactionList())
+        .inOrder();
+    assertThat(manyChunks.getSplitList())
+        .containsExactlyElementsIn(singleChunk.getSplitList())
+        .inOrder();
+  }
+
+  @Test
+  public void testTransactionIdsAreStable() {
+    ImmutableList<String> lines =
+        ImmutableList.of(
+            "2020-10-31 * Cool bar",
+            "  Liabilities:Credit Cards:Chase  $-6.00",
+            "  Expenses:Food/Drink:Alcohol & Bars",
+            "",
+            "2020-10-31 * Cool bar",
+            "  Liabilities:Credit Cards:Chase  $-6.00",
+            "  Expenses:Food/Drink:Alcohol & Bars",
+            "",
+            "2020-10-31 * Cool bar",
+            "  Liabilities:Credit Cards:Chase  $-7.00",
+            "  Expenses:Food/Drink:Alcohol & Bars");
+    Model model = LedgerFileImporter.create(lines).get();
+
+    assertThat(LedgerFileImporter.create(lines).get().getTransactionList())
+        .containsExactlyElementsIn(model.getTransactionList())
+        .inOrder();
+    assertThat(LedgerFileImporter.create(lines).get().getSplitList())
+        .containsExactlyElementsIn(model.getSplitList())
+        .inOrder();
+    // Identical transactions are still told apart.
+    assertThat(
+            FluentIterable.from(model.getTransactionList()).transform(Transaction::getId).toSet())
+        .hasSize(3);
+  }
 }
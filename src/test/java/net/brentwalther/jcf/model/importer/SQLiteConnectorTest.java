@@ -0,0 +1,128 @@
+package net.brentwalther.jcf.model.importer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import net.brentwalther.jcf.model.JcfModel.Account;
+import net.brentwalther.jcf.model.JcfModel.Model;
+import net.brentwalther.jcf.model.JcfModel.Split;
+import net.brentwalther.jcf.model.JcfModel.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SQLiteConnectorTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadsBook() throws Exception {
+    File book = temporaryFolder.newFile("book.gnucash");
+    // Creating the connector loads the driver, which doesn't register itself.
+    JcfModelImporter importer = SQLiteConnector.create(book);
+    try (Connection connection =
+            DriverManager.getConnection("jdbc:sqlite:" + book.getAbsolutePath());
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(
+          "create table accounts (guid text primary key, name text, account_type text, "
+              + "commodity_guid text, parent_guid text, description text)");
+      statement.executeUpdate(
+          "create table transactions (guid text primary key, currency_guid text, "
+              + "post_date text, enter_date text, description text)");
+      statement.executeUpdate(
+          "create table splits (guid text primary key, tx_guid text, account_guid text, "
+              + "memo text, value_num bigint, value_denom bigint)");
+      statement.executeUpdate("create index splits_tx_guid_index on splits (tx_guid)");
+      String[] inserts = {
+        "insert into accounts values ('root', 'Root Account', 'ROOT', null, null, '')",
+        "insert into accounts values ('checking', 'Checking', 'BANK', 'usd', 'root', '')",
+        "insert into accounts values ('food', 'Food', 'EXPENSE', 'usd', 'root', '')",
+        "insert into transactions values ('t2', 'usd', '2020-02-29 10:59:00', '', 'Groceries')",
+        "insert into transactions values ('t1', 'usd', '2020-01-31 00:00:00', '', 'Coffee')",
+        "insert into transactions values ('t3', 'usd', '2020-03-01 00:00:00', '', null)",
+        "insert into splits values ('s1', 't1', 'checking', '', -450, 100)",
+        "insert into splits values ('s2', 't1', 'food', '', 450, 100)",
+        "insert into splits values ('s3', 't2', 'food', '', 5210, 100)",
+        "insert into splits values ('s4', 't2', 'checking', '', -5210, 100)",
+      };
+      for (String insert : inserts) {
+        statement.executeUpdate(insert);
+      }
+    }
+
+    Model model = importer.get();
+
+    assertThat(model.getAccountList()).hasSize(3);
+    assertThat(model.getAccountList())
+        .contains(
+            Account.newBuilder()
+                .setId("checking")
+                .setName("Checking")
+                .setType(Account.Type.ASSET)
+                .setParentId("root")
+                .build());
+    assertThat(model.getTransactionList())
+        .containsExactly(
+            Transaction.newBuilder()
+                .setId("t1")
+                .setPostDateEpochSecond(epochSecond(LocalDateTime.of(2020, 1, 31, 0, 0)))
+                .setDescription("Coffee")
+                .build(),
+            Transaction.newBuilder()
+                .setId("t2")
+                .setPostDateEpochSecond(epochSecond(LocalDateTime.of(2020, 2, 29, 10, 59)))
+                .setDescription("Groceries")
+                .build(),
+            Transaction.newBuilder()
+                .setId("t3")
+                .setPostDateEpochSecond(epochSecond(LocalDateTime.of(2020, 3, 1, 0, 0)))
+                .setDescription("")
+                .build());
+    assertThat(model.getSplitList())
+        .containsExactly(
+            split("t1", "checking", -450),
+            split("t1", "food", 450),
+            split("t2", "food", 5210),
+            split("t2", "checking", -5210));
+  }
+
+  @Test
+  public void testMissingTablesImportNothing() throws Exception {
+    File book = temporaryFolder.newFile("empty.gnucash");
+
+    assertThat(SQLiteConnector.create(book).get().getTransactionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testParsePostDate() {
+    assertThat(SQLiteConnector.parsePostDate("2020-12-31 23:59:58"))
+        .isEqualTo(LocalDateTime.of(2020, 12, 31, 23, 59, 58));
+    // Left to the formatter, which resolves it to the end of the month.
+    assertThat(SQLiteConnector.parsePostDate("2021-02-30 00:00:00"))
+        .isEqualTo(LocalDateTime.of(2021, 2, 28, 0, 0));
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testParsePostDate_otherLayout() {
+    SQLiteConnector.parsePostDate("20201231235958");
+  }
+
+  private static long epochSecond(LocalDateTime dateTime) {
+    return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+  }
+
+  private static Split split(String transactionId, String accountId, int valueNumerator) {
+    return Split.newBuilder()
+        .setTransactionId(transactionId)
+        .setAccountId(accountId)
+        .setValueNumerator(valueNumerator)
+        .setValueDenominator(100)
+        .build();
+  }
+}
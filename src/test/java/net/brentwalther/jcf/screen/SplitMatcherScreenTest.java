@@ -6,6 +6,7 @@ import static net.brentwalther.jcf.testing.ArgumentMatchers.IS_A_DECORATED_OPTIO
 import static net.brentwalther.jcf.testing.Correspondences.SPLIT_WITH_ACCOUNT_ID_CORRESPONDENCE;
 import static net.brentwalther.jcf.testing.Correspondences.SPLIT_WITH_BIGDECIMAL_AMOUNT_COMPARETO_CORRESPONDENCE;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -25,6 +26,7 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Supplier;
 import net.brentwalther.jcf.matcher.SplitMatcher;
 import net.brentwalther.jcf.model.IndexedModel;
@@ -116,7 +118,8 @@ public class SplitMatcherScreenTest {
             OptionsPrompt.class, () -> Result.string(EXPENSE_ACCOUNTS.get(0).getName()));
     when(mockPromptEvaluator.blockingGetResult(any()))
         .thenAnswer(usingResultCalculatorByPromptClass(resultByPromptClass));
-    when(mockSplitMatcher.getTopMatches(any(), any(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getTopAccounts(any(), anyInt(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getProbableDuplicate(any(), any())).thenReturn(Optional.empty());
     Model actualOutputModel =
         SplitMatcherScreen.start(
             mockPromptEvaluator,
@@ -147,7 +150,8 @@ public class SplitMatcherScreenTest {
             () -> Result.string(cyclingExpenseAccountIterator.next().getName()));
     when(mockPromptEvaluator.blockingGetResult(any()))
         .thenAnswer(usingResultCalculatorByPromptClass(resultByPromptClass));
-    when(mockSplitMatcher.getTopMatches(any(), any(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getTopAccounts(any(), anyInt(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getProbableDuplicate(any(), any())).thenReturn(Optional.empty());
     Model actualOutputModel =
         SplitMatcherScreen.start(
             mockPromptEvaluator,
@@ -193,7 +197,8 @@ public class SplitMatcherScreenTest {
             () -> Result.bigDecimal(multiSplitAmount));
     when(mockPromptEvaluator.blockingGetResult(any()))
         .thenAnswer(usingResultCalculatorByPromptClass(resultCalculatorsByPromptClass));
-    when(mockSplitMatcher.getTopMatches(any(), any(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getTopAccounts(any(), anyInt(), any())).thenReturn(ImmutableList.of());
+    when(mockSplitMatcher.getProbableDuplicate(any(), any())).thenReturn(Optional.empty());
     Model actualOutputModel =
         SplitMatcherScreen.start(
             mockPromptEvaluator,
@@ -0,0 +1,57 @@
+package net.brentwalther.jcf.string;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import org.junit.Test;
+
+public class DateDecoderTest {
+
+  @Test
+  public void testForFormatter_matchesParseDateFrom() {
+    String[][] patternsAndDates = {
+      {"yyyy-MM-dd", "2020-12-31", "1999-01-01", "2021-02-30", "2020-02-29", "2021-04-31"},
+      {"yyyy/MM/dd", "2020/12/31", "1999/01/01", "2021/02/31"},
+      {"MM/dd/yyyy", "12/31/2020", "01/01/1999", "02/29/2021"},
+      {"M/d/yyyy", "1/2/2020", "12/31/2020"},
+      {"dd.MM.yyyy", "31.12.2020"},
+    };
+    for (String[] patternAndDates : patternsAndDates) {
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern(patternAndDates[0]);
+      DateDecoder decoder = DateDecoder.forFormatter(formatter);
+      for (int i = 1; i < patternAndDates.length; i++) {
+        String date = patternAndDates[i];
+        long expected = Formatter.parseDateFrom(date, formatter).getEpochSecond();
+        assertThat(decoder.decode(date)).isEqualTo(expected);
+        // Again, from the cache.
+        assertThat(decoder.decode(date)).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testForFormatter_invalidDate() {
+    DateDecoder.forFormatter(DateTimeFormatter.ofPattern("yyyy-MM-dd")).decode("2020-13-01");
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testForFormatter_otherLayout() {
+    DateDecoder.forFormatter(DateTimeFormatter.ofPattern("yyyy-MM-dd")).decode("12/31/2020");
+  }
+
+  @Test
+  public void testForLedger() {
+    DateDecoder decoder = DateDecoder.forLedger();
+    long expected = LocalDate.of(2020, 10, 31).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+    assertThat(decoder.decode("2020-10-31")).isEqualTo(expected);
+    assertThat(decoder.decode("2020/10/31")).isEqualTo(expected);
+    for (String notADate : new String[] {"account", "10/31/2020", "2020-10-3", "2020-1a-31", ""}) {
+      assertThat(decoder.decode(notADate)).isEqualTo(DateDecoder.NOT_A_DATE);
+    }
+    assertThat(decoder.decode("2020-13-31")).isEqualTo(DateDecoder.NOT_A_DATE);
+    assertThat(decoder.decode("2020/10-31")).isEqualTo(DateDecoder.NOT_A_DATE);
+  }
+}